@@ -0,0 +1,136 @@
+import utils.CsvParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Benchmark comparing the split-based CSV parsing previously used by DataManager
+ * with the streaming CsvParser on a generated voters.csv-style file.
+ *
+ * Usage: java -cp out CsvParserBenchmark [rows] [rounds]
+ * Defaults to 10,000,000 rows (about 750 MB, written to the temp directory) and 3 rounds.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class CsvParserBenchmark {
+
+    /**
+     * Main method to run the benchmark.
+     *
+     * @param args Optional row count and number of rounds
+     * @throws IOException if the benchmark file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        File file = File.createTempFile("voters-benchmark", ".csv");
+        file.deleteOnExit();
+
+        System.out.println("Generating " + rows + " rows in " + file + "...");
+        generate(file, rows);
+        System.out.println("File size: " + (file.length() / (1024 * 1024)) + " MB");
+        System.out.println();
+
+        long bestSplit = Long.MAX_VALUE;
+        long bestParser = Long.MAX_VALUE;
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            long splitChecksum = parseWithSplit(file);
+            long splitMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            long parserChecksum = parseWithCsvParser(file);
+            long parserMillis = (System.nanoTime() - start) / 1_000_000;
+
+            if (splitChecksum != parserChecksum) {
+                System.out.println("Checksum mismatch: " + splitChecksum + " vs " + parserChecksum);
+            }
+
+            System.out.println("Round " + round + ": split " + splitMillis + " ms, CsvParser " + parserMillis + " ms");
+            bestSplit = Math.min(bestSplit, splitMillis);
+            bestParser = Math.min(bestParser, parserMillis);
+        }
+
+        System.out.println();
+        System.out.println("Best split:     " + bestSplit + " ms (" + rate(rows, bestSplit) + " rows/s)");
+        System.out.println("Best CsvParser: " + bestParser + " ms (" + rate(rows, bestParser) + " rows/s)");
+    }
+
+    /**
+     * Writes a voters.csv-style file.
+     */
+    private static void generate(File file, long rows) throws IOException {
+        String hash = "6b86b273ff34fce19d6b804eff5a3f5747ada4eaa22f1d49c01e52ddb7875b4b";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            writer.write("id,hasVoted,password");
+            writer.newLine();
+            for (long i = 1; i <= rows; i++) {
+                writer.write(Long.toString(i));
+                writer.write(i % 3 == 0 ? ",true," : ",false,");
+                writer.write(hash);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Parses the file the way DataManager did before CsvParser.
+     *
+     * @return A checksum over the parsed fields so the work is not optimized away
+     */
+    private static long parseWithSplit(File file) throws IOException {
+        long checksum = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line = reader.readLine(); // Skip header
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] parts = line.split(",");
+                if (parts.length >= 3) {
+                    String id = parts[0].trim();
+                    boolean hasVoted = Boolean.parseBoolean(parts[1].trim());
+                    String password = parts[2].trim();
+                    checksum += id.length() + password.length() + (hasVoted ? 1 : 0);
+                }
+            }
+        }
+        return checksum;
+    }
+
+    /**
+     * Parses the file with CsvParser.
+     *
+     * @return A checksum over the parsed fields so the work is not optimized away
+     */
+    private static long parseWithCsvParser(File file) throws IOException {
+        final long[] checksum = new long[1];
+        try (Reader reader = new FileReader(file)) {
+            new CsvParser().parse(reader, new CsvParser.RowHandler() {
+                @Override
+                public void handleRow(CsvParser.Row row) {
+                    if (row.index() == 0 || row.fieldCount() < 3) {
+                        return;
+                    }
+                    // Materialize the same Strings DataManager keeps for each voter
+                    String id = row.get(0);
+                    boolean hasVoted = row.getBoolean(1);
+                    String password = row.get(2);
+                    checksum[0] += id.length() + password.length() + (hasVoted ? 1 : 0);
+                }
+            });
+        }
+        return checksum[0];
+    }
+
+    private static long rate(long rows, long millis) {
+        return millis == 0 ? rows : rows * 1000 / millis;
+    }
+}
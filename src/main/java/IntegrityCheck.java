@@ -0,0 +1,385 @@
+import controller.AdministratorController;
+import controller.Election;
+import controller.LogProof;
+import controller.LoginThrottle;
+import controller.LoginThrottledException;
+import controller.VotingController;
+import model.Candidate;
+import model.Voter;
+import repository.CandidateRepository;
+import repository.Repositories;
+import repository.TallyEngine;
+import repository.VoterRepository;
+import utils.DedupCache;
+import utils.LedgerReport;
+import utils.MerkleLog;
+import utils.SlidingWindowCounter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Check harness for the concurrency and integrity guarantees of the voting system.
+ * Each check prints one line; the run ends with TEST PASSED or TEST FAILED and
+ * exits with the number of failed checks.
+ *
+ * The election checks never touch the data files of the working directory:
+ * they run in child JVMs inside a new temporary directory, which is deleted
+ * afterwards. Starting a new JVM between phases is a real restart, so the
+ * consistency proof is checked against a log reopened from disk.
+ *
+ * Checks:
+ * - Concurrent ballots by one voter: exactly one is accepted and counted (FR-C01)
+ * - A consistency proof across a restart verifies, and fails for a wrong root
+ * - Inclusion proofs keep verifying after a restart
+ * - The vote ledger is intact, and a tampered journal line is detected
+ * - Merkle inclusion and consistency proofs for every tree size up to 33
+ * - SlidingWindowCounter and LoginThrottle limits, and DedupCache expiry
+ *
+ * Usage: java -cp out IntegrityCheck
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class IntegrityCheck {
+
+    private static final int BALLOT_THREADS = 16;
+    private static final int VOTERS = 40;
+    private static final int CHECKPOINT_INTERVAL = 10;
+    private static final String HEAD_FILE = "head.txt";
+
+    private static int failures;
+
+    /**
+     * Main method to run all checks, or one election phase in a child JVM.
+     *
+     * @param args Empty to run all checks; a phase name in a child JVM
+     * @throws Exception if a check cannot be run at all
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            runPhase(args[0]);
+            System.exit(failures);
+        }
+
+        System.out.println("==========================================");
+        System.out.println("INTEGRITY CHECKS");
+        System.out.println("==========================================");
+
+        System.out.println("Merkle proofs:");
+        checkMerkleProofs();
+        System.out.println("Rate limits and expiry:");
+        checkSlidingWindowCounter();
+        checkLoginThrottle();
+        checkDedupCache();
+
+        Path dir = Files.createTempDirectory("integrity-check");
+        try {
+            System.out.println("Concurrent ballots (fresh election in " + dir + "):");
+            runChild(dir, "vote");
+            System.out.println("After a restart:");
+            runChild(dir, "restart");
+            System.out.println("After tampering with a journal line:");
+            tamperJournal(dir.resolve("votes.csv"));
+            runChild(dir, "tampered");
+        } finally {
+            deleteDirectory(dir.toFile());
+        }
+
+        System.out.println("==========================================");
+        if (failures == 0) {
+            System.out.println("**TEST PASSED: All integrity checks passed**");
+        } else {
+            System.out.println("**TEST FAILED: " + failures + " check(s) failed**");
+        }
+        System.out.println("==========================================");
+        System.exit(failures);
+    }
+
+    private static void check(String description, boolean passed) {
+        System.out.println("  " + (passed ? "✓ " : "✗ ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    /**
+     * Runs an election phase in a child JVM with the temporary directory as
+     * its working directory, and counts the checks that failed there.
+     */
+    private static void runChild(Path dir, String phase) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        StringBuilder classPath = new StringBuilder();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (classPath.length() > 0) {
+                classPath.append(File.pathSeparator);
+            }
+            classPath.append(new File(entry).getAbsolutePath());
+        }
+        ProcessBuilder builder = new ProcessBuilder(java,
+                "-Djava.awt.headless=true",
+                "-Dvoting.ledger.checkpointInterval=" + CHECKPOINT_INTERVAL,
+                "-cp", classPath.toString(),
+                IntegrityCheck.class.getName(), phase);
+        builder.directory(dir.toFile());
+        builder.inheritIO();
+        int childFailures = builder.start().waitFor();
+        if (childFailures != 0) {
+            failures += childFailures;
+        }
+    }
+
+    /**
+     * Runs one election phase inside the temporary directory.
+     */
+    private static void runPhase(String phase) throws Exception {
+        Repositories.initialize();
+        try {
+            if ("vote".equals(phase)) {
+                checkConcurrentBallots();
+            } else if ("restart".equals(phase)) {
+                checkAfterRestart();
+            } else if ("tampered".equals(phase)) {
+                LedgerReport report = new AdministratorController().verifyVoteLedger();
+                check("Tampered journal line is detected: " + report, !report.isIntact());
+            } else {
+                check("Unknown phase " + phase, false);
+            }
+        } finally {
+            Repositories.shutdown();
+        }
+    }
+
+    /**
+     * Casts one voter's ballot from many threads at once, then lets every
+     * other voter vote, and saves the log head for the restart phase.
+     */
+    private static void checkConcurrentBallots() throws Exception {
+        final Candidate candidate = new Candidate("CHK1", "Check Candidate", "Check Position");
+        CandidateRepository.getInstance().add(candidate);
+        CandidateRepository.getInstance().add(new Candidate("CHK2", "Other Candidate", "Check Position"));
+        List<Voter> voters = new ArrayList<>();
+        for (int i = 0; i < VOTERS; i++) {
+            Voter voter = new Voter("CHKV" + i, "password");
+            VoterRepository.getInstance().add(voter);
+            voters.add(voter);
+        }
+        Election.getInstance().startElection();
+
+        final VotingController votingController = new VotingController();
+        final Voter voter = voters.get(0);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger accepted = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < BALLOT_THREADS; t++) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    if (votingController.castVote(voter, candidate)) {
+                        accepted.incrementAndGet();
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        check("Exactly one of " + BALLOT_THREADS + " concurrent ballots is accepted", accepted.get() == 1);
+        check("The candidate is counted once", candidate.getVoteCount() == 1);
+        check("The live tally counts the vote once", tallyCount("CHK1") == 1);
+
+        Candidate other = CandidateRepository.getInstance().findById("CHK2");
+        for (int i = 1; i < VOTERS; i++) {
+            votingController.castVote(voters.get(i), other);
+        }
+        check("Every other voter's ballot is counted", other.getVoteCount() == VOTERS - 1);
+
+        LogProof proof = new AdministratorController().proveVoteIncluded(voter.getId());
+        check("Inclusion proof of the vote verifies", proof != null && proof.verify());
+        if (proof != null) {
+            Files.write(new File(HEAD_FILE).toPath(), (proof.getTreeSize() + " "
+                    + Base64.getEncoder().encodeToString(proof.getRootHash())).getBytes(StandardCharsets.UTF_8));
+        }
+        Election.getInstance().stopElection();
+    }
+
+    /**
+     * Proves that the log seen before the restart is a prefix of the log
+     * after it, once more votes were cast.
+     */
+    private static void checkAfterRestart() throws Exception {
+        String[] head = new String(Files.readAllBytes(new File(HEAD_FILE).toPath()), StandardCharsets.UTF_8).split(" ");
+        long oldSize = Long.parseLong(head[0]);
+        byte[] oldRoot = Base64.getDecoder().decode(head[1]);
+
+        check("Votes survive the restart", CandidateRepository.getInstance().findById("CHK2").getVoteCount()
+                == VOTERS - 1);
+        check("The voter is still marked as voted", VoterRepository.getInstance().findById("CHKV0").isHasVoted());
+
+        Election.getInstance().startElection();
+        VotingController votingController = new VotingController();
+        Candidate candidate = CandidateRepository.getInstance().findById("CHK1");
+        check("A second ballot after the restart is rejected",
+                !votingController.castVote(VoterRepository.getInstance().findById("CHKV0"), candidate));
+        for (int i = 0; i < CHECKPOINT_INTERVAL; i++) {
+            Voter voter = new Voter("CHKR" + i, "password");
+            VoterRepository.getInstance().add(voter);
+            votingController.castVote(voter, candidate);
+        }
+        Election.getInstance().stopElection();
+
+        AdministratorController adminController = new AdministratorController();
+        LogProof consistency = adminController.proveLogConsistency(oldSize, oldRoot);
+        check("Consistency proof from size " + oldSize + " across the restart verifies",
+                consistency != null && consistency.getTreeSize() > oldSize && consistency.verify());
+        byte[] wrongRoot = oldRoot.clone();
+        wrongRoot[0] ^= 1;
+        LogProof forged = adminController.proveLogConsistency(oldSize, wrongRoot);
+        check("Consistency proof fails for a root the log never had", forged != null && !forged.verify());
+
+        LogProof inclusion = adminController.proveVoteIncluded("CHKV0");
+        check("Inclusion proof after the restart verifies",
+                inclusion != null && inclusion.getLeafIndex() == 0 && inclusion.verify());
+
+        LedgerReport report = adminController.verifyVoteLedger();
+        check("Vote ledger is intact: " + report, report.isIntact() && report.getCheckpointCount() > 0);
+    }
+
+    /**
+     * Changes the candidate of one vote line in the middle of the journal,
+     * keeping its length, as someone editing the file would.
+     */
+    private static void tamperJournal(Path journal) throws IOException {
+        List<String> lines = new ArrayList<>(Files.readAllLines(journal, StandardCharsets.UTF_8));
+        int line = lines.size() / 2;
+        String changed = lines.get(line).replace(",CHK2,", ",CHK1,");
+        check("Journal line " + line + " is changed", !changed.equals(lines.get(line)));
+        lines.set(line, changed);
+        Files.write(journal, lines, StandardCharsets.UTF_8);
+    }
+
+    private static long tallyCount(String candidateId) {
+        for (Candidate candidate : TallyEngine.getInstance().getResults()) {
+            if (candidate.getCandidateId().equals(candidateId)) {
+                return candidate.getVoteCount();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks inclusion and consistency proofs against every smaller tree.
+     */
+    private static void checkMerkleProofs() throws IOException {
+        File file = File.createTempFile("integrity-check", ".merkle");
+        file.delete();
+        MerkleLog log = new MerkleLog(file);
+        try {
+            int leaves = 33;
+            List<byte[]> roots = new ArrayList<>();
+            boolean included = true;
+            boolean consistent = true;
+            boolean forgedRejected = true;
+            for (int size = 1; size <= leaves; size++) {
+                log.append(Arrays.asList(MerkleLog.hashLeaf("V" + size, "C1", size)), size);
+                roots.add(log.rootHash());
+                for (int index = 0; index < size; index++) {
+                    included &= MerkleLog.verifyInclusion(log.leafHash(index), index, size,
+                            log.inclusionProof(index, size), roots.get(size - 1));
+                }
+                for (int oldSize = 1; oldSize < size; oldSize++) {
+                    List<byte[]> proof = log.consistencyProof(oldSize, size);
+                    consistent &= MerkleLog.verifyConsistency(oldSize, size, roots.get(oldSize - 1),
+                            roots.get(size - 1), proof);
+                    forgedRejected &= !MerkleLog.verifyConsistency(oldSize, size, roots.get(size - 1),
+                            roots.get(size - 1), proof);
+                }
+            }
+            check("Inclusion proofs verify for every leaf of trees up to " + leaves, included);
+            check("Consistency proofs verify between every pair of sizes", consistent);
+            check("Consistency proofs fail for a wrong earlier root", forgedRejected);
+            byte[] leaf = log.leafHash(5);
+            leaf[0] ^= 1;
+            check("Inclusion proof fails for an altered leaf",
+                    !MerkleLog.verifyInclusion(leaf, 5, leaves, log.inclusionProof(5, leaves), log.rootHash()));
+        } finally {
+            log.close();
+            file.delete();
+        }
+    }
+
+    private static void checkSlidingWindowCounter() {
+        SlidingWindowCounter counter = new SlidingWindowCounter(1000, 10);
+        boolean admitted = true;
+        for (int i = 0; i < 5; i++) {
+            admitted &= counter.tryIncrement(100, 5);
+        }
+        check("Sliding window admits up to its limit", admitted);
+        check("Sliding window refuses beyond its limit", !counter.tryIncrement(500, 5));
+        check("Sliding window admits again once the window has passed", counter.tryIncrement(2500, 5));
+    }
+
+    private static void checkLoginThrottle() {
+        LoginThrottle throttle = new LoginThrottle(3, 60000, 60000, 60000, 1000, 1000, 100);
+        for (int i = 0; i < 3; i++) {
+            throttle.admit("locked");
+            throttle.recordFailure("locked");
+        }
+        boolean refused = false;
+        try {
+            throttle.admit("locked");
+        } catch (LoginThrottledException e) {
+            refused = true;
+        }
+        check("Login throttle locks an account out after 3 failures", refused);
+        boolean otherAdmitted;
+        try {
+            throttle.release("other", throttle.admit("other"));
+            otherAdmitted = true;
+        } catch (LoginThrottledException e) {
+            otherAdmitted = false;
+        }
+        check("Login throttle still admits other accounts", otherAdmitted);
+    }
+
+    private static void checkDedupCache() throws InterruptedException {
+        DedupCache<String> cache = new DedupCache<>(100, 50);
+        cache.putIfAbsent("key", "first");
+        check("Dedup cache returns the remembered value", "first".equals(cache.putIfAbsent("key", "second")));
+        Thread.sleep(120);
+        check("Dedup cache forgets the key after its time to live", cache.putIfAbsent("key", "third") == null);
+    }
+
+    private static void deleteDirectory(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    deleteDirectory(file);
+                } else if (!file.delete()) {
+                    System.err.println("Error deleting " + file);
+                }
+            }
+        }
+        if (!dir.delete()) {
+            System.err.println("Error deleting " + dir);
+        }
+    }
+}
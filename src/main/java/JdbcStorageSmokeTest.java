@@ -0,0 +1,220 @@
+import model.Administrator;
+import model.Candidate;
+import model.VoteRecord;
+import model.Voter;
+import storage.JdbcStorage;
+import storage.Storage;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Smoke test of the JDBC storage backend against a real embedded database.
+ * The database driver must be on the classpath, for example:
+ *
+ *   java -cp out:h2.jar JdbcStorageSmokeTest jdbc:h2:mem:smoke
+ *   java -cp out:derby.jar JdbcStorageSmokeTest "jdbc:derby:memory:smoke;create=true"
+ *
+ * The database should be new and empty. Checks that a failed import leaves
+ * nothing behind, that concurrent votes are all committed and counted, that a
+ * second vote by the same voter fails without failing the votes committed
+ * with it, and that saving candidates updates, inserts and deletes rows.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class JdbcStorageSmokeTest {
+
+    private static final int VOTERS = 400;
+    private static final int THREADS = 8;
+
+    private static int failures;
+
+    /**
+     * Main method to run the smoke test.
+     *
+     * @param args The JDBC URL of an empty database (default jdbc:h2:mem:smoke)
+     * @throws Exception if the database cannot be opened or a thread is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        String url = args.length > 0 ? args[0] : "jdbc:h2:mem:smoke";
+        System.out.println("==========================================");
+        System.out.println("JDBC STORAGE SMOKE TEST: " + url);
+        System.out.println("==========================================");
+
+        final JdbcStorage storage = new JdbcStorage(url, null, null);
+        check("New database reports that it is empty", storage.isCreated());
+
+        // Step 1: an import that fails part way must leave nothing behind
+        List<Voter> voters = new ArrayList<>();
+        for (int i = 0; i < VOTERS; i++) {
+            voters.add(new Voter("SMOKE" + i, "password"));
+        }
+        List<Candidate> candidates = Arrays.asList(
+                new Candidate("C1", "First", "President", 1),
+                new Candidate("C2", "Second", "President"),
+                new Candidate("C3", "Third", "Treasurer"));
+        List<VoteRecord> duplicated = Arrays.asList(
+                new VoteRecord("SMOKE0", "C1"), new VoteRecord("SMOKE0", "C2"));
+        try {
+            storage.importFrom(source(voters, candidates, duplicated));
+            check("Import with a duplicate vote fails", false);
+        } catch (SQLException e) {
+            check("Import with a duplicate vote fails", true);
+        }
+        check("Failed import leaves no administrators", storage.loadAdministrators().isEmpty());
+        check("Failed import leaves no candidates", storage.loadCandidates().isEmpty());
+        check("Failed import leaves no voters", storage.loadVoters().isEmpty());
+        check("Failed import leaves no votes", storage.getVotePosition() == 0);
+
+        // Step 2: a good import
+        voters.get(0).setHasVoted(true);
+        storage.importFrom(source(voters, candidates,
+                Collections.singletonList(new VoteRecord("SMOKE0", "C1"))));
+        check("Import copies the voters", storage.loadVoters().size() == VOTERS);
+        check("Import copies the vote", storage.getVotePosition() == 1);
+
+        // Step 3: every other voter votes, from several threads at once
+        final List<CompletableFuture<Void>> recorded = Collections.synchronizedList(
+                new ArrayList<CompletableFuture<Void>>());
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int first = t;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 1 + first; i < VOTERS; i += THREADS) {
+                        recorded.add(storage.recordVote(new VoteRecord("SMOKE" + i, i % 2 == 0 ? "C1" : "C2")));
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int committed = 0;
+        for (CompletableFuture<Void> future : recorded) {
+            try {
+                future.join();
+                committed++;
+            } catch (RuntimeException e) {
+                System.out.println("  - Vote failed: " + e.getMessage());
+            }
+        }
+        check("All concurrent votes are committed", committed == VOTERS - 1);
+        check("Vote position counts every vote", storage.getVotePosition() == VOTERS);
+        check("Candidate counts include every vote", totalVotes(storage.loadCandidates()) == VOTERS);
+        int flagged = 0;
+        for (Voter voter : storage.loadVoters()) {
+            flagged += voter.isHasVoted() ? 1 : 0;
+        }
+        check("Every voter is flagged", flagged == VOTERS);
+
+        // Step 4: a second vote fails on its own
+        CompletableFuture<Void> second = storage.recordVote(new VoteRecord("SMOKE1", "C1"));
+        for (Voter voter : voters) {
+            voter.setHasVoted(true);
+        }
+        voters.add(new Voter("SMOKENEW", "password"));
+        storage.saveVoters(voters, storage.getVotePosition());
+        CompletableFuture<Void> fresh = storage.recordVote(new VoteRecord("SMOKENEW", "C2"));
+        check("Second vote by a voter fails", waitFailed(second));
+        check("Vote queued with it is committed", !waitFailed(fresh));
+        check("Candidate counts exclude the failed vote", totalVotes(storage.loadCandidates()) == VOTERS + 1);
+
+        // Step 5: saving candidates updates, inserts and deletes rows in place
+        List<Candidate> stored = storage.loadCandidates();
+        List<Candidate> changed = new ArrayList<>();
+        for (Candidate candidate : stored) {
+            if (candidate.getCandidateId().equals("C1")) {
+                changed.add(new Candidate("C1", "First Renamed", "President", candidate.getVoteCount()));
+            } else if (!candidate.getCandidateId().equals("C3")) {
+                changed.add(candidate);
+            }
+        }
+        changed.add(new Candidate("C4", "Fourth", "Treasurer"));
+        check("Candidates are saved", storage.saveCandidates(changed, storage.getVotePosition()));
+        List<String> saved = new ArrayList<>();
+        for (Candidate candidate : storage.loadCandidates()) {
+            saved.add(candidate.getCandidateId() + ":" + candidate.getName());
+        }
+        check("Candidate rows are updated, inserted and deleted",
+                saved.equals(Arrays.asList("C1:First Renamed", "C2:Second", "C4:Fourth")));
+        check("Candidate counts survive the save", totalVotes(storage.loadCandidates()) == VOTERS + 1);
+
+        storage.close();
+        System.out.println("==========================================");
+        System.out.println(failures == 0 ? "**TEST PASSED: JDBC storage works against " + url + "**"
+                : "**TEST FAILED: " + failures + " check(s) failed**");
+        System.out.println("==========================================");
+    }
+
+    private static void check(String description, boolean passed) {
+        System.out.println("  " + (passed ? "✓ " : "✗ ") + description);
+        if (!passed) {
+            failures++;
+        }
+    }
+
+    /**
+     * Waits for a vote and checks whether it failed.
+     */
+    private static boolean waitFailed(CompletableFuture<Void> future) {
+        try {
+            future.join();
+            return false;
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private static int totalVotes(List<Candidate> candidates) {
+        int total = 0;
+        for (Candidate candidate : candidates) {
+            total += candidate.getVoteCount();
+        }
+        return total;
+    }
+
+    /**
+     * Creates a storage to import from that only answers the load methods.
+     */
+    private static Storage source(final List<Voter> voters, final List<Candidate> candidates,
+                                  final List<VoteRecord> voteRecords) {
+        return (Storage) Proxy.newProxyInstance(Storage.class.getClassLoader(), new Class<?>[] { Storage.class },
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        switch (method.getName()) {
+                            case "loadAdministrators":
+                                return Collections.singletonList(new Administrator("admin", "hash"));
+                            case "loadCandidates":
+                                return candidates;
+                            case "loadVoters":
+                                return voters;
+                            case "loadVoteRecords":
+                                return voteRecords;
+                            default:
+                                throw new UnsupportedOperationException(method.getName());
+                        }
+                    }
+                });
+    }
+}
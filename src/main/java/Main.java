@@ -1,10 +1,12 @@
+import controller.VoteAuditor;
 import model.Administrator;
-import utils.DataManager;
+import repository.AdministratorRepository;
+import repository.Repositories;
+import utils.AppConfig;
 import utils.PasswordUtils;
 import view.MainFrame;
 
 import javax.swing.*;
-import java.util.List;
 
 /**
  * Main entry point for the Online Voting System application.
@@ -35,17 +37,25 @@ public class Main {
     
     /**
      * Initializes the application data.
-     * Loads all data and ensures default administrator exists.
+     * Loads all data into the repositories and ensures default administrator exists.
      */
     private static void initializeApplication() {
-        // Load all data to validate CSV files exist
-        DataManager.loadVoters();
-        DataManager.loadCandidates();
-        DataManager.loadVoteRecords();
-        DataManager.loadAdministrators();
+        // Load all data once; controllers and panels read from the repositories
+        Repositories.initialize();
+        
+        // Write pending repository changes when the application exits
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Repositories.shutdown();
+            }
+        }, "repository-shutdown-flush"));
         
         // Ensure default admin exists
         ensureDefaultAdmin();
+        
+        // Verify the tally against the vote log in the background if requested
+        VoteAuditor.startPeriodicAudit(AppConfig.getLong("voting.audit.intervalSeconds", 0));
     }
     
     /**
@@ -53,22 +63,13 @@ public class Main {
      * Creates one if it doesn't exist.
      */
     private static void ensureDefaultAdmin() {
-        List<Administrator> administrators = DataManager.loadAdministrators();
-        
-        // Check if admin "admin" exists
-        boolean adminExists = false;
-        for (Administrator admin : administrators) {
-            if ("admin".equals(admin.getUsername())) {
-                adminExists = true;
-                break;
-            }
-        }
+        AdministratorRepository administratorRepository = AdministratorRepository.getInstance();
         
         // Create default admin if it doesn't exist
-        if (!adminExists) {
-            Administrator defaultAdmin = new Administrator("admin", "admin"); // Pass plain text password
-            administrators.add(defaultAdmin);
-            DataManager.saveAdministrators(administrators);
+        if (!administratorRepository.exists("admin")) {
+            Administrator defaultAdmin = new Administrator("admin", PasswordUtils.createHash("admin"));
+            administratorRepository.add(defaultAdmin);
+            administratorRepository.flush();
             System.out.println("Default administrator created: username='admin', password='admin'");
         }
     }
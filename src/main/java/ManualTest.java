@@ -2,6 +2,8 @@ import controller.Election;
 import controller.VotingController;
 import model.Candidate;
 import model.Voter;
+import repository.CandidateRepository;
+import repository.VoterRepository;
 
 /**
  * Manual test class for validating duplicate vote prevention (FR-C01).
@@ -28,9 +30,14 @@ public class ManualTest {
         System.out.println();
         
         // Step 1: Create test data
+        // Votes are only accepted for registered voters and candidates; the IDs are
+        // unique per run so that a vote journaled by an earlier run cannot interfere
         System.out.println("STEP 1: Creating test data...");
-        Voter testVoter = new Voter("TEST001", "testpassword");
-        Candidate testCandidate = new Candidate("CAND001", "Test Candidate", "Test Position");
+        String runId = Long.toString(System.currentTimeMillis(), 36).toUpperCase();
+        Voter testVoter = new Voter("TEST" + runId, "testpassword");
+        Candidate testCandidate = new Candidate("CAND" + runId, "Test Candidate", "Test Position");
+        VoterRepository.getInstance().add(testVoter);
+        CandidateRepository.getInstance().add(testCandidate);
         
         System.out.println("  - Voter created: ID=" + testVoter.getId() + ", hasVoted=" + testVoter.isHasVoted());
         System.out.println("  - Candidate created: ID=" + testCandidate.getCandidateId() + 
@@ -113,8 +120,10 @@ public class ManualTest {
         
         System.out.println("==========================================");
         
-        // Cleanup: Stop election
+        // Cleanup: Stop election and remove the test data
         election.stopElection();
+        VoterRepository.getInstance().delete(testVoter.getId());
+        CandidateRepository.getInstance().delete(testCandidate.getCandidateId());
         System.out.println("Election stopped. Test completed.");
     }
 }
@@ -0,0 +1,128 @@
+import model.Voter;
+import utils.CsvParser;
+import utils.ParallelCsvLoader;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Benchmark comparing a sequential CsvParser load of a generated voters.csv-style
+ * file with ParallelCsvLoader.
+ *
+ * Usage: java -cp out ParallelLoadBenchmark [rows] [rounds]
+ * Defaults to 5,000,000 rows (about 375 MB, written to the temp directory) and 3 rounds.
+ * The number of worker threads follows -Djava.util.concurrent.ForkJoinPool.common.parallelism.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class ParallelLoadBenchmark {
+
+    /**
+     * Main method to run the benchmark.
+     *
+     * @param args Optional row count and number of rounds
+     * @throws IOException if the benchmark file cannot be written or read
+     */
+    public static void main(String[] args) throws IOException {
+        long rows = args.length > 0 ? Long.parseLong(args[0]) : 5_000_000L;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        File file = File.createTempFile("voters-benchmark", ".csv");
+        file.deleteOnExit();
+
+        System.out.println("Generating " + rows + " rows in " + file + "...");
+        generate(file, rows);
+        System.out.println("File size: " + (file.length() / (1024 * 1024)) + " MB, "
+                + ForkJoinPool.getCommonPoolParallelism() + " worker thread(s)");
+        System.out.println();
+
+        long bestSequential = Long.MAX_VALUE;
+        long bestParallel = Long.MAX_VALUE;
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            int sequentialCount = loadSequential(file).size();
+            long sequentialMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            int parallelCount = loadParallel(file).size();
+            long parallelMillis = (System.nanoTime() - start) / 1_000_000;
+
+            if (sequentialCount != parallelCount) {
+                System.out.println("Row count mismatch: " + sequentialCount + " vs " + parallelCount);
+            }
+
+            System.out.println("Round " + round + ": sequential " + sequentialMillis + " ms, parallel " + parallelMillis + " ms");
+            bestSequential = Math.min(bestSequential, sequentialMillis);
+            bestParallel = Math.min(bestParallel, parallelMillis);
+        }
+
+        System.out.println();
+        System.out.println("Best sequential: " + bestSequential + " ms");
+        System.out.println("Best parallel:   " + bestParallel + " ms (speedup "
+                + String.format("%.2f", bestSequential / (double) Math.max(1, bestParallel)) + "x)");
+    }
+
+    /**
+     * Writes a voters.csv-style file.
+     */
+    private static void generate(File file, long rows) throws IOException {
+        String hash = "6b86b273ff34fce19d6b804eff5a3f5747ada4eaa22f1d49c01e52ddb7875b4b";
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file), 1 << 16)) {
+            writer.write("id,hasVoted,password");
+            writer.newLine();
+            for (long i = 1; i <= rows; i++) {
+                writer.write(Long.toString(i));
+                writer.write(i % 3 == 0 ? ",true," : ",false,");
+                writer.write(hash);
+                writer.newLine();
+            }
+        }
+    }
+
+    /**
+     * Loads the file on the caller's thread.
+     */
+    private static List<Voter> loadSequential(File file) throws IOException {
+        final List<Voter> voters = new ArrayList<>();
+        try (Reader reader = new FileReader(file)) {
+            new CsvParser().parse(reader, new CsvParser.RowHandler() {
+                @Override
+                public void handleRow(CsvParser.Row row) {
+                    if (row.index() == 0 || row.fieldCount() < 3) {
+                        return;
+                    }
+                    voters.add(toVoter(row));
+                }
+            });
+        }
+        return voters;
+    }
+
+    /**
+     * Loads the file with ParallelCsvLoader.
+     */
+    private static List<Voter> loadParallel(File file) throws IOException {
+        return ParallelCsvLoader.load(file, new ParallelCsvLoader.RowMapper<Voter>() {
+            @Override
+            public Voter map(CsvParser.Row row) {
+                return row.fieldCount() < 3 ? null : toVoter(row);
+            }
+        });
+    }
+
+    private static Voter toVoter(CsvParser.Row row) {
+        Voter voter = new Voter();
+        voter.setId(row.get(0));
+        voter.setHasVoted(row.getBoolean(1));
+        voter.setPassword(row.get(2));
+        return voter;
+    }
+}
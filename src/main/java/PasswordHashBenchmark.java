@@ -0,0 +1,105 @@
+import utils.PasswordUtils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Benchmark comparing the password hashing previously used by PasswordUtils
+ * (a new MessageDigest per call, platform charset, Integer.toHexString per
+ * byte) with the current PasswordUtils.hashPassword and hashPasswordBytes.
+ *
+ * Usage: java -cp out PasswordHashBenchmark [passwords] [rounds]
+ * Defaults to 2,000,000 passwords and 3 rounds.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class PasswordHashBenchmark {
+
+    /**
+     * Main method to run the benchmark.
+     *
+     * @param args Optional password count and number of rounds
+     * @throws NoSuchAlgorithmException if SHA-256 is not available
+     */
+    public static void main(String[] args) throws NoSuchAlgorithmException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+
+        String[] passwords = new String[count];
+        for (int i = 0; i < count; i++) {
+            passwords[i] = "password" + i;
+        }
+
+        // Both implementations must agree before their speed matters
+        for (int i = 0; i < Math.min(count, 1000); i++) {
+            if (!hashPasswordOld(passwords[i]).equals(PasswordUtils.hashPassword(passwords[i]))) {
+                System.out.println("Hash mismatch for " + passwords[i]);
+                return;
+            }
+        }
+
+        long bestOld = Long.MAX_VALUE;
+        long bestHex = Long.MAX_VALUE;
+        long bestBytes = Long.MAX_VALUE;
+        long checksum = 0;
+        for (int round = 1; round <= rounds; round++) {
+            long start = System.nanoTime();
+            for (String password : passwords) {
+                checksum += hashPasswordOld(password).charAt(0);
+            }
+            long oldMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            for (String password : passwords) {
+                checksum += PasswordUtils.hashPassword(password).charAt(0);
+            }
+            long hexMillis = (System.nanoTime() - start) / 1_000_000;
+
+            start = System.nanoTime();
+            for (String password : passwords) {
+                checksum += PasswordUtils.hashPasswordBytes(password)[0];
+            }
+            long bytesMillis = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println("Round " + round + ": previous " + oldMillis + " ms, hashPassword " + hexMillis
+                    + " ms, hashPasswordBytes " + bytesMillis + " ms");
+            bestOld = Math.min(bestOld, oldMillis);
+            bestHex = Math.min(bestHex, hexMillis);
+            bestBytes = Math.min(bestBytes, bytesMillis);
+        }
+
+        System.out.println();
+        System.out.println("Best previous:          " + bestOld + " ms (" + nanosPerHash(bestOld, count) + " ns/hash)");
+        System.out.println("Best hashPassword:      " + bestHex + " ms (" + nanosPerHash(bestHex, count)
+                + " ns/hash, speedup " + speedup(bestOld, bestHex) + "x)");
+        System.out.println("Best hashPasswordBytes: " + bestBytes + " ms (" + nanosPerHash(bestBytes, count)
+                + " ns/hash, speedup " + speedup(bestOld, bestBytes) + "x)");
+        System.out.println("(checksum " + checksum + ")");
+    }
+
+    /**
+     * The previous PasswordUtils.hashPassword.
+     */
+    private static String hashPasswordOld(String plainText) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hashBytes = digest.digest(plainText.getBytes());
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hashBytes) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return hexString.toString();
+    }
+
+    private static long nanosPerHash(long millis, int count) {
+        return millis * 1_000_000 / Math.max(1, count);
+    }
+
+    private static String speedup(long before, long after) {
+        return String.format("%.2f", before / (double) Math.max(1, after));
+    }
+}
@@ -2,26 +2,45 @@ package controller;
 
 import model.Candidate;
 import model.Voter;
-import utils.DataManager;
+import repository.CandidateRepository;
+import repository.VoterRepository;
+import utils.CsvParser;
+import storage.Storage;
+import storage.StorageFactory;
+import utils.LedgerReport;
+import utils.MerkleLog;
+import utils.PasswordHasher;
 import utils.PasswordUtils;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Date; // Added for election date management
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 
 /**
  * Handles administrator operations for managing candidates.
- * All operations are synchronized with CSV files via DataManager.
+ * All operations go through the in-memory repositories, which write changes
+ * back to the configured storage.
  * 
  * @author Online Voting System
  * @version 1.0
  */
 public class AdministratorController {
     
+    /**
+     * Imported passwords hashed by one task on the hashing pool.
+     */
+    private static final int HASH_CHUNK = 64;
+    
     /**
      * Adds a new candidate to the system.
      * 
@@ -35,24 +54,9 @@ public class AdministratorController {
             return false;
         }
         
-        // Load existing candidates
-        List<Candidate> candidates = DataManager.loadCandidates();
-        
-        // Check if candidate ID already exists
-        for (Candidate candidate : candidates) {
-            if (candidate.getCandidateId().equals(candidateId)) {
-                return false; // Candidate ID already exists
-            }
-        }
-        
-        // Create new candidate
+        // Create new candidate; rejected if the candidate ID already exists
         Candidate newCandidate = new Candidate(candidateId, name, position);
-        candidates.add(newCandidate);
-        
-        // Save to CSV
-        DataManager.saveCandidates(candidates);
-        
-        return true;
+        return CandidateRepository.getInstance().add(newCandidate);
     }
     
     /**
@@ -68,24 +72,19 @@ public class AdministratorController {
             return false;
         }
         
-        // Load existing candidates
-        List<Candidate> candidates = DataManager.loadCandidates();
-        
         // Find and update candidate
-        for (int i = 0; i < candidates.size(); i++) {
-            Candidate candidate = candidates.get(i);
-            if (candidate.getCandidateId().equals(candidateId)) {
-                // Update candidate information (preserve vote count)
-                candidate.setName(name);
-                candidate.setPosition(position);
-                
-                // Save to CSV
-                DataManager.saveCandidates(candidates);
-                return true;
-            }
+        CandidateRepository candidateRepository = CandidateRepository.getInstance();
+        Candidate candidate = candidateRepository.findById(candidateId);
+        if (candidate == null) {
+            return false; // Candidate not found
         }
         
-        return false; // Candidate not found
+        // Update candidate information (preserve vote count)
+        candidate.setName(name);
+        candidate.setPosition(position);
+        candidateRepository.markDirty();
+        
+        return true;
     }
     
     /**
@@ -99,32 +98,14 @@ public class AdministratorController {
             return false;
         }
         
-        // Load existing candidates
-        List<Candidate> candidates = DataManager.loadCandidates();
-        
         // Find and remove candidate
-        List<Candidate> updatedCandidates = new ArrayList<>();
-        boolean found = false;
-        
-        for (Candidate candidate : candidates) {
-            if (!candidate.getCandidateId().equals(candidateId)) {
-                updatedCandidates.add(candidate);
-            } else {
-                found = true;
-            }
-        }
-        
-        if (found) {
-            // Save updated list to CSV
-            DataManager.saveCandidates(updatedCandidates);
-            return true;
-        }
-        
-        return false; // Candidate not found
+        return CandidateRepository.getInstance().delete(candidateId);
     }
     
     /**
      * Adds a new voter to the system.
+     * Hashes the password on the caller's thread; use
+     * {@link #addVoterAsync(String, String)} from the EDT.
      * 
      * @param voterId The unique identifier for the voter
      * @param password The plain text password (will be hashed)
@@ -135,27 +116,53 @@ public class AdministratorController {
             return false;
         }
         
-        // Load existing voters
-        List<Voter> voters = DataManager.loadVoters();
-        
         // Check if voter ID already exists
-        for (Voter voter : voters) {
-            if (voter.getId().equals(voterId.trim())) {
-                return false; // Voter ID already exists
-            }
+        VoterRepository voterRepository = VoterRepository.getInstance();
+        if (voterRepository.exists(voterId.trim())) {
+            return false; // Voter ID already exists
         }
         
-        // Hash the password
-        String hashedPassword = PasswordUtils.hashPassword(password);
-        
         // Create new voter
-        Voter newVoter = new Voter(voterId.trim(), hashedPassword);
-        voters.add(newVoter);
+        Voter newVoter = new Voter(voterId.trim(), hashVoterPassword(voterRepository, password));
+        return voterRepository.add(newVoter);
+    }
+    
+    /**
+     * Adds a new voter with the password hashed on the password hashing pool,
+     * so the caller is not held up by the key derivation.
+     * 
+     * @param voterId The unique identifier for the voter
+     * @param password The plain text password (will be hashed)
+     * @return A future of true if the voter was added, false if the input is
+     *         invalid or the ID exists; completed exceptionally with a
+     *         RejectedExecutionException if the hashing pool is saturated
+     */
+    public CompletableFuture<Boolean> addVoterAsync(String voterId, final String password) {
+        if (voterId == null || password == null || voterId.trim().isEmpty() || password.trim().isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
         
-        // Save to CSV
-        DataManager.saveVoters(voters);
+        final String id = voterId.trim();
+        final VoterRepository voterRepository = VoterRepository.getInstance();
+        if (voterRepository.exists(id)) {
+            return CompletableFuture.completedFuture(false); // Voter ID already exists
+        }
         
-        return true;
+        return PasswordHasher.getInstance().submit(new Supplier<Boolean>() {
+            @Override
+            public Boolean get() {
+                // add() rejects the ID if it was registered while hashing
+                return voterRepository.add(new Voter(id, hashVoterPassword(voterRepository, password)));
+            }
+        });
+    }
+    
+    /**
+     * Hashes a new voter password in the format the voter store keeps.
+     */
+    private static String hashVoterPassword(VoterRepository voterRepository, String password) {
+        return voterRepository.storesSaltedHashes()
+                ? PasswordUtils.createHash(password) : PasswordUtils.hashPassword(password);
     }
     
     /**
@@ -169,34 +176,16 @@ public class AdministratorController {
             return false;
         }
         
-        // Load existing voters
-        List<Voter> voters = DataManager.loadVoters();
-        
         // Find and remove voter
-        List<Voter> updatedVoters = new ArrayList<>();
-        boolean found = false;
-        
-        for (Voter voter : voters) {
-            if (!voter.getId().equals(voterId.trim())) {
-                updatedVoters.add(voter);
-            } else {
-                found = true;
-            }
-        }
-        
-        if (found) {
-            // Save updated list to CSV
-            DataManager.saveVoters(updatedVoters);
-            return true;
-        }
-        
-        return false; // Voter not found
+        return VoterRepository.getInstance().delete(voterId.trim());
     }
     
     /**
      * Imports voters from a CSV file (FR-A07).
      * Expected format: Header row "voterId,password" followed by data rows.
      * Duplicate voterIds are skipped to preserve existing voting records.
+     * Passwords are hashed on the password hashing pool, so this takes a
+     * while for large files and should not be called on the EDT.
      * 
      * @param file The CSV file to import from
      * @return A summary string indicating success and duplicate count
@@ -207,79 +196,26 @@ public class AdministratorController {
             throw new IOException("File does not exist or is null");
         }
 
-        // Load existing voters
-        List<Voter> existingVoters = DataManager.loadVoters();
+        // Existing voter IDs are checked against the repository index
+        VoterRepository voterRepository = VoterRepository.getInstance();
+        VoterImportHandler handler = new VoterImportHandler(voterRepository);
 
-        // Create a set of existing voter IDs for quick lookup
-        java.util.Set<String> existingIds = new java.util.HashSet<>();
-        for (Voter voter : existingVoters) {
-            existingIds.add(voter.getId());
+        try (Reader reader = new FileReader(file)) {
+            new CsvParser().parse(reader, handler);
         }
 
-        int importedCount = 0;
-        int duplicateCount = 0;
-        int errorCount = 0;
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line = reader.readLine(); // Read header
-
-            // Validate header
-            if (line == null || !line.trim().toLowerCase().startsWith("id,hasvoted,password")) {
-                throw new IOException("Invalid CSV format. Expected header: id,hasVoted,password");
-            }
-
-            // Read data rows
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue; // Skip empty lines
-                }
-
-                try {
-                    String[] parts = line.split(",");
-                    if (parts.length < 3) {
-                        errorCount++;
-                        System.err.println("Error processing voter CSV line (insufficient parts): " + line);
-                        continue;
-                    }
-
-                    String voterId = parts[0].trim();
-                    boolean hasVoted = Boolean.parseBoolean(parts[1].trim());
-                    String plainPassword = parts[2].trim();
-
-                    // Skip if voterId or plainPassword is empty
-                    if (voterId.isEmpty() || plainPassword.isEmpty()) {
-                        errorCount++;
-                        System.err.println("Error processing voter CSV line (empty voterId or password): " + line);
-                        continue;
-                    }
-
-                    // Check for duplicates (preserve existing voter data)
-                    if (existingIds.contains(voterId)) {
-                        duplicateCount++;
-                        continue; // Skip duplicate, preserve existing hasVoted status
-                    }
-
-                    // Hash the password
-                    String hashedPassword = PasswordUtils.hashPassword(plainPassword);
-
-                    // Create new voter
-                    Voter newVoter = new Voter(voterId, hashedPassword);
-                    newVoter.setHasVoted(hasVoted);
-                    existingVoters.add(newVoter);
-                    existingIds.add(voterId); // Add to set to prevent duplicates in same import
-
-                    importedCount++;
-                } catch (Exception e) {
-                    errorCount++;
-                    System.err.println("Error processing voter CSV line: " + line);
-                    e.printStackTrace(); // Print stack trace
-                    // Continue processing other lines
-                }
-            }
+        // Validate header (also rejects an empty file)
+        if (!handler.headerValid) {
+            throw new IOException("Invalid CSV format. Expected header: id,hasVoted,password");
         }
 
-        // Save all voters (existing + new)
-        DataManager.saveVoters(existingVoters);
+        hashPasswords(handler.newVoters, handler.passwords, voterRepository.storesSaltedHashes());
+        
+        // Add all new voters; existing voters are left untouched
+        voterRepository.addAll(handler.newVoters);
+        int importedCount = handler.importedCount;
+        int duplicateCount = handler.duplicateCount;
+        int errorCount = handler.errorCount;
 
         // Build summary message
         StringBuilder summary = new StringBuilder();
@@ -325,21 +261,25 @@ public class AdministratorController {
         Election election = Election.getInstance();
         if (election.getStatus() == Election.ElectionStatus.CLOSED && election.getStartDate() != null && election.getEndDate() != null) {
             // Reset vote counts for all candidates
-            List<Candidate> candidates = DataManager.loadCandidates();
-            for (Candidate candidate : candidates) {
+            CandidateRepository candidateRepository = CandidateRepository.getInstance();
+            for (Candidate candidate : candidateRepository.findAll()) {
                 candidate.setVoteCount(0);
             }
-            DataManager.saveCandidates(candidates);
+            candidateRepository.markDirty();
             
             // Reset voting status for all voters
-            List<Voter> voters = DataManager.loadVoters();
-            for (Voter voter : voters) {
+            VoterRepository voterRepository = VoterRepository.getInstance();
+            for (Voter voter : voterRepository.findAll()) {
                 voter.setHasVoted(false);
             }
-            DataManager.saveVoters(voters);
+            voterRepository.markDirty();
+            
+            // The reset state must be stored before the recorded votes are cleared
+            candidateRepository.flush();
+            voterRepository.flush();
             
             // Clear vote records for the new election
-            DataManager.saveVoteRecords(new ArrayList<>());
+            StorageFactory.getStorage().clearVotes();
             
             // Start the election
             election.startElection();
@@ -383,5 +323,195 @@ public class AdministratorController {
     public List<Candidate> calculateTally() {
         return Election.getInstance().calculateTally();
     }
-}
 
+    /**
+     * Calculates and returns the current vote tally of one position.
+     *
+     * @param position The position to tally, in any letter case
+     * @return List of the position's candidates sorted by vote count (highest first)
+     */
+    public List<Candidate> calculateTally(String position) {
+        return Election.getInstance().calculateTally(position);
+    }
+
+    /**
+     * Recomputes the tally from the recorded votes and compares it with the
+     * candidates' counts.
+     *
+     * @return The audit report with discrepancies, orphan candidate IDs and duplicate voters
+     */
+    public AuditReport auditVotes() {
+        return new VoteAuditor().audit();
+    }
+
+    /**
+     * Checks the recorded votes for tampering against the vote ledger.
+     *
+     * @return The verification report, or null if the storage backend keeps no ledger
+     */
+    public LedgerReport verifyVoteLedger() {
+        return StorageFactory.getStorage().verifyVoteLedger();
+    }
+
+    /**
+     * Proves that a voter's vote is in the vote log, with O(log n) hashes
+     * from the persisted Merkle tree. The leaf is found through the tree's
+     * leaf index, so the journal is not read.
+     *
+     * @param voterId The voter ID
+     * @return The inclusion proof for the current log size, or null if the
+     *         voter's vote is not in the log (yet) or the backend keeps no tree
+     * @throws IOException if the tree cannot be read
+     */
+    public LogProof proveVoteIncluded(String voterId) throws IOException {
+        Storage storage = StorageFactory.getStorage();
+        MerkleLog log = storage.getVoteLog();
+        long leafIndex = storage.getVoteLogIndex(voterId);
+        if (log == null || leafIndex < 0) {
+            return null;
+        }
+        // The tree keeps growing; every part of the proof is for one size
+        long treeSize = log.size();
+        return LogProof.inclusion(leafIndex, log.leafHash(leafIndex), treeSize, log.rootHash(treeSize),
+                log.inclusionProof(leafIndex, treeSize));
+    }
+
+    /**
+     * Proves that the vote log an auditor saw earlier is a prefix of the
+     * current one, so no vote was removed or changed since.
+     *
+     * @param oldSize The log size the auditor saw, from LogProof.getTreeSize
+     * @param oldRoot The root hash the auditor saw at that size
+     * @return The consistency proof for the current log size; it only verifies
+     *         if oldRoot is the root the log really had. Null if the backend
+     *         keeps no tree or the log is smaller than oldSize
+     * @throws IOException if the tree cannot be read
+     */
+    public LogProof proveLogConsistency(long oldSize, byte[] oldRoot) throws IOException {
+        MerkleLog log = StorageFactory.getStorage().getVoteLog();
+        if (log == null || oldSize < 1) {
+            return null;
+        }
+        long treeSize = log.size();
+        if (oldSize > treeSize) {
+            return null;
+        }
+        return LogProof.consistency(oldSize, oldRoot, treeSize, log.rootHash(treeSize),
+                log.consistencyProof(oldSize, treeSize));
+    }
+
+    /**
+     * Hashes the passwords of imported voters on the password hashing pool.
+     * At most two chunks per hashing thread are outstanding, which keeps every
+     * thread busy without filling the queue that logins share.
+     *
+     * @param voters The voters, whose passwords are set
+     * @param passwords The plain text passwords, in the order of voters
+     * @param salted Whether to create salted hashes rather than legacy SHA-256 ones
+     * @throws IOException if the hashing pool rejects or fails a chunk
+     */
+    private static void hashPasswords(final List<Voter> voters, final List<String> passwords, final boolean salted)
+            throws IOException {
+        PasswordHasher hasher = PasswordHasher.getInstance();
+        int maxOutstanding = hasher.getThreadCount() * 2;
+        ArrayDeque<CompletableFuture<Void>> outstanding = new ArrayDeque<>();
+        for (int start = 0; start < voters.size(); start += HASH_CHUNK) {
+            final int from = start;
+            final int to = Math.min(voters.size(), start + HASH_CHUNK);
+            if (outstanding.size() >= maxOutstanding) {
+                awaitHashing(outstanding.poll());
+            }
+            outstanding.add(hasher.submit(new Supplier<Void>() {
+                @Override
+                public Void get() {
+                    for (int i = from; i < to; i++) {
+                        String password = passwords.get(i);
+                        voters.get(i).setPassword(salted
+                                ? PasswordUtils.createHash(password) : PasswordUtils.hashPassword(password));
+                    }
+                    return null;
+                }
+            }));
+        }
+        while (!outstanding.isEmpty()) {
+            awaitHashing(outstanding.poll());
+        }
+    }
+
+    private static void awaitHashing(CompletableFuture<Void> chunk) throws IOException {
+        try {
+            chunk.join();
+        } catch (CompletionException e) {
+            throw new IOException("Password hashing failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Collects new voters from the rows of an import file (FR-A07).
+     * Passwords are kept in plain text alongside until they are hashed.
+     */
+    private static class VoterImportHandler implements CsvParser.RowHandler {
+        private final VoterRepository voterRepository;
+        private final List<Voter> newVoters = new ArrayList<>();
+        private final List<String> passwords = new ArrayList<>();
+        private final Set<String> importedIds = new HashSet<>();
+        private boolean headerValid;
+        private int importedCount;
+        private int duplicateCount;
+        private int errorCount;
+
+        VoterImportHandler(VoterRepository voterRepository) {
+            this.voterRepository = voterRepository;
+        }
+
+        @Override
+        public void handleRow(CsvParser.Row row) throws IOException {
+            if (row.index() == 0) {
+                headerValid = row.fieldCount() >= 3
+                        && row.fieldEqualsIgnoreCase(0, "id")
+                        && row.fieldEqualsIgnoreCase(1, "hasVoted")
+                        && row.fieldEqualsIgnoreCase(2, "password");
+                if (!headerValid) {
+                    throw new IOException("Invalid CSV format. Expected header: id,hasVoted,password");
+                }
+                return;
+            }
+
+            try {
+                if (row.fieldCount() < 3) {
+                    errorCount++;
+                    System.err.println("Error processing voter CSV line (insufficient parts): " + row);
+                    return;
+                }
+
+                // Skip if voterId or plainPassword is empty
+                if (row.length(0) == 0 || row.length(2) == 0) {
+                    errorCount++;
+                    System.err.println("Error processing voter CSV line (empty voterId or password): " + row);
+                    return;
+                }
+
+                // Check for duplicates (preserve existing voter data)
+                String voterId = row.get(0);
+                if (voterRepository.exists(voterId) || importedIds.contains(voterId)) {
+                    duplicateCount++;
+                    return; // Skip duplicate, preserve existing hasVoted status
+                }
+
+                // Create new voter; the password is hashed once all rows are read
+                Voter newVoter = new Voter(voterId, "");
+                newVoter.setHasVoted(row.getBoolean(1));
+                newVoters.add(newVoter);
+                passwords.add(row.get(2));
+                importedIds.add(voterId); // Add to set to prevent duplicates in same import
+
+                importedCount++;
+            } catch (Exception e) {
+                errorCount++;
+                System.err.println("Error processing voter CSV line: " + row);
+                e.printStackTrace(); // Print stack trace
+                // Continue processing other lines
+            }
+        }
+    }
+}
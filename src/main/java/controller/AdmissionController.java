@@ -0,0 +1,225 @@
+package controller;
+
+import utils.AppConfig;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Admission control in front of the vote path.
+ * At most a fixed number of votes are in flight (validated but not yet
+ * durable); further votes wait in a bounded FIFO queue, and votes beyond the
+ * queue are rejected at once with a retry-after hint. This keeps the latency
+ * of admitted votes bounded during bursts instead of slowing everyone down.
+ *
+ * Limits are set with -Dvoting.admission.maxInFlight (default 512),
+ * -Dvoting.admission.maxQueued (default 4096) and
+ * -Dvoting.admission.retryAfterMillis (the smallest hint, default 500).
+ *
+ * Queued votes are started on the common fork-join pool, never on the thread
+ * that completed the previous vote, because that may be the journal writer.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class AdmissionController {
+
+    private static AdmissionController instance;
+
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long minRetryAfterMillis;
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private int inFlight;
+
+    private final LongAdder admittedCount = new LongAdder();
+    private final LongAdder queuedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Moving average of the time from admission to completion, in nanoseconds.
+     */
+    private final AtomicLong averageServiceNanos = new AtomicLong();
+
+    /**
+     * Creates an admission controller.
+     *
+     * @param maxInFlight The most votes processed at once
+     * @param maxQueued The most votes waiting for admission
+     * @param minRetryAfterMillis The smallest retry-after hint given to rejected votes
+     */
+    public AdmissionController(int maxInFlight, int maxQueued, long minRetryAfterMillis) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.minRetryAfterMillis = Math.max(0, minRetryAfterMillis);
+    }
+
+    /**
+     * Gets the admission controller of the vote path.
+     *
+     * @return The shared AdmissionController instance
+     */
+    public static synchronized AdmissionController getInstance() {
+        if (instance == null) {
+            instance = new AdmissionController(
+                    AppConfig.getInt("voting.admission.maxInFlight", 512),
+                    AppConfig.getInt("voting.admission.maxQueued", 4096),
+                    AppConfig.getLong("voting.admission.retryAfterMillis", 500));
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a task once it is admitted.
+     * The task runs at once if fewer than the maximum tasks are in flight, later
+     * if there is room in the queue, and not at all otherwise. It stays in flight
+     * until the future it returns completes.
+     *
+     * @param task Starts the work and returns a future of its completion
+     * @param <T> The result type
+     * @return A future of the task's result, or a future already completed
+     *         exceptionally with a VoteRejectedException if the task was rejected
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<CompletableFuture<T>> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = new Runnable() {
+            @Override
+            public void run() {
+                start(task, result);
+            }
+        };
+
+        synchronized (this) {
+            if (inFlight >= maxInFlight) {
+                if (queue.size() >= maxQueued) {
+                    rejectedCount.increment();
+                    result.completeExceptionally(new VoteRejectedException(retryAfterMillis()));
+                    return result;
+                }
+                queuedCount.increment();
+                queue.add(start);
+                return result;
+            }
+            inFlight++;
+        }
+        start.run();
+        return result;
+    }
+
+    /**
+     * Runs an admitted task and releases its slot when it completes.
+     */
+    private <T> void start(Supplier<CompletableFuture<T>> task, final CompletableFuture<T> result) {
+        admittedCount.increment();
+        final long started = System.nanoTime();
+        CompletableFuture<T> work;
+        try {
+            work = task.get();
+        } catch (RuntimeException e) {
+            release(started);
+            result.completeExceptionally(e);
+            return;
+        }
+
+        work.whenComplete(new BiConsumer<T, Throwable>() {
+            @Override
+            public void accept(T value, Throwable failure) {
+                release(started);
+                if (failure != null) {
+                    result.completeExceptionally(failure);
+                } else {
+                    result.complete(value);
+                }
+            }
+        });
+    }
+
+    /**
+     * Hands the slot of a finished task to the next queued task, or frees it.
+     */
+    private void release(long started) {
+        long elapsed = System.nanoTime() - started;
+        long average = averageServiceNanos.get();
+        averageServiceNanos.lazySet(average == 0 ? elapsed : average + (elapsed - average) / 8);
+
+        Runnable next;
+        synchronized (this) {
+            next = queue.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+        }
+        ForkJoinPool.commonPool().execute(next);
+    }
+
+    /**
+     * Estimates when a rejected vote is likely to be admitted: the time to work
+     * off the queue at the observed service rate, but never less than the floor.
+     */
+    private long retryAfterMillis() {
+        long rounds = queue.size() / maxInFlight + 1;
+        long estimate = TimeUnit.NANOSECONDS.toMillis(averageServiceNanos.get() * rounds);
+        return Math.max(minRetryAfterMillis, estimate);
+    }
+
+    /**
+     * Gets the number of votes currently being processed.
+     *
+     * @return The in-flight count
+     */
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    /**
+     * Gets the number of votes waiting for admission.
+     *
+     * @return The queue depth
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Gets the number of votes admitted since startup.
+     *
+     * @return The admitted count
+     */
+    public long getAdmittedCount() {
+        return admittedCount.sum();
+    }
+
+    /**
+     * Gets the number of votes that had to wait in the queue since startup.
+     *
+     * @return The queued count
+     */
+    public long getQueuedCount() {
+        return queuedCount.sum();
+    }
+
+    /**
+     * Gets the number of votes rejected because the queue was full since startup.
+     *
+     * @return The rejected count
+     */
+    public long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    /**
+     * Gets the average time from admission until a vote is durable.
+     *
+     * @return The moving average in milliseconds
+     */
+    public double getAverageServiceMillis() {
+        return averageServiceNanos.get() / 1_000_000.0;
+    }
+}
@@ -0,0 +1,167 @@
+package controller;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a tally audit by {@link VoteAuditor}: vote counts recomputed from
+ * the recorded votes, compared with the counts the candidates hold.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class AuditReport {
+
+    /**
+     * A candidate whose held count differs from the recomputed count.
+     */
+    public static class Discrepancy {
+        private final String candidateId;
+        private final long storedCount;
+        private final long recomputedCount;
+
+        Discrepancy(String candidateId, long storedCount, long recomputedCount) {
+            this.candidateId = candidateId;
+            this.storedCount = storedCount;
+            this.recomputedCount = recomputedCount;
+        }
+
+        /**
+         * Gets the candidate ID.
+         *
+         * @return The candidate ID
+         */
+        public String getCandidateId() {
+            return candidateId;
+        }
+
+        /**
+         * Gets the count held by the candidate.
+         *
+         * @return The count from Candidate.getVoteCount
+         */
+        public long getStoredCount() {
+            return storedCount;
+        }
+
+        /**
+         * Gets the count recomputed from the recorded votes.
+         *
+         * @return The number of recorded votes for the candidate
+         */
+        public long getRecomputedCount() {
+            return recomputedCount;
+        }
+
+        @Override
+        public String toString() {
+            return candidateId + ": stored " + storedCount + ", recorded " + recomputedCount;
+        }
+    }
+
+    private final long votePosition;
+    private final long recordCount;
+    private final long elapsedMillis;
+    private final Map<String, Long> recomputedCounts;
+    private final List<Discrepancy> discrepancies;
+    private final Map<String, Long> orphanCandidates;
+    private final Map<String, Integer> duplicateVoters;
+
+    AuditReport(long votePosition, long recordCount, long elapsedMillis, Map<String, Long> recomputedCounts,
+                List<Discrepancy> discrepancies, Map<String, Long> orphanCandidates,
+                Map<String, Integer> duplicateVoters) {
+        this.votePosition = votePosition;
+        this.recordCount = recordCount;
+        this.elapsedMillis = elapsedMillis;
+        this.recomputedCounts = Collections.unmodifiableMap(recomputedCounts);
+        this.discrepancies = Collections.unmodifiableList(discrepancies);
+        this.orphanCandidates = Collections.unmodifiableMap(orphanCandidates);
+        this.duplicateVoters = Collections.unmodifiableMap(duplicateVoters);
+    }
+
+    /**
+     * Gets the vote log position the audit covers.
+     *
+     * @return The position from Storage.getVotePosition
+     */
+    public long getVotePosition() {
+        return votePosition;
+    }
+
+    /**
+     * Gets the number of vote records read.
+     *
+     * @return The record count
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets how long the audit took.
+     *
+     * @return The duration in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the vote count of every candidate ID found in the records.
+     *
+     * @return Map from candidate ID to its number of recorded votes
+     */
+    public Map<String, Long> getRecomputedCounts() {
+        return recomputedCounts;
+    }
+
+    /**
+     * Gets the candidates whose held count differs from the recorded votes.
+     *
+     * @return The discrepancies, ordered by candidate ID
+     */
+    public List<Discrepancy> getDiscrepancies() {
+        return discrepancies;
+    }
+
+    /**
+     * Gets the candidate IDs that have recorded votes but no candidate.
+     *
+     * @return Map from orphan candidate ID to its number of recorded votes
+     */
+    public Map<String, Long> getOrphanCandidates() {
+        return orphanCandidates;
+    }
+
+    /**
+     * Gets the voter IDs recorded more than once.
+     *
+     * @return Map from voter ID to the number of its records
+     */
+    public Map<String, Integer> getDuplicateVoters() {
+        return duplicateVoters;
+    }
+
+    /**
+     * Checks whether the audit found no problem.
+     *
+     * @return true if there are no discrepancies, orphans or duplicates
+     */
+    public boolean isClean() {
+        return discrepancies.isEmpty() && orphanCandidates.isEmpty() && duplicateVoters.isEmpty();
+    }
+
+    /**
+     * Summarizes the report on one line.
+     *
+     * @return The summary
+     */
+    @Override
+    public String toString() {
+        return "Audited " + recordCount + " vote record(s) in " + elapsedMillis + " ms: "
+                + discrepancies.size() + " discrepancy(ies), "
+                + orphanCandidates.size() + " orphan candidate ID(s), "
+                + duplicateVoters.size() + " duplicate voter ID(s)";
+    }
+}
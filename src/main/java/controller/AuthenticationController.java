@@ -2,10 +2,13 @@ package controller;
 
 import model.Administrator;
 import model.Voter;
-import utils.DataManager;
+import repository.AdministratorRepository;
+import repository.VoterRepository;
+import utils.PasswordHasher;
 import utils.PasswordUtils;
 
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 /**
  * Handles authentication operations for both administrators and voters.
@@ -17,12 +20,14 @@ public class AuthenticationController {
     
     /**
      * Result object returned by the authenticate method.
-     * Contains authentication status, user type, and user object.
+     * Contains authentication status, user type, user object and, after a
+     * successful login, the token of the new session.
      */
     public static class AuthenticationResult {
         private boolean success;
         private String userType;
         private Object user;
+        private String sessionToken;
         
         /**
          * Constructor for AuthenticationResult.
@@ -37,6 +42,18 @@ public class AuthenticationController {
             this.user = user;
         }
         
+        /**
+         * Constructor for a successful AuthenticationResult with a session.
+         * 
+         * @param userType The type of user ("ADMIN" or "VOTER")
+         * @param user The authenticated user object (Administrator or Voter)
+         * @param sessionToken The token of the session started by the login
+         */
+        public AuthenticationResult(String userType, Object user, String sessionToken) {
+            this(true, userType, user);
+            this.sessionToken = sessionToken;
+        }
+        
         /**
          * Checks if authentication was successful.
          * 
@@ -63,44 +80,146 @@ public class AuthenticationController {
         public Object getUser() {
             return user;
         }
+        
+        /**
+         * Gets the token of the session started by the login. Later requests
+         * pass it instead of the password, see {@link SessionManager}.
+         * 
+         * @return The session token, or null if authentication failed
+         */
+        public String getSessionToken() {
+            return sessionToken;
+        }
     }
     
+    /**
+     * Stands in for the hash of an unknown account, so a login for an unknown
+     * user takes as long as one with a wrong password.
+     */
+    private static final String UNKNOWN_ACCOUNT_HASH = PasswordUtils.createHash("unknown account");
+    
     /**
      * Authenticates a user (administrator or voter) based on username and password.
-     * Uses SHA-256 hashing for password comparison.
+     * Each account type is one lookup in its repository's credential index;
+     * the password is verified against the salted hash, or the legacy SHA-256
+     * hash, in constant time. A legacy or weaker hash is replaced after a
+     * successful login. A successful login starts a session whose token
+     * authorizes later requests without the password. Hashing is slow by
+     * design, so UI code should use {@link #authenticateAsync} instead.
+     * 
+     * Attempts first pass the {@link LoginThrottle}, which refuses them
+     * without hashing while the username is locked out or too many logins
+     * are being attempted.
      * 
      * @param username The username or voter ID
      * @param password The plain text password
-     * @return AuthenticationResult containing success status, user type, and user object
+     * @return AuthenticationResult containing success status, user type, user object and session token
+     * @throws LoginThrottledException if the attempt was refused by the login throttle
      */
     public AuthenticationResult authenticate(String username, String password) {
         if (username == null || password == null) {
             return new AuthenticationResult(false, null, null);
         }
         
-        // Hash the provided password
-        String hashedPassword = PasswordUtils.hashPassword(password);
+        long admittedAt = LoginThrottle.getInstance().admit(username);
+        return verify(username, password, admittedAt);
+    }
+    
+    /**
+     * Authenticates a user on the password hashing pool. The login throttle
+     * is checked on the caller's thread, so refused attempts never occupy
+     * the pool.
+     * 
+     * @param username The username or voter ID
+     * @param password The plain text password
+     * @return A future of the AuthenticationResult, completed exceptionally
+     *         with a LoginThrottledException if the login throttle refused the
+     *         attempt, or with a RejectedExecutionException if too many logins
+     *         are waiting
+     */
+    public CompletableFuture<AuthenticationResult> authenticateAsync(final String username, final String password) {
+        if (username == null || password == null) {
+            return CompletableFuture.completedFuture(new AuthenticationResult(false, null, null));
+        }
         
+        final long admittedAt;
+        try {
+            admittedAt = LoginThrottle.getInstance().admit(username);
+        } catch (LoginThrottledException e) {
+            CompletableFuture<AuthenticationResult> refused = new CompletableFuture<>();
+            refused.completeExceptionally(e);
+            return refused;
+        }
+        CompletableFuture<AuthenticationResult> result =
+                PasswordHasher.getInstance().submit(new Supplier<AuthenticationResult>() {
+                    @Override
+                    public AuthenticationResult get() {
+                        return verify(username, password, admittedAt);
+                    }
+                });
+        if (result.isCompletedExceptionally()) {
+            LoginThrottle.getInstance().release(username, admittedAt); // Refused by the pool, never verified
+        }
+        return result;
+    }
+    
+    /**
+     * Verifies the password of an admitted login attempt and reports the
+     * outcome to the login throttle.
+     */
+    private AuthenticationResult verify(String username, String password, long admittedAt) {
+        AuthenticationResult result;
+        try {
+            result = checkCredentials(username, password);
+        } catch (RuntimeException e) {
+            LoginThrottle.getInstance().release(username, admittedAt);
+            throw e;
+        }
+        if (result.isSuccess()) {
+            LoginThrottle.getInstance().recordSuccess(username, admittedAt);
+        } else {
+            LoginThrottle.getInstance().recordFailure(username);
+        }
+        return result;
+    }
+    
+    /**
+     * Checks a username and password against the credential indexes.
+     */
+    private AuthenticationResult checkCredentials(String username, String password) {
         // Try administrator authentication first
-        List<Administrator> administrators = DataManager.loadAdministrators();
-        for (Administrator admin : administrators) {
-            if (admin.getUsername().equals(username) && 
-                admin.getPassword().equals(hashedPassword)) {
-                return new AuthenticationResult(true, "ADMIN", admin);
+        AdministratorRepository administratorRepository = AdministratorRepository.getInstance();
+        String adminHash = administratorRepository.getPasswordHash(username);
+        if (adminHash != null && PasswordUtils.verifyPassword(password, adminHash)) {
+            Administrator admin = administratorRepository.findById(username);
+            if (admin != null) {
+                if (PasswordUtils.needsRehash(adminHash)) {
+                    administratorRepository.rehashPassword(admin, PasswordUtils.createHash(password));
+                }
+                return new AuthenticationResult("ADMIN", admin,
+                        SessionManager.getInstance().createSession("ADMIN", admin.getUsername()).getToken());
             }
         }
         
         // Try voter authentication
-        List<Voter> voters = DataManager.loadVoters();
-        for (Voter voter : voters) {
-            if (voter.getId().equals(username) && 
-                voter.getPassword().equals(hashedPassword)) {
-                return new AuthenticationResult(true, "VOTER", voter);
+        VoterRepository voterRepository = VoterRepository.getInstance();
+        String voterHash = voterRepository.getPasswordHash(username);
+        if (voterHash != null && PasswordUtils.verifyPassword(password, voterHash)) {
+            Voter voter = voterRepository.findById(username);
+            if (voter != null) {
+                if (PasswordUtils.needsRehash(voterHash) && voterRepository.storesSaltedHashes()) {
+                    voterRepository.rehashPassword(voter, PasswordUtils.createHash(password));
+                }
+                return new AuthenticationResult("VOTER", voter,
+                        SessionManager.getInstance().createSession("VOTER", voter.getId()).getToken());
             }
         }
         
+        if (adminHash == null && voterHash == null) {
+            PasswordUtils.verifyPassword(password, UNKNOWN_ACCOUNT_HASH);
+        }
+        
         // Authentication failed
         return new AuthenticationResult(false, null, null);
     }
 }
-
@@ -0,0 +1,158 @@
+package controller;
+
+import model.VoteRecord;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-ballot results of a batch of votes cast with
+ * {@link VotingController#castVotes(Iterable)}.
+ * Items are reported in the order the ballots were submitted.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class BatchVoteReport {
+
+    /**
+     * What happened to a single ballot of the batch.
+     */
+    public enum Outcome {
+        /** The vote was recorded and counted. */
+        ACCEPTED,
+        /** The ballot has no voter ID or no candidate ID. */
+        INVALID,
+        /** No registered voter has the ballot's voter ID. */
+        UNKNOWN_VOTER,
+        /** No candidate has the ballot's candidate ID. */
+        UNKNOWN_CANDIDATE,
+        /** An earlier ballot of the same batch already carries this voter ID. */
+        DUPLICATE_IN_BATCH,
+        /** The voter had already voted before the batch. */
+        ALREADY_VOTED,
+        /** The election is not active. */
+        ELECTION_CLOSED,
+        /** The ballot was valid but the batch could not be persisted. */
+        FAILED
+    }
+
+    /**
+     * The result of one ballot.
+     */
+    public static class Item {
+        private final int index;
+        private final VoteRecord ballot;
+        private final Outcome outcome;
+
+        Item(int index, VoteRecord ballot, Outcome outcome) {
+            this.index = index;
+            this.ballot = ballot;
+            this.outcome = outcome;
+        }
+
+        /**
+         * Gets the position of the ballot in the submitted batch.
+         *
+         * @return The zero-based index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Gets the submitted ballot.
+         *
+         * @return The ballot, or null if a null entry was submitted
+         */
+        public VoteRecord getBallot() {
+            return ballot;
+        }
+
+        /**
+         * Gets what happened to the ballot.
+         *
+         * @return The outcome
+         */
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + index + " " + (ballot == null ? "null" : ballot.getVoterId() + " -> " + ballot.getCandidateId())
+                    + ": " + outcome;
+        }
+    }
+
+    private final List<Item> items;
+    private final Map<Outcome, Integer> counts = new EnumMap<>(Outcome.class);
+
+    BatchVoteReport(List<VoteRecord> ballots, Outcome[] outcomes) {
+        List<Item> list = new ArrayList<>(ballots.size());
+        for (int i = 0; i < outcomes.length; i++) {
+            list.add(new Item(i, ballots.get(i), outcomes[i]));
+            Integer count = counts.get(outcomes[i]);
+            counts.put(outcomes[i], count == null ? 1 : count + 1);
+        }
+        this.items = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Gets the result of every ballot in submission order.
+     *
+     * @return Unmodifiable list of items
+     */
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**
+     * Gets the number of ballots with the given outcome.
+     *
+     * @param outcome The outcome to count
+     * @return The number of ballots
+     */
+    public int getCount(Outcome outcome) {
+        Integer count = counts.get(outcome);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * Gets the number of ballots that were recorded and counted.
+     *
+     * @return The number of accepted ballots
+     */
+    public int getAcceptedCount() {
+        return getCount(Outcome.ACCEPTED);
+    }
+
+    /**
+     * Gets the number of submitted ballots.
+     *
+     * @return The batch size
+     */
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * Summarizes the report, e.g. "98 vote(s) accepted, 2 ALREADY_VOTED".
+     *
+     * @return The summary
+     */
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        summary.append(getAcceptedCount()).append(" vote(s) accepted");
+        for (Map.Entry<Outcome, Integer> entry : counts.entrySet()) {
+            if (entry.getKey() != Outcome.ACCEPTED) {
+                summary.append(", ").append(entry.getValue()).append(' ').append(entry.getKey());
+            }
+        }
+        return summary.toString();
+    }
+}
@@ -1,12 +1,11 @@
 package controller;
 
 import model.Candidate;
-import utils.DataManager;
+import repository.TallyEngine;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Manages the election state and operations.
@@ -33,9 +32,11 @@ public class Election {
     }
     
     private static Election instance;
-    private ElectionStatus status;
-    private Date startDate;
-    private Date endDate;
+    
+    // Volatile: read by every ballot, written by the administrator
+    private volatile ElectionStatus status;
+    private volatile Date startDate;
+    private volatile Date endDate;
     
     /**
      * Private constructor to enforce Singleton pattern.
@@ -49,7 +50,7 @@ public class Election {
      * 
      * @return The single Election instance
      */
-    public static Election getInstance() {
+    public static synchronized Election getInstance() {
         if (instance == null) {
             instance = new Election();
         }
@@ -129,23 +130,34 @@ public class Election {
     }
     
     /**
-     * Calculates and returns the current vote tally.
-     * Results are sorted by vote count in descending order.
+     * Returns the current vote tally from the live tally engine.
+     * Results are sorted by vote count in descending order and reflect every
+     * accepted vote without reading any file.
      * 
-     * @return List of candidates sorted by vote count (highest first)
+     * @return Read-only list of candidates sorted by vote count (highest first)
      */
     public List<Candidate> calculateTally() {
-        List<Candidate> candidates = DataManager.loadCandidates();
-        
-        // Sort by vote count in descending order
-        candidates.sort(new Comparator<Candidate>() {
-            @Override
-            public int compare(Candidate c1, Candidate c2) {
-                return Integer.compare(c2.getVoteCount(), c1.getVoteCount());
-            }
-        });
-        
-        return new ArrayList<>(candidates);
+        return TallyEngine.getInstance().getResults();
+    }
+    
+    /**
+     * Returns the current vote tally of one position.
+     * Positions are compared after normalization, so "President" and
+     * "president" are the same race.
+     * 
+     * @param position The position to tally
+     * @return Read-only list of the position's candidates sorted by vote count (highest first)
+     */
+    public List<Candidate> calculateTally(String position) {
+        return TallyEngine.getInstance().getResults(position);
+    }
+    
+    /**
+     * Returns the current vote tally of every position.
+     * 
+     * @return Map from position to its candidates sorted by vote count (highest first)
+     */
+    public Map<String, List<Candidate>> calculateTallyByPosition() {
+        return TallyEngine.getInstance().getResultsByPosition();
     }
 }
-
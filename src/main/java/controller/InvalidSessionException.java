@@ -0,0 +1,23 @@
+package controller;
+
+/**
+ * Signals that a request carried a session token that is unknown, expired,
+ * ended by logout, or not valid for the requested operation. The user has to
+ * log in again.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class InvalidSessionException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception.
+     *
+     * @param message Why the session was refused
+     */
+    public InvalidSessionException(String message) {
+        super(message);
+    }
+}
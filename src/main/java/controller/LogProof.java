@@ -0,0 +1,141 @@
+package controller;
+
+import utils.MerkleLog;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A Merkle proof over the vote log, from
+ * {@link AdministratorController#proveVoteIncluded(String)} or
+ * {@link AdministratorController#proveLogConsistency(long, byte[])}.
+ *
+ * An inclusion proof shows that a vote's leaf is in the log at a given size;
+ * an auditor who knows the vote recomputes the leaf hash with
+ * {@link MerkleLog#hashLeaf} and compares it with {@link #getLeafHash()}.
+ * A consistency proof shows that the log an auditor saw earlier, known by
+ * its size and root hash, is a prefix of the current log.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class LogProof {
+
+    private final long leafIndex;
+    private final byte[] leafHash;
+    private final long oldSize;
+    private final byte[] oldRoot;
+    private final long treeSize;
+    private final byte[] rootHash;
+    private final List<byte[]> hashes;
+
+    private LogProof(long leafIndex, byte[] leafHash, long oldSize, byte[] oldRoot, long treeSize,
+                     byte[] rootHash, List<byte[]> hashes) {
+        this.leafIndex = leafIndex;
+        this.leafHash = leafHash;
+        this.oldSize = oldSize;
+        this.oldRoot = oldRoot;
+        this.treeSize = treeSize;
+        this.rootHash = rootHash;
+        this.hashes = Collections.unmodifiableList(hashes);
+    }
+
+    static LogProof inclusion(long leafIndex, byte[] leafHash, long treeSize, byte[] rootHash, List<byte[]> hashes) {
+        return new LogProof(leafIndex, leafHash, 0, null, treeSize, rootHash, hashes);
+    }
+
+    static LogProof consistency(long oldSize, byte[] oldRoot, long treeSize, byte[] rootHash, List<byte[]> hashes) {
+        return new LogProof(-1, null, oldSize, oldRoot, treeSize, rootHash, hashes);
+    }
+
+    /**
+     * Checks whether this is an inclusion proof.
+     *
+     * @return true for an inclusion proof, false for a consistency proof
+     */
+    public boolean isInclusion() {
+        return leafIndex >= 0;
+    }
+
+    /**
+     * Gets the leaf index of the proven vote.
+     *
+     * @return The leaf index, or -1 for a consistency proof
+     */
+    public long getLeafIndex() {
+        return leafIndex;
+    }
+
+    /**
+     * Gets the hash of the proven vote's leaf.
+     *
+     * @return The leaf hash, or null for a consistency proof
+     */
+    public byte[] getLeafHash() {
+        return leafHash;
+    }
+
+    /**
+     * Gets the earlier log size of a consistency proof.
+     *
+     * @return The earlier size, or 0 for an inclusion proof
+     */
+    public long getOldSize() {
+        return oldSize;
+    }
+
+    /**
+     * Gets the root hash the auditor saw at the earlier size.
+     *
+     * @return The earlier root hash, or null for an inclusion proof
+     */
+    public byte[] getOldRoot() {
+        return oldRoot;
+    }
+
+    /**
+     * Gets the log size the proof is for. Auditors keep it with the root hash
+     * to request a consistency proof later.
+     *
+     * @return The number of leaves
+     */
+    public long getTreeSize() {
+        return treeSize;
+    }
+
+    /**
+     * Gets the root hash of the log at {@link #getTreeSize()}.
+     *
+     * @return The root hash
+     */
+    public byte[] getRootHash() {
+        return rootHash;
+    }
+
+    /**
+     * Gets the proof hashes, as defined by RFC 6962.
+     *
+     * @return The audit path or consistency proof
+     */
+    public List<byte[]> getHashes() {
+        return hashes;
+    }
+
+    /**
+     * Verifies the proof against its own hashes, as an auditor would.
+     *
+     * @return true if the leaf is in the log, or the earlier log is a prefix of it
+     */
+    public boolean verify() {
+        if (isInclusion()) {
+            return MerkleLog.verifyInclusion(leafHash, leafIndex, treeSize, hashes, rootHash);
+        }
+        return MerkleLog.verifyConsistency(oldSize, treeSize, oldRoot, rootHash, hashes);
+    }
+
+    @Override
+    public String toString() {
+        return (isInclusion() ? "Inclusion of leaf " + leafIndex : "Consistency from size " + oldSize)
+                + " in a log of " + treeSize + " leaves: " + hashes.size() + " hash(es)";
+    }
+}
@@ -0,0 +1,284 @@
+package controller;
+
+import utils.AppConfig;
+import utils.SlidingWindowCounter;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits login attempts before any password is hashed.
+ *
+ * Two sliding windows, each a small ring of buckets, are kept in memory:
+ * - Per username, failed attempts. Reaching the limit locks the username
+ *   out; every further lockout within the failure window doubles the
+ *   lockout, up to a maximum. A successful login clears the username.
+ * - Globally, attempts that did not succeed. Beyond the limit every attempt
+ *   is refused until the window has room, which caps the hashing work a
+ *   guessing run can cause.
+ *
+ * An attempt is reserved in both windows when it is admitted, in one step
+ * per window, and released again if it succeeds. Attempts still being
+ * verified therefore count as failures, so concurrent guesses can never
+ * exceed either limit.
+ *
+ * Usernames are tracked whether or not they exist, so the throttle does not
+ * reveal which accounts are real. Idle entries are swept in the background,
+ * and at most a fixed number of usernames are tracked; beyond that new
+ * usernames are only covered by the global limit.
+ *
+ * Configuration (system properties):
+ * - voting.login.maxFailures: failed attempts per username that cause a lockout (default 5)
+ * - voting.login.failureWindowSeconds: window over which failures are counted (default 300)
+ * - voting.login.lockoutSeconds: first lockout (default 30)
+ * - voting.login.maxLockoutSeconds: longest lockout (default 900)
+ * - voting.login.globalMaxAttempts: attempts allowed per global window (default 200)
+ * - voting.login.globalWindowMillis: global window (default 1000)
+ * - voting.login.maxTrackedUsers: most usernames tracked at once (default 100000)
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class LoginThrottle {
+
+    private static final int BUCKETS = 10;
+
+    private static LoginThrottle instance;
+
+    /**
+     * Failure history of one username.
+     */
+    private static final class Attempts {
+        private final SlidingWindowCounter failures;
+        private long lockedUntil;
+        private long lastLockout;
+        private int lockouts;
+        private volatile long lastSeen;
+
+        Attempts(long failureWindowMillis, long now) {
+            failures = new SlidingWindowCounter(failureWindowMillis, BUCKETS);
+            lastSeen = now;
+            lastLockout = now - failureWindowMillis - 1;
+        }
+    }
+
+    private final int maxFailures;
+    private final long failureWindowMillis;
+    private final long lockoutMillis;
+    private final long maxLockoutMillis;
+    private final int globalMaxAttempts;
+    private final int maxTrackedUsers;
+    private final SlidingWindowCounter globalAttempts;
+    private final Map<String, Attempts> users = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a login throttle that sweeps idle usernames in the background.
+     *
+     * @param maxFailures Failed attempts per username that cause a lockout
+     * @param failureWindowMillis Window over which failures are counted
+     * @param lockoutMillis First lockout
+     * @param maxLockoutMillis Longest lockout
+     * @param globalMaxAttempts Attempts allowed per global window
+     * @param globalWindowMillis Global window
+     * @param maxTrackedUsers Most usernames tracked at once
+     */
+    public LoginThrottle(int maxFailures, long failureWindowMillis, long lockoutMillis, long maxLockoutMillis,
+                         int globalMaxAttempts, long globalWindowMillis, int maxTrackedUsers) {
+        this.maxFailures = Math.max(1, maxFailures);
+        this.failureWindowMillis = Math.max(1, failureWindowMillis);
+        this.lockoutMillis = Math.max(0, lockoutMillis);
+        this.maxLockoutMillis = Math.max(this.lockoutMillis, maxLockoutMillis);
+        this.globalMaxAttempts = Math.max(1, globalMaxAttempts);
+        this.maxTrackedUsers = Math.max(0, maxTrackedUsers);
+        this.globalAttempts = new SlidingWindowCounter(Math.max(1, globalWindowMillis), BUCKETS);
+
+        ScheduledExecutorService sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "login-throttle-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long sweepMillis = Math.max(1000, this.failureWindowMillis / 4);
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the login throttle shared by all authentication controllers.
+     *
+     * @return The single LoginThrottle instance
+     */
+    public static synchronized LoginThrottle getInstance() {
+        if (instance == null) {
+            instance = new LoginThrottle(
+                    AppConfig.getInt("voting.login.maxFailures", 5),
+                    TimeUnit.SECONDS.toMillis(AppConfig.getLong("voting.login.failureWindowSeconds", 300)),
+                    TimeUnit.SECONDS.toMillis(AppConfig.getLong("voting.login.lockoutSeconds", 30)),
+                    TimeUnit.SECONDS.toMillis(AppConfig.getLong("voting.login.maxLockoutSeconds", 900)),
+                    AppConfig.getInt("voting.login.globalMaxAttempts", 200),
+                    AppConfig.getLong("voting.login.globalWindowMillis", 1000),
+                    AppConfig.getInt("voting.login.maxTrackedUsers", 100000));
+        }
+        return instance;
+    }
+
+    /**
+     * Admits a login attempt or refuses it. An admitted attempt is reserved
+     * as a failure of the username and as an attempt against the global
+     * limit; report its outcome with {@link #recordSuccess}, {@link #recordFailure}
+     * or, if it was never verified, {@link #release}.
+     *
+     * @param username The username or voter ID
+     * @return The admission time, to pass back with the outcome
+     * @throws LoginThrottledException if the username is locked out, has as many
+     *         attempts pending as it may still fail, or the global limit is reached
+     */
+    public long admit(String username) {
+        long now = now();
+        Attempts attempts = track(username, now);
+        if (attempts != null) {
+            synchronized (attempts) {
+                if (attempts.lockedUntil > now) {
+                    throw new LoginThrottledException("Too many failed logins for this account",
+                            attempts.lockedUntil - now);
+                }
+                if (!attempts.failures.tryIncrement(now, maxFailures)) {
+                    throw new LoginThrottledException("Too many login attempts for this account",
+                            Math.max(1, attempts.failures.millisUntilDecrease(now)));
+                }
+            }
+        }
+        if (!globalAttempts.tryIncrement(now, globalMaxAttempts)) {
+            if (attempts != null) {
+                synchronized (attempts) {
+                    attempts.failures.release(now);
+                }
+            }
+            throw new LoginThrottledException("Too many logins in progress",
+                    Math.max(1, globalAttempts.millisUntilDecrease(now)));
+        }
+        return now;
+    }
+
+    /**
+     * Gets the failure history of a username, creating it unless too many
+     * usernames are tracked already.
+     *
+     * @return The history, or null if the username is not tracked
+     */
+    private Attempts track(String username, long now) {
+        Attempts attempts = users.get(username);
+        if (attempts == null) {
+            if (users.size() >= maxTrackedUsers) {
+                return null;
+            }
+            Attempts created = new Attempts(failureWindowMillis, now);
+            attempts = users.putIfAbsent(username, created);
+            if (attempts == null) {
+                attempts = created;
+            }
+        }
+        attempts.lastSeen = now;
+        return attempts;
+    }
+
+    /**
+     * Records a failed attempt, locking the username out once it has failed
+     * too often within the failure window. The failure was already counted
+     * when the attempt was admitted.
+     *
+     * @param username The username or voter ID
+     */
+    public void recordFailure(String username) {
+        long now = now();
+        Attempts attempts = users.get(username);
+        if (attempts == null) {
+            return; // Not tracked, or cleared by a concurrent successful login
+        }
+        attempts.lastSeen = now;
+        synchronized (attempts) {
+            if (attempts.failures.count(now) < maxFailures) {
+                return;
+            }
+            // Back off: repeat offenders within the window are locked out for longer
+            if (now - attempts.lastLockout > failureWindowMillis) {
+                attempts.lockouts = 0;
+            }
+            long lockout = lockoutMillis << Math.min(attempts.lockouts, 20);
+            attempts.lockouts++;
+            attempts.lastLockout = now;
+            attempts.lockedUntil = now + Math.min(maxLockoutMillis, lockout);
+            attempts.failures.clear();
+        }
+    }
+
+    /**
+     * Records a successful login, forgetting the username's failures and
+     * releasing the attempt from the global limit.
+     *
+     * @param username The username or voter ID
+     * @param admittedAt The admission time returned by {@link #admit}
+     */
+    public void recordSuccess(String username, long admittedAt) {
+        users.remove(username);
+        globalAttempts.release(admittedAt);
+    }
+
+    /**
+     * Releases an admitted attempt that was never verified, for example
+     * because the hashing pool refused it.
+     *
+     * @param username The username or voter ID
+     * @param admittedAt The admission time returned by {@link #admit}
+     */
+    public void release(String username, long admittedAt) {
+        Attempts attempts = users.get(username);
+        if (attempts != null) {
+            synchronized (attempts) {
+                attempts.failures.release(admittedAt);
+            }
+        }
+        globalAttempts.release(admittedAt);
+    }
+
+    /**
+     * Gets the number of usernames currently tracked.
+     *
+     * @return The tracked username count
+     */
+    public int trackedUsers() {
+        return users.size();
+    }
+
+    /**
+     * Removes usernames with no recent failures and no running lockout.
+     */
+    void evictIdle() {
+        long now = now();
+        Iterator<Attempts> iterator = users.values().iterator();
+        while (iterator.hasNext()) {
+            Attempts attempts = iterator.next();
+            synchronized (attempts) {
+                if (now - attempts.lastSeen > failureWindowMillis && attempts.lockedUntil <= now
+                        && now - attempts.lastLockout > failureWindowMillis) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1000000;
+    }
+}
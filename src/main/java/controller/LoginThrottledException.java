@@ -0,0 +1,36 @@
+package controller;
+
+/**
+ * Signals that a login attempt was refused by the {@link LoginThrottle}
+ * without checking the password, because the account is locked after
+ * repeated failures or too many logins are being attempted overall.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class LoginThrottledException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    /**
+     * Creates the exception.
+     *
+     * @param message Why the attempt was refused
+     * @param retryAfterMillis How long the client should wait before retrying
+     */
+    public LoginThrottledException(String message, long retryAfterMillis) {
+        super(message + ", retry after " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Gets how long the client should wait before retrying.
+     *
+     * @return The suggested delay in milliseconds
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
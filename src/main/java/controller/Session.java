@@ -0,0 +1,71 @@
+package controller;
+
+/**
+ * A logged-in user, identified to later requests by an opaque token issued
+ * by {@link SessionManager}.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class Session {
+
+    private final String token;
+    private final String userType;
+    private final String userId;
+
+    /**
+     * When the session expires unless it is used again, in System.nanoTime() terms.
+     */
+    private volatile long expiresAt;
+
+    Session(String token, String userType, String userId, long expiresAt) {
+        this.token = token;
+        this.userType = userType;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+    }
+
+    /**
+     * Gets the token that identifies the session.
+     *
+     * @return The opaque session token
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the type of the logged-in user.
+     *
+     * @return "ADMIN" or "VOTER"
+     */
+    public String getUserType() {
+        return userType;
+    }
+
+    /**
+     * Gets the username or voter ID of the logged-in user.
+     *
+     * @return The user's key in its repository
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Checks whether the session belongs to a voter.
+     *
+     * @return true for a voter session
+     */
+    public boolean isVoter() {
+        return "VOTER".equals(userType);
+    }
+
+    long getExpiresAt() {
+        return expiresAt;
+    }
+
+    void setExpiresAt(long expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
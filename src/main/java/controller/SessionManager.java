@@ -0,0 +1,165 @@
+package controller;
+
+import utils.AppConfig;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Issues and validates session tokens, so requests after a login are checked
+ * with one map lookup instead of verifying the password again.
+ *
+ * Tokens are 256 random bits, URL-safe base64 encoded, and carry no data.
+ * A session expires after it has been idle for the configured time; every
+ * successful validation extends it. Expired sessions are refused at once and
+ * removed by a background sweep, so abandoned sessions do not accumulate.
+ *
+ * Configuration (system properties):
+ * - voting.session.idleTimeoutSeconds: idle time after which a session expires (default 900)
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class SessionManager {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static SessionManager instance;
+
+    private final long idleTimeoutNanos;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * Creates a session manager that sweeps expired sessions in the background.
+     *
+     * @param idleTimeoutMillis Idle time after which a session expires
+     */
+    public SessionManager(long idleTimeoutMillis) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, idleTimeoutMillis));
+        sweeper = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "session-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        // Sweep a few times per timeout, but not more than once a second
+        long sweepMillis = Math.max(1000, idleTimeoutMillis / 4);
+        sweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictExpired();
+            }
+        }, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Gets the session manager shared by all controllers and panels.
+     *
+     * @return The single SessionManager instance
+     */
+    public static synchronized SessionManager getInstance() {
+        if (instance == null) {
+            instance = new SessionManager(
+                    TimeUnit.SECONDS.toMillis(AppConfig.getLong("voting.session.idleTimeoutSeconds", 900)));
+        }
+        return instance;
+    }
+
+    /**
+     * Starts a session for an authenticated user.
+     *
+     * @param userType "ADMIN" or "VOTER"
+     * @param userId The username or voter ID
+     * @return The new session
+     */
+    public Session createSession(String userType, String userId) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        Session session = new Session(token, userType, userId, System.nanoTime() + idleTimeoutNanos);
+        sessions.put(token, session);
+        return session;
+    }
+
+    /**
+     * Finds the live session of a token and extends it.
+     *
+     * @param token The session token
+     * @return The session, or null if the token is unknown, expired or logged out
+     */
+    public Session getSession(String token) {
+        if (token == null) {
+            return null;
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        if (now - session.getExpiresAt() >= 0) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.setExpiresAt(now + idleTimeoutNanos);
+        return session;
+    }
+
+    /**
+     * Finds the live session of a token, failing if there is none.
+     *
+     * @param token The session token
+     * @return The session
+     * @throws InvalidSessionException if the token is unknown, expired or logged out
+     */
+    public Session requireSession(String token) {
+        Session session = getSession(token);
+        if (session == null) {
+            throw new InvalidSessionException("Session expired or unknown; please log in again");
+        }
+        return session;
+    }
+
+    /**
+     * Ends a session, for example on logout.
+     *
+     * @param token The session token
+     * @return true if a session was ended
+     */
+    public boolean invalidate(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    /**
+     * Gets the number of sessions not yet removed, including expired ones
+     * awaiting the next sweep.
+     *
+     * @return The session count
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Removes all expired sessions.
+     */
+    void evictExpired() {
+        long now = System.nanoTime();
+        Iterator<Session> iterator = sessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().getExpiresAt() >= 0) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package controller;
+
+import model.Candidate;
+import repository.CandidateRepository;
+import storage.Storage;
+import storage.StorageFactory;
+import storage.VoteReducer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Verifies the tally against the vote log.
+ * Vote counts are recomputed from the recorded votes with a parallel
+ * reduction over the vote log, which is streamed rather than loaded, and
+ * compared with the counts the candidates hold; the audit also
+ * reports votes for candidate IDs that do not exist and voters recorded more
+ * than once.
+ *
+ * The candidate counts and the vote log position are captured together under
+ * the storage's vote write lock, which is held only for that moment; the log is
+ * then read up to the captured position while voting continues, so the audit
+ * can run during an election.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class VoteAuditor {
+
+    private static ScheduledExecutorService scheduler;
+
+    /**
+     * Audits the current tally.
+     *
+     * @return The audit report
+     */
+    public AuditReport audit() {
+        long start = System.nanoTime();
+        Storage storage = StorageFactory.getStorage();
+
+        // Capture counts and log position at one instant
+        Map<String, Long> storedCounts = new HashMap<>();
+        long position;
+        Lock snapshotLock = storage.getVoteLock().writeLock();
+        snapshotLock.lock();
+        try {
+            position = storage.getVotePosition();
+            for (Candidate candidate : CandidateRepository.getInstance().findAll()) {
+                storedCounts.put(candidate.getCandidateId(), (long) candidate.getVoteCount());
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+
+        Tally tally = storage.reduceVoteRecords(position, new TallyReducer());
+
+        // Compare in candidate ID order so reports are stable
+        Map<String, Long> recomputed = new TreeMap<>();
+        for (Map.Entry<String, long[]> entry : tally.counts.entrySet()) {
+            recomputed.put(entry.getKey(), entry.getValue()[0]);
+        }
+        List<AuditReport.Discrepancy> discrepancies = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : new TreeMap<>(storedCounts).entrySet()) {
+            Long recorded = recomputed.get(entry.getKey());
+            long recordedCount = recorded == null ? 0 : recorded;
+            if (recordedCount != entry.getValue()) {
+                discrepancies.add(new AuditReport.Discrepancy(entry.getKey(), entry.getValue(), recordedCount));
+            }
+        }
+        Map<String, Long> orphans = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : recomputed.entrySet()) {
+            if (!storedCounts.containsKey(entry.getKey())) {
+                orphans.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<String, Integer> duplicates = findDuplicateVoters(storage, position, tally);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        return new AuditReport(position, tally.recordCount, elapsedMillis, recomputed, discrepancies, orphans, duplicates);
+    }
+
+    /**
+     * Starts auditing in the background at a fixed interval.
+     * Problems are printed to System.err and clean audits to System.out.
+     *
+     * @param intervalSeconds Seconds between the end of one audit and the start of the next
+     */
+    public static synchronized void startPeriodicAudit(long intervalSeconds) {
+        if (scheduler != null || intervalSeconds <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "vote-audit");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    AuditReport report = new VoteAuditor().audit();
+                    if (report.isClean()) {
+                        System.out.println(report);
+                    } else {
+                        System.err.println(report);
+                        for (AuditReport.Discrepancy discrepancy : report.getDiscrepancies()) {
+                            System.err.println("  Discrepancy " + discrepancy);
+                        }
+                        for (Map.Entry<String, Long> orphan : report.getOrphanCandidates().entrySet()) {
+                            System.err.println("  Orphan candidate " + orphan.getKey() + ": " + orphan.getValue() + " vote(s)");
+                        }
+                        for (Map.Entry<String, Integer> duplicate : report.getDuplicateVoters().entrySet()) {
+                            System.err.println("  Duplicate voter " + duplicate.getKey() + ": " + duplicate.getValue() + " record(s)");
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    // Keep auditing; a failed run must not cancel the schedule
+                    System.err.println("Error during vote audit: " + e.getMessage());
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Finds voter IDs recorded more than once. The voter ID hashes gathered by
+     * the counting pass are sorted in parallel and scanned for equal
+     * neighbours; only if some hash repeats is the log scanned again, keeping
+     * the IDs with a repeated hash, to tell real duplicates from collisions.
+     */
+    private static Map<String, Integer> findDuplicateVoters(Storage storage, long position, Tally tally) {
+        long[] hashes = Arrays.copyOf(tally.voterHashes, tally.voterCount);
+        Arrays.parallelSort(hashes);
+        final Set<Long> suspects = new HashSet<>();
+        for (int i = 1; i < hashes.length; i++) {
+            if (hashes[i] == hashes[i - 1]) {
+                suspects.add(hashes[i]);
+            }
+        }
+        if (suspects.isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+
+        Map<String, int[]> seen = storage.reduceVoteRecords(position, new VoteReducer<Map<String, int[]>>() {
+            @Override
+            public Map<String, int[]> create() {
+                return new HashMap<>();
+            }
+
+            @Override
+            public void accumulate(Map<String, int[]> accumulator, String voterId, String candidateId) {
+                if (suspects.contains(hash(voterId))) {
+                    String key = voterId == null ? "" : voterId;
+                    int[] count = accumulator.get(key);
+                    if (count == null) {
+                        count = new int[1];
+                        accumulator.put(key, count);
+                    }
+                    count[0]++;
+                }
+            }
+
+            @Override
+            public Map<String, int[]> combine(Map<String, int[]> left, Map<String, int[]> right) {
+                Map<String, int[]> into = left.size() >= right.size() ? left : right;
+                Map<String, int[]> from = into == left ? right : left;
+                for (Map.Entry<String, int[]> entry : from.entrySet()) {
+                    int[] count = into.get(entry.getKey());
+                    if (count == null) {
+                        into.put(entry.getKey(), entry.getValue());
+                    } else {
+                        count[0] += entry.getValue()[0];
+                    }
+                }
+                return into;
+            }
+        });
+
+        Map<String, Integer> duplicates = new LinkedHashMap<>();
+        for (Map.Entry<String, int[]> entry : new TreeMap<>(seen).entrySet()) {
+            if (entry.getValue()[0] > 1) {
+                duplicates.put(entry.getKey(), entry.getValue()[0]);
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of a voter ID, so that tens of millions of IDs can be
+     * compared as primitive longs instead of strings.
+     */
+    private static long hash(String voterId) {
+        long hash = 0xcbf29ce484222325L;
+        if (voterId != null) {
+            for (int i = 0; i < voterId.length(); i++) {
+                hash ^= voterId.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Votes per candidate ID and the voter ID hashes of one range of the log.
+     * Counts are boxed once per candidate ID, not once per vote.
+     */
+    private static final class Tally {
+        private final Map<String, long[]> counts = new HashMap<>();
+        private long[] voterHashes = new long[1024];
+        private int voterCount;
+        private long recordCount;
+    }
+
+    /**
+     * Folds votes into tallies; adjacent tallies are combined by merging the
+     * smaller count map into the larger one and joining the hash arrays.
+     */
+    private static final class TallyReducer implements VoteReducer<Tally> {
+        @Override
+        public Tally create() {
+            return new Tally();
+        }
+
+        @Override
+        public void accumulate(Tally tally, String voterId, String candidateId) {
+            String key = candidateId == null ? "" : candidateId;
+            long[] count = tally.counts.get(key);
+            if (count == null) {
+                count = new long[1];
+                tally.counts.put(key, count);
+            }
+            count[0]++;
+            if (tally.voterCount == tally.voterHashes.length) {
+                tally.voterHashes = Arrays.copyOf(tally.voterHashes, tally.voterCount * 2);
+            }
+            tally.voterHashes[tally.voterCount++] = hash(voterId);
+            tally.recordCount++;
+        }
+
+        @Override
+        public Tally combine(Tally left, Tally right) {
+            Tally into = left.counts.size() >= right.counts.size() ? left : right;
+            Tally from = into == left ? right : left;
+            for (Map.Entry<String, long[]> entry : from.counts.entrySet()) {
+                long[] count = into.counts.get(entry.getKey());
+                if (count == null) {
+                    into.counts.put(entry.getKey(), entry.getValue());
+                } else {
+                    count[0] += entry.getValue()[0];
+                }
+            }
+            // Hash order does not matter, they are sorted before use
+            long[] hashes = new long[left.voterCount + right.voterCount];
+            System.arraycopy(left.voterHashes, 0, hashes, 0, left.voterCount);
+            System.arraycopy(right.voterHashes, 0, hashes, left.voterCount, right.voterCount);
+            into.voterHashes = hashes;
+            into.voterCount = hashes.length;
+            into.recordCount = left.recordCount + right.recordCount;
+            return into;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package controller;
+
+/**
+ * Signals that a vote was not admitted because the vote path is overloaded.
+ * The vote was neither validated nor recorded; the client may submit it again
+ * after the suggested delay.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class VoteRejectedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterMillis;
+
+    /**
+     * Creates the exception.
+     *
+     * @param retryAfterMillis How long the client should wait before retrying
+     */
+    public VoteRejectedException(long retryAfterMillis) {
+        super("Too many votes in progress, retry after " + retryAfterMillis + " ms");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Gets how long the client should wait before retrying.
+     *
+     * @return The suggested delay in milliseconds
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -3,9 +3,26 @@ package controller;
 import model.Candidate;
 import model.VoteRecord;
 import model.Voter;
-import utils.DataManager;
+import repository.CandidateRepository;
+import repository.TallyEngine;
+import repository.VoterRepository;
+import storage.Storage;
+import storage.StorageFactory;
+import utils.AppConfig;
+import utils.DedupCache;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 /**
  * Handles voting operations and vote casting logic.
@@ -17,67 +34,429 @@ import java.util.List;
 public class VotingController {
     
     /**
-     * Casts a vote for a candidate by a voter.
-     * Performs validation checks and updates all necessary data.
+     * Outcomes of recent submissions by idempotency key, shared by all controllers.
+     * Configured with -Dvoting.idempotency.maxEntries and -Dvoting.idempotency.ttlSeconds.
+     */
+    private static final DedupCache<CompletableFuture<Boolean>> SUBMISSIONS = new DedupCache<>(
+            AppConfig.getInt("voting.idempotency.maxEntries", 100000),
+            TimeUnit.SECONDS.toMillis(AppConfig.getLong("voting.idempotency.ttlSeconds", 600)));
+    
+    /**
+     * Casts a vote for a candidate by a voter and waits until it is durable.
      * 
      * @param voter The voter casting the vote
      * @param candidate The candidate receiving the vote
      * @return true if vote was successfully cast, false otherwise
+     * @throws VoteRejectedException if the vote path is overloaded
+     * @see #castVoteAsync(Voter, Candidate)
      */
     public boolean castVote(Voter voter, Candidate candidate) {
-        // Check if election is active
-        Election election = Election.getInstance();
-        if (election.getStatus() != Election.ElectionStatus.ACTIVE) {
-            return false;
+        return await(castVoteAsync(voter, candidate));
+    }
+    
+    /**
+     * Casts a vote carrying a client-generated idempotency key and waits until it is durable.
+     * 
+     * @param voter The voter casting the vote
+     * @param candidate The candidate receiving the vote
+     * @param idempotencyKey The key identifying this submission across retries
+     * @return true if the vote was cast by this or an earlier submission with the same key
+     * @throws VoteRejectedException if the vote path is overloaded
+     * @see #castVoteAsync(Voter, Candidate, String)
+     */
+    public boolean castVote(Voter voter, Candidate candidate, String idempotencyKey) {
+        return await(castVoteAsync(voter, candidate, idempotencyKey));
+    }
+    
+    /**
+     * Casts a vote carrying a client-generated idempotency key, so that a kiosk
+     * that timed out can safely retry the same submission.
+     * 
+     * A repeated key of the same voter returns the outcome of the first
+     * submission without touching storage: a retry of a vote that landed
+     * reports true rather than "already voted", and a retry of a submission
+     * that is still in flight shares its result. Submissions that were
+     * rejected or not admitted are not remembered, so their retry is evaluated again.
+     * Keys are remembered for a bounded time and up to a bounded number of keys.
+     * 
+     * @param voter The voter casting the vote
+     * @param candidate The candidate receiving the vote
+     * @param idempotencyKey The key identifying this submission across retries,
+     *                       or null to submit without deduplication
+     * @return A future completed as for {@link #castVoteAsync(Voter, Candidate)}
+     */
+    public CompletableFuture<Boolean> castVoteAsync(Voter voter, Candidate candidate, final String idempotencyKey) {
+        if (idempotencyKey == null || voter == null || voter.getId() == null) {
+            return castVoteAsync(voter, candidate);
         }
         
-        // Check if voter has already voted
-        if (voter.isHasVoted()) {
-            return false;
+        // Keys are scoped to the voter, so one client's key cannot shadow another voter's vote
+        final String key = voter.getId() + '\u0000' + idempotencyKey;
+        final CompletableFuture<Boolean> submission = new CompletableFuture<>();
+        CompletableFuture<Boolean> original = SUBMISSIONS.putIfAbsent(key, submission);
+        if (original != null) {
+            return original;
         }
         
+        castVoteAsync(voter, candidate).whenComplete(new BiConsumer<Boolean, Throwable>() {
+            @Override
+            public void accept(Boolean success, Throwable failure) {
+                if (failure != null || !success) {
+                    SUBMISSIONS.remove(key, submission);
+                }
+                if (failure != null) {
+                    submission.completeExceptionally(failure);
+                } else {
+                    submission.complete(success);
+                }
+            }
+        });
+        return submission;
+    }
+    
+    /**
+     * Casts a vote for a candidate by a voter without waiting for the disk.
+     * The vote first passes the {@link AdmissionController}, which caps the votes
+     * in flight, queues a bounded number of further votes and rejects the rest.
+     * Once admitted, the vote is validated, claimed and applied in memory, and
+     * queued for the journal writer, which persists queued votes in batches.
+     * The returned future tells the caller when the vote is safe.
+     * 
+     * Safe to call from many threads at once: the has-voted transition is a
+     * compare-and-set on the stored voter, candidate counts are LongAdders,
+     * and ballots share the storage's vote lock instead of excluding each other.
+     * 
+     * The future may complete on the journal writer thread, so dependent
+     * actions must not block; Swing code should hand the result to the EDT.
+     * 
+     * @param voter The voter casting the vote
+     * @param candidate The candidate receiving the vote
+     * @return A future completed with true once the vote is durably persisted, or
+     *         with false if the vote was rejected (election closed, unknown voter or
+     *         candidate, already voted, write queue full) or could not be persisted;
+     *         completed exceptionally with a VoteRejectedException if the vote was
+     *         not admitted
+     */
+    public CompletableFuture<Boolean> castVoteAsync(final Voter voter, final Candidate candidate) {
+        return AdmissionController.getInstance().submit(new Supplier<CompletableFuture<Boolean>>() {
+            @Override
+            public CompletableFuture<Boolean> get() {
+                return castAdmittedVote(voter, candidate);
+            }
+        });
+    }
+    
+    /**
+     * Casts a vote that has passed admission control.
+     */
+    private CompletableFuture<Boolean> castAdmittedVote(final Voter voter, final Candidate candidate) {
         // Validate voter and candidate are not null
         if (voter == null || candidate == null) {
-            return false;
+            return CompletableFuture.completedFuture(false);
         }
         
-        // Perform vote operations
-        candidate.incrementVoteCount();
-        voter.setHasVoted(true);
+        // Check if election is active
+        Election election = Election.getInstance();
+        if (election.getStatus() != Election.ElectionStatus.ACTIVE) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        // The repository's instances are the authoritative state; the caller's
+        // objects may be stale copies
+        final VoterRepository voterRepository = VoterRepository.getInstance();
+        final Voter storedVoter = voterRepository.findById(voter.getId());
+        final CandidateRepository candidateRepository = CandidateRepository.getInstance();
+        final Candidate storedCandidate = candidateRepository.findById(candidate.getCandidateId());
+        if (storedVoter == null || storedCandidate == null) {
+            return CompletableFuture.completedFuture(false); // Unknown voter or candidate
+        }
         
         // Create vote record
         VoteRecord voteRecord = new VoteRecord(voter.getId(), candidate.getCandidateId());
         
-        // Load all data
-        List<Voter> voters = DataManager.loadVoters();
-        List<Candidate> candidates = DataManager.loadCandidates();
-        List<VoteRecord> voteRecords = DataManager.loadVoteRecords();
+        // Record the vote and apply it in memory under the shared vote lock, so a
+        // repository snapshot never sees one without the other
+        Storage storage = StorageFactory.getStorage();
+        final Lock voteLock = storage.getVoteLock().readLock();
+        CompletableFuture<Void> recorded;
+        voteLock.lock();
+        try {
+            // Claim the vote first: of concurrent ballots by one voter, exactly one wins
+            if (!voterRepository.markVoted(storedVoter)) {
+                return CompletableFuture.completedFuture(false); // Voter has already voted
+            }
+            
+            recorded = storage.recordVote(voteRecord);
+            if (recorded.isCompletedExceptionally()) {
+                unclaim(voterRepository, storedVoter, voter);
+                return CompletableFuture.completedFuture(false);
+            }
+            
+            // Perform vote operations
+            if (storedCandidate != candidate) {
+                candidate.incrementVoteCount();
+            }
+            voter.setHasVoted(true);
+            candidateRepository.addVote(storedCandidate);
+            TallyEngine.getInstance().recordVote(storedCandidate.getCandidateId());
+        } finally {
+            voteLock.unlock();
+        }
         
-        // Update voter in list
-        for (int i = 0; i < voters.size(); i++) {
-            if (voters.get(i).getId().equals(voter.getId())) {
-                voters.set(i, voter);
-                break;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        recorded.whenComplete(new BiConsumer<Void, Throwable>() {
+            @Override
+            public void accept(Void ignored, Throwable failure) {
+                if (failure == null) {
+                    result.complete(true);
+                    return;
+                }
+                
+                // The vote was removed from the journal; undo it in memory. Runs on
+                // another thread because the writer thread must never wait for the vote lock.
+                ForkJoinPool.commonPool().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        voteLock.lock();
+                        try {
+                            unclaim(voterRepository, storedVoter, voter);
+                            if (storedCandidate != candidate) {
+                                candidate.decrementVoteCount();
+                            }
+                            candidateRepository.retractVote(storedCandidate);
+                            TallyEngine.getInstance().retractVote(storedCandidate.getCandidateId());
+                        } finally {
+                            voteLock.unlock();
+                        }
+                        result.complete(false);
+                    }
+                });
             }
+        });
+        return result;
+    }
+    
+    /**
+     * Casts a vote for the voter of a session and waits until it is durable.
+     * 
+     * @param sessionToken The token of the voter's session
+     * @param candidateId The ID of the candidate receiving the vote
+     * @return true if vote was successfully cast, false otherwise
+     * @throws InvalidSessionException if the session is not a live voter session
+     * @throws VoteRejectedException if the vote path is overloaded
+     * @see #castVoteAsync(String, String)
+     */
+    public boolean castVote(String sessionToken, String candidateId) {
+        return await(castVoteAsync(sessionToken, candidateId));
+    }
+    
+    /**
+     * Casts a vote for the voter of a session without waiting for the disk.
+     * The session is checked with one lookup and the voter and candidate are
+     * taken from the repositories, so the caller needs neither the password
+     * nor the entities.
+     * 
+     * @param sessionToken The token of the voter's session
+     * @param candidateId The ID of the candidate receiving the vote
+     * @return A future completed as for {@link #castVoteAsync(Voter, Candidate)}, also
+     *         with false if the voter or candidate no longer exists; completed
+     *         exceptionally with an InvalidSessionException if the session is not
+     *         a live voter session
+     */
+    public CompletableFuture<Boolean> castVoteAsync(String sessionToken, String candidateId) {
+        Session session = SessionManager.getInstance().getSession(sessionToken);
+        if (session == null || !session.isVoter()) {
+            CompletableFuture<Boolean> refused = new CompletableFuture<>();
+            refused.completeExceptionally(new InvalidSessionException(
+                    session == null ? "Session expired or unknown; please log in again"
+                            : "Only voters can cast votes"));
+            return refused;
         }
         
-        // Update candidate in list
-        for (int i = 0; i < candidates.size(); i++) {
-            if (candidates.get(i).getCandidateId().equals(candidate.getCandidateId())) {
-                candidates.set(i, candidate);
-                break;
+        Voter voter = VoterRepository.getInstance().findById(session.getUserId());
+        Candidate candidate = candidateId == null ? null : CandidateRepository.getInstance().findById(candidateId);
+        if (voter == null || candidate == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        return castVoteAsync(voter, candidate);
+    }
+    
+    /**
+     * Gets the current results for the user of a session.
+     * 
+     * @param sessionToken The token of a voter or administrator session
+     * @return List of candidates sorted by vote count (highest first)
+     * @throws InvalidSessionException if the session is not live
+     */
+    public List<Candidate> getResults(String sessionToken) {
+        SessionManager.getInstance().requireSession(sessionToken);
+        return Election.getInstance().calculateTally();
+    }
+    
+    /**
+     * Casts a batch of ballots, for example paper ballots or an offline kiosk
+     * upload, and waits until the accepted ones are durable.
+     * 
+     * Every ballot is validated against the voters and candidates in memory:
+     * the voter must be registered and not have voted, the candidate must exist,
+     * and a voter may appear only once in the batch (later ballots of the same
+     * voter are rejected). All accepted ballots are then persisted with one
+     * write; if that write fails, none of them is counted.
+     * 
+     * A stream can be passed as {@code stream::iterator}.
+     * 
+     * @param ballots The ballots as (voterId, candidateId) vote records, each
+     *                keeping the time it was cast
+     * @return The outcome of every ballot in submission order
+     */
+    public BatchVoteReport castVotes(Iterable<VoteRecord> ballots) {
+        List<VoteRecord> batch = new ArrayList<>();
+        for (VoteRecord ballot : ballots) {
+            batch.add(ballot);
+        }
+        BatchVoteReport.Outcome[] outcomes = new BatchVoteReport.Outcome[batch.size()];
+        
+        // Check if election is active
+        if (Election.getInstance().getStatus() != Election.ElectionStatus.ACTIVE) {
+            Arrays.fill(outcomes, BatchVoteReport.Outcome.ELECTION_CLOSED);
+            return new BatchVoteReport(batch, outcomes);
+        }
+        
+        VoterRepository voterRepository = VoterRepository.getInstance();
+        CandidateRepository candidateRepository = CandidateRepository.getInstance();
+        Set<String> batchVoters = new HashSet<>();
+        Voter[] voters = new Voter[outcomes.length];
+        Candidate[] candidates = new Candidate[outcomes.length];
+        
+        // Resolve ballots before taking the vote lock; repository lookups lock
+        // the repository, which must never be waited for under the vote lock
+        for (int i = 0; i < outcomes.length; i++) {
+            VoteRecord ballot = batch.get(i);
+            if (ballot == null || ballot.getVoterId() == null || ballot.getVoterId().isEmpty()
+                    || ballot.getCandidateId() == null || ballot.getCandidateId().isEmpty()) {
+                outcomes[i] = BatchVoteReport.Outcome.INVALID;
+                continue;
+            }
+            if (!batchVoters.add(ballot.getVoterId())) {
+                outcomes[i] = BatchVoteReport.Outcome.DUPLICATE_IN_BATCH;
+                continue;
+            }
+            voters[i] = voterRepository.findById(ballot.getVoterId());
+            if (voters[i] == null) {
+                outcomes[i] = BatchVoteReport.Outcome.UNKNOWN_VOTER;
+                continue;
+            }
+            candidates[i] = candidateRepository.findById(ballot.getCandidateId());
+            if (candidates[i] == null) {
+                outcomes[i] = BatchVoteReport.Outcome.UNKNOWN_CANDIDATE;
             }
         }
         
-        // Add vote record
-        voteRecords.add(voteRecord);
+        List<VoteRecord> accepted = new ArrayList<>();
+        List<Voter> claimedVoters = new ArrayList<>();
+        List<Candidate> votedCandidates = new ArrayList<>();
         
-        // Save all updated data to CSV files
-        DataManager.saveVoters(voters);
-        DataManager.saveCandidates(candidates);
-        DataManager.saveVoteRecords(voteRecords);
+        Storage storage = StorageFactory.getStorage();
+        Lock voteLock = storage.getVoteLock().readLock();
+        CompletableFuture<Void> recorded;
+        voteLock.lock();
+        try {
+            for (int i = 0; i < outcomes.length; i++) {
+                if (outcomes[i] != null) {
+                    continue;
+                }
+                
+                // Claim the vote; this also guards against concurrent single ballots
+                if (!voterRepository.markVoted(voters[i])) {
+                    outcomes[i] = BatchVoteReport.Outcome.ALREADY_VOTED;
+                    continue;
+                }
+                outcomes[i] = BatchVoteReport.Outcome.ACCEPTED;
+                accepted.add(batch.get(i));
+                claimedVoters.add(voters[i]);
+                votedCandidates.add(candidates[i]);
+            }
+            
+            if (accepted.isEmpty()) {
+                return new BatchVoteReport(batch, outcomes);
+            }
+            
+            recorded = storage.recordVotes(accepted);
+            if (recorded.isCompletedExceptionally()) {
+                rejectBatch(voterRepository, candidateRepository, claimedVoters, null, outcomes);
+                return new BatchVoteReport(batch, outcomes);
+            }
+            
+            TallyEngine tally = TallyEngine.getInstance();
+            for (Candidate candidate : votedCandidates) {
+                candidateRepository.addVote(candidate);
+                tally.recordVote(candidate.getCandidateId());
+            }
+        } finally {
+            voteLock.unlock();
+        }
         
-        return true;
+        try {
+            recorded.join();
+        } catch (RuntimeException e) {
+            // The batch was removed from the journal; undo it in memory
+            voteLock.lock();
+            try {
+                rejectBatch(voterRepository, candidateRepository, claimedVoters, votedCandidates, outcomes);
+            } finally {
+                voteLock.unlock();
+            }
+        }
+        return new BatchVoteReport(batch, outcomes);
+    }
+    
+    /**
+     * Undoes the accepted ballots of a batch that could not be recorded.
+     * 
+     * @param countedCandidates The candidates whose counts were incremented, or null
+     */
+    private void rejectBatch(VoterRepository voterRepository, CandidateRepository candidateRepository,
+                             List<Voter> claimedVoters, List<Candidate> countedCandidates,
+                             BatchVoteReport.Outcome[] outcomes) {
+        for (Voter voter : claimedVoters) {
+            voterRepository.setHasVoted(voter, false);
+        }
+        if (countedCandidates != null) {
+            TallyEngine tally = TallyEngine.getInstance();
+            for (Candidate candidate : countedCandidates) {
+                candidateRepository.retractVote(candidate);
+                tally.retractVote(candidate.getCandidateId());
+            }
+        }
+        for (int i = 0; i < outcomes.length; i++) {
+            if (outcomes[i] == BatchVoteReport.Outcome.ACCEPTED) {
+                outcomes[i] = BatchVoteReport.Outcome.FAILED;
+            }
+        }
+    }
+    
+    /**
+     * Waits for a vote, rethrowing an admission or session rejection as it was raised.
+     */
+    private boolean await(CompletableFuture<Boolean> vote) {
+        try {
+            return vote.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof VoteRejectedException) {
+                throw (VoteRejectedException) e.getCause();
+            }
+            if (e.getCause() instanceof InvalidSessionException) {
+                throw (InvalidSessionException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Releases the has-voted claim of a vote that could not be recorded.
+     */
+    private void unclaim(VoterRepository voterRepository, Voter storedVoter, Voter voter) {
+        voterRepository.setHasVoted(storedVoter, false);
+        voter.setHasVoted(false);
     }
 }
-
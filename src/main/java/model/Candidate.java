@@ -1,5 +1,7 @@
 package model;
 
+import java.util.concurrent.atomic.LongAdder;
+
 /**
  * Represents a candidate in the online voting system.
  * This class stores candidate information including name, position, and vote count.
@@ -26,15 +28,15 @@ public class Candidate {
     
     /**
      * The total number of votes received by this candidate.
+     * A LongAdder so that concurrent ballots increment it without contention.
      */
-    private int voteCount;
+    private final LongAdder voteCount = new LongAdder();
     
     /**
      * Default constructor for Candidate.
      * Initializes voteCount to 0.
      */
     public Candidate() {
-        this.voteCount = 0;
     }
     
     /**
@@ -49,7 +51,6 @@ public class Candidate {
         this.candidateId = candidateId;
         this.name = name;
         this.position = position;
-        this.voteCount = 0;
     }
     
     /**
@@ -64,7 +65,7 @@ public class Candidate {
         this.candidateId = candidateId;
         this.name = name;
         this.position = position;
-        this.voteCount = voteCount;
+        this.voteCount.add(voteCount);
     }
     
     /**
@@ -127,16 +128,18 @@ public class Candidate {
      * @return The number of votes received
      */
     public int getVoteCount() {
-        return voteCount;
+        return voteCount.intValue();
     }
     
     /**
      * Sets the vote count for this candidate.
+     * Not atomic with respect to concurrent increments; used while no votes are cast.
      * 
      * @param voteCount The vote count to set
      */
     public void setVoteCount(int voteCount) {
-        this.voteCount = voteCount;
+        this.voteCount.reset();
+        this.voteCount.add(voteCount);
     }
     
     /**
@@ -144,7 +147,15 @@ public class Candidate {
      * This method is typically called when a vote is cast for this candidate.
      */
     public void incrementVoteCount() {
-        this.voteCount++;
+        this.voteCount.increment();
+    }
+    
+    /**
+     * Decrements the vote count by 1.
+     * Used to undo a vote that could not be recorded.
+     */
+    public void decrementVoteCount() {
+        this.voteCount.decrement();
     }
     
     /**
@@ -158,7 +169,7 @@ public class Candidate {
                 "candidateId='" + candidateId + '\'' +
                 ", name='" + name + '\'' +
                 ", position='" + position + '\'' +
-                ", voteCount=" + voteCount +
+                ", voteCount=" + voteCount.intValue() +
                 '}';
     }
 }
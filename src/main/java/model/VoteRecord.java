@@ -1,6 +1,6 @@
 package model;
 
-import java.util.Date;
+import java.time.Instant;
 
 /**
  * Represents a vote record in the online voting system.
@@ -22,16 +22,29 @@ public class VoteRecord {
     private String candidateId;
     
     /**
-     * The timestamp when the vote was cast.
+     * The time when the vote was cast, in milliseconds since the epoch.
+     * 0 means the time is unknown.
      */
-    private Date timestamp;
+    private long timestamp;
+    
+    /**
+     * The ledger hash chaining this vote to the one recorded before it, as hex.
+     * Null until the vote is recorded, or for votes recorded without a ledger.
+     */
+    private String hash;
+    
+    /**
+     * The index of this vote's leaf in the vote log's Merkle tree, which
+     * auditors use to request an inclusion proof. -1 if unknown.
+     */
+    private long logIndex = -1;
     
     /**
      * Default constructor for VoteRecord.
      * Initializes timestamp to the current date and time.
      */
     public VoteRecord() {
-        this.timestamp = new Date();
+        this.timestamp = System.currentTimeMillis();
     }
     
     /**
@@ -44,7 +57,7 @@ public class VoteRecord {
     public VoteRecord(String voterId, String candidateId) {
         this.voterId = voterId;
         this.candidateId = candidateId;
-        this.timestamp = new Date();
+        this.timestamp = System.currentTimeMillis();
     }
     
     /**
@@ -52,9 +65,9 @@ public class VoteRecord {
      * 
      * @param voterId The ID of the voter who cast the vote
      * @param candidateId The ID of the candidate who received the vote
-     * @param timestamp The timestamp when the vote was cast
+     * @param timestamp The time when the vote was cast, in epoch milliseconds
      */
-    public VoteRecord(String voterId, String candidateId, Date timestamp) {
+    public VoteRecord(String voterId, String candidateId, long timestamp) {
         this.voterId = voterId;
         this.candidateId = candidateId;
         this.timestamp = timestamp;
@@ -97,23 +110,59 @@ public class VoteRecord {
     }
     
     /**
-     * Gets the timestamp when the vote was cast.
+     * Gets the time when the vote was cast.
      * 
-     * @return The vote timestamp
+     * @return The vote timestamp in epoch milliseconds, or 0 if unknown
      */
-    public Date getTimestamp() {
+    public long getTimestamp() {
         return timestamp;
     }
     
     /**
-     * Sets the timestamp for this vote record.
+     * Sets the time when the vote was cast.
      * 
-     * @param timestamp The timestamp to set
+     * @param timestamp The timestamp to set, in epoch milliseconds
      */
-    public void setTimestamp(Date timestamp) {
+    public void setTimestamp(long timestamp) {
         this.timestamp = timestamp;
     }
     
+    /**
+     * Gets the ledger hash of this vote record.
+     * 
+     * @return The hex SHA-256 chain hash, or null if the vote carries none
+     */
+    public String getHash() {
+        return hash;
+    }
+    
+    /**
+     * Sets the ledger hash of this vote record.
+     * 
+     * @param hash The hex SHA-256 chain hash
+     */
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+    
+    /**
+     * Gets the Merkle tree leaf index of this vote record.
+     * 
+     * @return The leaf index, or -1 if unknown
+     */
+    public long getLogIndex() {
+        return logIndex;
+    }
+    
+    /**
+     * Sets the Merkle tree leaf index of this vote record.
+     * 
+     * @param logIndex The leaf index
+     */
+    public void setLogIndex(long logIndex) {
+        this.logIndex = logIndex;
+    }
+    
     /**
      * Returns a string representation of the VoteRecord object.
      * 
@@ -124,7 +173,7 @@ public class VoteRecord {
         return "VoteRecord{" +
                 "voterId='" + voterId + '\'' +
                 ", candidateId='" + candidateId + '\'' +
-                ", timestamp=" + timestamp +
+                ", timestamp=" + Instant.ofEpochMilli(timestamp) +
                 '}';
     }
 }
@@ -1,5 +1,7 @@
 package model;
 
+import java.util.concurrent.atomic.AtomicBoolean;
+
 /**
  * Represents a voter in the online voting system.
  * This class stores voter identification, voting status, and authentication credentials.
@@ -16,9 +18,10 @@ public class Voter {
     
     /**
      * Indicates whether this voter has already cast a vote.
-     * Set to true after a vote is successfully cast.
+     * Set to true after a vote is successfully cast; atomic so that
+     * concurrent ballots can claim it with a compare-and-set.
      */
-    private boolean hasVoted;
+    private final AtomicBoolean hasVoted = new AtomicBoolean(false);
     
     /**
      * Password for voter authentication.
@@ -30,7 +33,6 @@ public class Voter {
      * Initializes hasVoted to false.
      */
     public Voter() {
-        this.hasVoted = false;
     }
     
     /**
@@ -42,7 +44,6 @@ public class Voter {
     public Voter(String id, String password) {
         this.id = id;
         this.password = password;
-        this.hasVoted = false;
     }
     
     /**
@@ -69,7 +70,7 @@ public class Voter {
      * @return true if the voter has voted, false otherwise
      */
     public boolean isHasVoted() {
-        return hasVoted;
+        return hasVoted.get();
     }
     
     /**
@@ -78,7 +79,17 @@ public class Voter {
      * @param hasVoted true if the voter has voted, false otherwise
      */
     public void setHasVoted(boolean hasVoted) {
-        this.hasVoted = hasVoted;
+        this.hasVoted.set(hasVoted);
+    }
+    
+    /**
+     * Atomically marks the voter as having voted.
+     * Of several threads calling this concurrently, exactly one succeeds.
+     * 
+     * @return true if the voter had not voted before, false otherwise
+     */
+    public boolean markVoted() {
+        return hasVoted.compareAndSet(false, true);
     }
     
     /**
@@ -108,7 +119,7 @@ public class Voter {
     public String toString() {
         return "Voter{" +
                 "id='" + id + '\'' +
-                ", hasVoted=" + hasVoted +
+                ", hasVoted=" + hasVoted.get() +
                 '}';
     }
 }
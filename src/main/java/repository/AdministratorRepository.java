@@ -0,0 +1,92 @@
+package repository;
+
+import model.Administrator;
+import storage.StorageFactory;
+
+import java.util.List;
+
+/**
+ * In-memory repository of administrators indexed by username.
+ * Implements Singleton pattern so all controllers and panels share one copy.
+ * 
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class AdministratorRepository extends InMemoryRepository<Administrator> {
+    
+    private static AdministratorRepository instance;
+    
+    private final CredentialIndex credentials = new CredentialIndex();
+    
+    /**
+     * Private constructor to enforce Singleton pattern.
+     */
+    private AdministratorRepository() {
+        super();
+        loadEntities();
+    }
+    
+    /**
+     * Gets the singleton instance of AdministratorRepository, loading administrators on first use.
+     * 
+     * @return The single AdministratorRepository instance
+     */
+    public static synchronized AdministratorRepository getInstance() {
+        if (instance == null) {
+            instance = new AdministratorRepository();
+        }
+        return instance;
+    }
+    
+    /**
+     * Gets the password hash of an administrator from the credential index
+     * without locking the repository.
+     * 
+     * @param username The username
+     * @return The stored hash, or null if the username is unknown
+     */
+    public String getPasswordHash(String username) {
+        return credentials.get(username);
+    }
+    
+    /**
+     * Replaces the password hash of a stored administrator with a stronger hash
+     * of the same password. The change is deferred, like voter rehashes.
+     * 
+     * @param administrator The stored administrator
+     * @param passwordHash The new password hash
+     */
+    public synchronized void rehashPassword(Administrator administrator, String passwordHash) {
+        if (findById(administrator.getUsername()) != administrator) {
+            return;
+        }
+        administrator.setPassword(passwordHash);
+        stored(administrator);
+        markDeferred();
+    }
+    
+    @Override
+    protected List<Administrator> loadAll() {
+        return StorageFactory.getStorage().loadAdministrators();
+    }
+    
+    @Override
+    protected boolean persist(List<Administrator> snapshot) {
+        return StorageFactory.getStorage().saveAdministrators(snapshot);
+    }
+    
+    @Override
+    protected String keyOf(Administrator administrator) {
+        return administrator.getUsername();
+    }
+    
+    @Override
+    protected void stored(Administrator administrator) {
+        credentials.put(administrator.getUsername(), administrator.getPassword());
+    }
+    
+    @Override
+    protected void removed(Administrator administrator) {
+        credentials.remove(administrator.getUsername());
+    }
+}
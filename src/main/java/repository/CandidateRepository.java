@@ -0,0 +1,115 @@
+package repository;
+
+import model.Candidate;
+import storage.Storage;
+import storage.StorageFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * In-memory repository of candidates indexed by candidate ID.
+ * Implements Singleton pattern so all controllers and panels share one copy.
+ * 
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class CandidateRepository extends InMemoryRepository<Candidate> {
+    
+    private static CandidateRepository instance;
+    
+    private final Storage storage = StorageFactory.getStorage();
+    
+    /**
+     * Vote log position captured with the last snapshot; see Storage.saveCandidates.
+     */
+    private long snapshotVotePosition;
+    
+    /**
+     * Private constructor to enforce Singleton pattern.
+     */
+    private CandidateRepository() {
+        super();
+        loadEntities();
+    }
+    
+    /**
+     * Gets the singleton instance of CandidateRepository, loading candidates on first use.
+     * 
+     * @return The single CandidateRepository instance
+     */
+    public static synchronized CandidateRepository getInstance() {
+        if (instance == null) {
+            instance = new CandidateRepository();
+        }
+        return instance;
+    }
+    
+    @Override
+    protected List<Candidate> loadAll() {
+        return storage.loadCandidates();
+    }
+    
+    @Override
+    protected Lock snapshotLock() {
+        return storage.getVoteLock().writeLock();
+    }
+    
+    @Override
+    protected List<Candidate> snapshot() {
+        // Copy the counts together with the vote log position (ballots are
+        // excluded by the snapshot lock); counts keep changing while the
+        // snapshot is being written
+        snapshotVotePosition = storage.getVotePosition();
+        List<Candidate> copies = new ArrayList<>();
+        for (Candidate candidate : super.snapshot()) {
+            copies.add(new Candidate(candidate.getCandidateId(), candidate.getName(),
+                    candidate.getPosition(), candidate.getVoteCount()));
+        }
+        return copies;
+    }
+    
+    @Override
+    protected boolean persist(List<Candidate> snapshot) {
+        return storage.saveCandidates(snapshot, snapshotVotePosition);
+    }
+    
+    /**
+     * Adds an accepted vote to a stored candidate's count. The change is
+     * deferred: the recorded vote is replayed after a restart, so the count is
+     * written with the next flush of other changes.
+     * 
+     * @param candidate The stored candidate
+     */
+    public void addVote(Candidate candidate) {
+        candidate.incrementVoteCount();
+        markDeferred();
+    }
+    
+    /**
+     * Removes a vote that could not be recorded from a stored candidate's
+     * count. A snapshot may already hold the vote, so the count is marked dirty.
+     * Unlike {@link #markDirty()} this leaves the live tally alone; the caller
+     * retracts the vote there itself.
+     * 
+     * @param candidate The stored candidate
+     */
+    public void retractVote(Candidate candidate) {
+        candidate.decrementVoteCount();
+        super.markDirty();
+    }
+    
+    @Override
+    public void markDirty() {
+        super.markDirty();
+        // Every change to the candidate set or to a candidate passes through
+        // here, except the vote counts kept in step by addVote and retractVote
+        TallyEngine.getInstance().invalidate();
+    }
+    
+    @Override
+    protected String keyOf(Candidate candidate) {
+        return candidate.getCandidateId();
+    }
+}
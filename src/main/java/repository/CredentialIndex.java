@@ -0,0 +1,54 @@
+package repository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Password hashes of a repository's accounts, indexed by account key.
+ * Lookups take no lock, so logins neither wait for the repository nor for
+ * each other. The hash strings are the ones held by the entities, so the
+ * index costs one map entry per account. The owning repository keeps the
+ * index in step with its entities.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+class CredentialIndex {
+
+    private final Map<String, String> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * Indexes the password hash of an account, replacing any previous one.
+     * Accounts without a hash are removed from the index, so no password
+     * matches them.
+     *
+     * @param key The account key
+     * @param passwordHash The password hash as stored on the entity
+     */
+    void put(String key, String passwordHash) {
+        if (passwordHash == null || passwordHash.isEmpty()) {
+            hashes.remove(key);
+        } else {
+            hashes.put(key, passwordHash);
+        }
+    }
+
+    /**
+     * Removes an account from the index.
+     *
+     * @param key The account key
+     */
+    void remove(String key) {
+        hashes.remove(key);
+    }
+
+    /**
+     * Gets the password hash of an account.
+     *
+     * @param key The account key
+     * @return The stored hash, or null if the account is unknown or has no password
+     */
+    String get(String key) {
+        return key == null ? null : hashes.get(key);
+    }
+}
@@ -0,0 +1,345 @@
+package repository;
+
+import utils.AppConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Base class for the in-memory repositories.
+ * Loads a dataset once into a map indexed by entity key and writes changes
+ * back to disk behind the caller, either on a fixed interval or as soon as
+ * the number of unsaved changes reaches a threshold. Deferred changes, see
+ * {@link #markDeferred()}, never trigger a write themselves.
+ *
+ * Lookups by key and change marks take no lock, so the ballot path never waits
+ * for a flush copying the entities under the repository monitor.
+ *
+ * Lock order: a repository that snapshots under the storage's vote lock
+ * (see {@link #snapshotLock()}) takes that lock before its own monitor, never
+ * the other way round. Code holding the vote lock may therefore call any
+ * repository method, while code holding a repository monitor must not wait
+ * for the vote lock.
+ *
+ * Configuration (system properties):
+ * - voting.repository.flushIntervalMillis: interval between background flushes (default 2000)
+ * - voting.repository.flushThreshold: unsaved changes that trigger an early flush (default 100)
+ *
+ * @param <T> The entity type stored by the repository
+ * @author Online Voting System
+ * @version 1.0
+ */
+public abstract class InMemoryRepository<T> {
+
+    private static final long FLUSH_INTERVAL_MILLIS =
+            AppConfig.getLong("voting.repository.flushIntervalMillis", 2000);
+    private static final int FLUSH_THRESHOLD =
+            AppConfig.getInt("voting.repository.flushThreshold", 100);
+
+    /**
+     * Single background thread shared by all repositories for write-behind flushes.
+     */
+    private static final ScheduledExecutorService FLUSH_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "repository-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private final Map<String, T> entities = new LinkedHashMap<>();
+
+    /**
+     * The same entities by key for lookups without the monitor; written only
+     * together with entities, under the monitor.
+     */
+    private final Map<String, T> index = new ConcurrentHashMap<>();
+
+    private final Object flushLock = new Object();
+    private final AtomicInteger dirtyCount = new AtomicInteger();
+    private final AtomicBoolean deferredChanges = new AtomicBoolean();
+    private final AtomicBoolean flushPending = new AtomicBoolean();
+
+    /**
+     * Schedules the periodic write-behind flush.
+     * Subclasses call {@link #loadEntities()} once their own fields are set.
+     */
+    protected InMemoryRepository() {
+        FLUSH_EXECUTOR.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                flush(false);
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Loads the dataset into the index.
+     */
+    protected final synchronized void loadEntities() {
+        for (T entity : entities.values()) {
+            removed(entity);
+        }
+        entities.clear();
+        index.clear();
+        for (T entity : loadAll()) {
+            entities.put(keyOf(entity), entity);
+            index.put(keyOf(entity), entity);
+            stored(entity);
+        }
+    }
+
+    /**
+     * Loads all entities from persistent storage.
+     *
+     * @return List of entities in storage order
+     */
+    protected abstract List<T> loadAll();
+
+    /**
+     * Writes all entities to persistent storage.
+     *
+     * @param snapshot The entities to write, in storage order
+     * @return true if the entities were written, false if the write failed
+     */
+    protected abstract boolean persist(List<T> snapshot);
+
+    /**
+     * Gets the key an entity is indexed by.
+     *
+     * @param entity The entity
+     * @return The unique key of the entity
+     */
+    protected abstract String keyOf(T entity);
+
+    /**
+     * Called with the repository locked after an entity was loaded or added,
+     * so subclasses can maintain secondary indexes.
+     *
+     * @param entity The stored entity
+     */
+    protected void stored(T entity) {
+    }
+
+    /**
+     * Called with the repository locked after an entity was deleted.
+     *
+     * @param entity The removed entity
+     */
+    protected void removed(T entity) {
+    }
+
+    /**
+     * Gets the lock a flush holds, taken before the repository monitor, while
+     * it captures the snapshot.
+     *
+     * @return The lock, or null if snapshots need no lock besides the monitor
+     */
+    protected Lock snapshotLock() {
+        return null;
+    }
+
+    /**
+     * Captures the entities to persist while the repository is locked, and
+     * while the {@link #snapshotLock()} is held, after the pending changes were
+     * taken; changes marked during the copy are written again by the next flush.
+     * Subclasses whose entities are mutated concurrently override this to copy them.
+     *
+     * @return The entities to pass to persist
+     */
+    protected synchronized List<T> snapshot() {
+        return new ArrayList<>(entities.values());
+    }
+
+    /**
+     * Finds an entity by its key.
+     *
+     * @param key The entity key
+     * @return The stored entity, or null if none exists
+     */
+    public T findById(String key) {
+        if (key == null) {
+            return null;
+        }
+        return index.get(key);
+    }
+
+    /**
+     * Checks whether an entity with the given key exists.
+     *
+     * @param key The entity key
+     * @return true if the entity exists, false otherwise
+     */
+    public boolean exists(String key) {
+        return key != null && index.containsKey(key);
+    }
+
+    /**
+     * Gets all entities in storage order.
+     * The returned list is a copy; the entities themselves are the stored instances.
+     *
+     * @return List of all entities
+     */
+    public synchronized List<T> findAll() {
+        return new ArrayList<>(entities.values());
+    }
+
+    /**
+     * Gets the number of stored entities.
+     *
+     * @return The entity count
+     */
+    public synchronized int size() {
+        return entities.size();
+    }
+
+    /**
+     * Adds a new entity.
+     *
+     * @param entity The entity to add
+     * @return true if added, false if an entity with the same key already exists
+     */
+    public synchronized boolean add(T entity) {
+        String key = keyOf(entity);
+        if (entities.containsKey(key)) {
+            return false;
+        }
+        entities.put(key, entity);
+        index.put(key, entity);
+        stored(entity);
+        markDirty();
+        return true;
+    }
+
+    /**
+     * Adds several new entities, skipping keys that already exist.
+     *
+     * @param newEntities The entities to add
+     * @return The number of entities added
+     */
+    public synchronized int addAll(Collection<T> newEntities) {
+        int added = 0;
+        for (T entity : newEntities) {
+            String key = keyOf(entity);
+            if (!entities.containsKey(key)) {
+                entities.put(key, entity);
+                index.put(key, entity);
+                stored(entity);
+                added++;
+            }
+        }
+        if (added > 0) {
+            markDirty();
+        }
+        return added;
+    }
+
+    /**
+     * Deletes an entity by its key.
+     *
+     * @param key The entity key
+     * @return true if the entity existed and was removed, false otherwise
+     */
+    public synchronized boolean delete(String key) {
+        T entity = key == null ? null : entities.remove(key);
+        if (entity == null) {
+            return false;
+        }
+        index.remove(key);
+        removed(entity);
+        markDirty();
+        return true;
+    }
+
+    /**
+     * Records that a stored entity was modified in place so it will be written
+     * by the next flush. Takes no lock.
+     */
+    public void markDirty() {
+        if (dirtyCount.incrementAndGet() >= FLUSH_THRESHOLD && flushPending.compareAndSet(false, true)) {
+            FLUSH_EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    flush(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Records that a stored entity was modified in place in a way that may wait:
+     * the change is written with the next flush of other changes, or by an
+     * explicit {@link #flush()}, but never causes a write by itself.
+     * Takes no lock, and does not write shared memory when a deferred change
+     * is already pending, so that it is cheap on the ballot path.
+     */
+    public void markDeferred() {
+        if (!deferredChanges.get()) {
+            deferredChanges.set(true);
+        }
+    }
+
+    /**
+     * Writes pending changes to disk if there are any.
+     * Runs on the caller's thread; used by the background flush, on shutdown,
+     * and wherever an operation must be on disk before continuing.
+     * If the write fails the changes stay pending and the next flush retries them.
+     */
+    public void flush() {
+        flush(true);
+    }
+
+    /**
+     * Writes pending changes to disk if there are any.
+     *
+     * @param includeDeferred Whether deferred changes alone are worth a write;
+     *                        false for the background flushes
+     */
+    protected void flush(boolean includeDeferred) {
+        synchronized (flushLock) {
+            flushPending.set(false);
+            if (dirtyCount.get() == 0 && !(includeDeferred && deferredChanges.get())) {
+                return;
+            }
+
+            // The snapshot lock comes first; see the lock order in the class comment
+            List<T> pending;
+            int changes;
+            boolean deferred;
+            Lock lock = snapshotLock();
+            if (lock != null) {
+                lock.lock();
+            }
+            try {
+                synchronized (this) {
+                    changes = dirtyCount.getAndSet(0);
+                    deferred = deferredChanges.getAndSet(false);
+                    pending = snapshot();
+                }
+            } finally {
+                if (lock != null) {
+                    lock.unlock();
+                }
+            }
+            if (!persist(pending)) {
+                dirtyCount.addAndGet(changes);
+                if (deferred) {
+                    deferredChanges.set(true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package repository;
+
+import model.Candidate;
+import model.Voter;
+import storage.Storage;
+import storage.StorageFactory;
+import utils.DataManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Convenience operations spanning all repositories.
+ * 
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class Repositories {
+    
+    /**
+     * Loads every repository so that later lookups never touch the disk,
+     * and prints how long each step took.
+     */
+    public static void initialize() {
+        long start = System.nanoTime();
+        StorageFactory.getStorage();
+        long storageDone = System.nanoTime();
+        long administratorsDone;
+        long candidatesDone;
+        long votersDone;
+        // The CSV loads print where their data came from as part of the breakdown
+        DataManager.setLoadLogging(true);
+        try {
+            AdministratorRepository.getInstance();
+            administratorsDone = System.nanoTime();
+            CandidateRepository.getInstance();
+            candidatesDone = System.nanoTime();
+            VoterRepository.getInstance();
+            votersDone = System.nanoTime();
+        } finally {
+            DataManager.setLoadLogging(false);
+        }
+        
+        System.out.println("Startup: storage " + millis(start, storageDone)
+                + " ms, administrators " + millis(storageDone, administratorsDone)
+                + " ms, candidates " + millis(administratorsDone, candidatesDone)
+                + " ms, voters " + millis(candidatesDone, votersDone)
+                + " ms, total " + millis(start, votersDone) + " ms");
+    }
+    
+    private static long millis(long startNanos, long endNanos) {
+        return (endNanos - startNanos) / 1_000_000;
+    }
+    
+    /**
+     * Writes all pending changes of every repository to disk.
+     */
+    public static void flushAll() {
+        AdministratorRepository.getInstance().flush();
+        CandidateRepository.getInstance().flush();
+        VoterRepository.getInstance().flush();
+    }
+    
+    /**
+     * Writes all pending changes, saves a snapshot of the voters and candidates
+     * for the next startup, and closes the storage; used on shutdown.
+     */
+    public static void shutdown() {
+        flushAll();
+        
+        // Read the repositories, in flush order, before taking the vote lock; only
+        // the counts and the log position need to be captured under it
+        Storage storage = StorageFactory.getStorage();
+        List<Candidate> storedCandidates = CandidateRepository.getInstance().findAll();
+        List<Voter> voters = VoterRepository.getInstance().findAll();
+        List<Candidate> candidates = new ArrayList<>();
+        long votePosition;
+        Lock snapshotLock = storage.getVoteLock().writeLock();
+        snapshotLock.lock();
+        try {
+            votePosition = storage.getVotePosition();
+            for (Candidate candidate : storedCandidates) {
+                candidates.add(new Candidate(candidate.getCandidateId(), candidate.getName(),
+                        candidate.getPosition(), candidate.getVoteCount()));
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+        storage.saveSnapshot(voters, candidates, votePosition);
+        storage.close();
+    }
+}
@@ -0,0 +1,620 @@
+package repository;
+
+import model.Candidate;
+import storage.StorageFactory;
+import utils.AppConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Live tally of the election, ordered by vote count.
+ * Implements Singleton pattern so every results screen reads the same tally.
+ *
+ * The tally keeps one leaderboard over all candidates and one per position
+ * (race). Positions are normalized first, so "President" and " president"
+ * belong to the same race; see {@link #normalizePosition(String)}.
+ *
+ * Each leaderboard keeps its candidates in an array sorted by count (highest
+ * first), and each count value maps to the bucket of array positions holding
+ * that count. A counted vote swaps the candidate with the first member of its
+ * bucket and moves the bucket boundary by one, so the order is maintained in
+ * constant time per vote. A retracted vote does the reverse at the end of the
+ * bucket. Candidates with equal counts appear in no particular order.
+ *
+ * Ballots do not reorder the leaderboards themselves: a vote only adds to the
+ * candidate's LongAdder and queues the candidate once, without taking a lock.
+ * The next reader (or the event thread) moves each queued candidate to its
+ * new count, so ballots for the same candidate never wait for each other.
+ *
+ * Results are served from a read-only copy per leaderboard that is rebuilt only
+ * when that leaderboard has changed, so polling an unchanged race costs no
+ * copying, no scan of other races and no I/O.
+ *
+ * Changes to the candidate set (added, deleted, edited or reset candidates)
+ * mark the tally stale; it is then rebuilt from the candidate repository on
+ * the next read, with ballots excluded by the storage's vote lock.
+ *
+ * Listeners are told about changes on a single event thread. Changes are
+ * coalesced: the first change after a quiet period schedules one event, and
+ * later changes until it is sent are folded into it, so listeners receive at
+ * most one event per interval however fast votes arrive.
+ *
+ * Configuration (system properties):
+ * - voting.tally.eventIntervalMillis: shortest time between two events (default 100)
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class TallyEngine {
+
+    private static TallyEngine instance;
+
+    /**
+     * A candidate and its rank in one leaderboard.
+     */
+    private static final class Slot {
+        private final Candidate candidate;
+        private long votes;
+        private int rank;
+
+        Slot(Candidate candidate, long votes, int rank) {
+            this.candidate = candidate;
+            this.votes = votes;
+            this.rank = rank;
+        }
+    }
+
+    /**
+     * The range of ranks holding one vote count.
+     */
+    private static final class Bucket {
+        private int start;
+        private int size;
+
+        Bucket(int start, int size) {
+            this.start = start;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Candidates of one race, or of the whole election, ordered by vote count.
+     */
+    private static final class Leaderboard {
+        private final String label;
+        private final List<Slot> ranked = new ArrayList<>();
+        private final Map<Long, Bucket> buckets = new HashMap<>();
+        private long version;
+        private List<Candidate> results = Collections.emptyList();
+        private long resultsVersion = -1;
+
+        /**
+         * Creates an empty leaderboard.
+         *
+         * @param label The race's display name, or null for the overall leaderboard
+         * @param version The starting version; the tally's version, so that a
+         *                rebuilt race never reports a version it had before
+         */
+        Leaderboard(String label, long version) {
+            this.label = label;
+            this.version = version;
+        }
+
+        /**
+         * Appends a candidate; candidates must be appended in descending count order.
+         */
+        Slot append(Candidate candidate, long votes) {
+            Slot slot = new Slot(candidate, votes, ranked.size());
+            ranked.add(slot);
+            Bucket bucket = buckets.get(votes);
+            if (bucket == null) {
+                buckets.put(votes, new Bucket(slot.rank, 1));
+            } else {
+                bucket.size++;
+            }
+            return slot;
+        }
+
+        void increment(Slot slot) {
+            Bucket from = buckets.get(slot.votes);
+            int first = from.start;
+            swap(slot.rank, first);
+            from.start++;
+            shrink(slot.votes, from);
+
+            slot.votes++;
+            Bucket to = buckets.get(slot.votes);
+            if (to == null) {
+                buckets.put(slot.votes, new Bucket(first, 1));
+            } else {
+                to.size++; // The higher bucket ends right before the old first rank
+            }
+            version++;
+        }
+
+        void decrement(Slot slot) {
+            Bucket from = buckets.get(slot.votes);
+            int last = from.start + from.size - 1;
+            swap(slot.rank, last);
+            shrink(slot.votes, from);
+
+            slot.votes--;
+            Bucket to = buckets.get(slot.votes);
+            if (to == null) {
+                buckets.put(slot.votes, new Bucket(last, 1));
+            } else {
+                to.start = last; // The lower bucket starts right after the old last rank
+                to.size++;
+            }
+            version++;
+        }
+
+        List<Candidate> results() {
+            if (resultsVersion != version) {
+                List<Candidate> copies = new ArrayList<>(ranked.size());
+                for (Slot slot : ranked) {
+                    Candidate candidate = slot.candidate;
+                    copies.add(new Candidate(candidate.getCandidateId(), candidate.getName(),
+                            candidate.getPosition(), (int) slot.votes));
+                }
+                results = Collections.unmodifiableList(copies);
+                resultsVersion = version;
+            }
+            return results;
+        }
+
+        private void swap(int i, int j) {
+            if (i == j) {
+                return;
+            }
+            Slot a = ranked.get(i);
+            Slot b = ranked.get(j);
+            ranked.set(i, b);
+            ranked.set(j, a);
+            a.rank = j;
+            b.rank = i;
+        }
+
+        /**
+         * Removes one member from a bucket, dropping the bucket once it is empty.
+         */
+        private void shrink(long votes, Bucket bucket) {
+            bucket.size--;
+            if (bucket.size == 0) {
+                buckets.remove(votes);
+            }
+        }
+    }
+
+    /**
+     * A candidate's slots in the overall leaderboard and in its race, and its
+     * vote count including votes not yet applied to the slots.
+     */
+    private static final class Standing {
+        private final Slot overall;
+        private final Slot race;
+        private final Leaderboard raceBoard;
+        private final LongAdder votes = new LongAdder();
+
+        /**
+         * Set while the standing is in the queue of counts to apply.
+         */
+        private final AtomicBoolean queued = new AtomicBoolean();
+
+        Standing(Slot overall, Slot race, Leaderboard raceBoard) {
+            this.overall = overall;
+            this.race = race;
+            this.raceBoard = raceBoard;
+            this.votes.add(overall.votes);
+        }
+    }
+
+    private Leaderboard overall = new Leaderboard(null, 0);
+    private final Map<String, Leaderboard> races = new LinkedHashMap<>();
+
+    /**
+     * Standings by candidate ID; replaced, never modified, by a rebuild, so
+     * ballots read it without locking.
+     */
+    private volatile Map<String, Standing> standingsById = Collections.emptyMap();
+
+    /**
+     * Standings whose count changed since it was last applied to the leaderboards.
+     */
+    private final ConcurrentLinkedQueue<Standing> pendingCounts = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Set when the candidate set changed; cleared by a rebuild.
+     */
+    private volatile boolean stale = true;
+
+    /**
+     * Incremented on every change of the tally.
+     */
+    private long version;
+
+    private final long eventIntervalNanos =
+            TimeUnit.MILLISECONDS.toNanos(Math.max(1, AppConfig.getLong("voting.tally.eventIntervalMillis", 100)));
+    private final List<TallyListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Set while an event is scheduled; changes made meanwhile are part of it.
+     */
+    private final AtomicBoolean eventPending = new AtomicBoolean();
+
+    /**
+     * Set by a candidate set change until the next event reports it.
+     */
+    private final AtomicBoolean candidatesChanged = new AtomicBoolean();
+
+    private ScheduledExecutorService eventThread;
+    private volatile long lastEventNanos = System.nanoTime() - eventIntervalNanos;
+    private long publishedVersion = -1;
+
+    /**
+     * Private constructor to enforce Singleton pattern.
+     */
+    private TallyEngine() {
+    }
+
+    /**
+     * Gets the singleton instance of TallyEngine.
+     *
+     * @return The single TallyEngine instance
+     */
+    public static synchronized TallyEngine getInstance() {
+        if (instance == null) {
+            instance = new TallyEngine();
+        }
+        return instance;
+    }
+
+    /**
+     * Normalizes a position name into the key of its race: surrounding
+     * whitespace is removed, inner whitespace collapsed, and case ignored.
+     *
+     * @param position The position as entered for a candidate
+     * @return The race key; empty for a missing position
+     */
+    public static String normalizePosition(String position) {
+        if (position == null) {
+            return "";
+        }
+        return position.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Marks the tally for a rebuild from the candidate repository.
+     * Cheap and lock-free, so it may be called while holding any lock.
+     */
+    public void invalidate() {
+        stale = true;
+        candidatesChanged.set(true);
+        changed();
+    }
+
+    /**
+     * Counts an accepted vote. Called while the vote lock's read lock is held,
+     * after the stored candidate's count was incremented. Takes no lock; the
+     * leaderboards are reordered by the next reader.
+     *
+     * @param candidateId The ID of the candidate receiving the vote
+     */
+    public void recordVote(String candidateId) {
+        // While stale, the standings are discarded: the rebuild reads the
+        // stored count, which includes this vote
+        Standing standing = standingsById.get(candidateId);
+        if (standing == null) {
+            return;
+        }
+        standing.votes.increment();
+        countChanged(standing);
+    }
+
+    /**
+     * Takes back a vote that could not be persisted. Called while the vote
+     * lock's read lock is held, after the stored candidate's count was
+     * decremented. Takes no lock, like {@link #recordVote(String)}.
+     *
+     * @param candidateId The ID of the candidate that had received the vote
+     */
+    public void retractVote(String candidateId) {
+        Standing standing = standingsById.get(candidateId);
+        if (standing == null) {
+            return;
+        }
+        standing.votes.decrement();
+        countChanged(standing);
+    }
+
+    /**
+     * Queues a standing whose count changed, unless it is queued already.
+     */
+    private void countChanged(Standing standing) {
+        // Read first, so ballots for a queued candidate only share the cache line
+        if (!standing.queued.get() && standing.queued.compareAndSet(false, true)) {
+            pendingCounts.add(standing);
+        }
+        changed();
+    }
+
+    /**
+     * Moves every queued standing to its current count. Each vote moves a
+     * candidate by one bucket, so this costs constant time per vote counted
+     * since the last call.
+     */
+    private synchronized void applyPendingCounts() {
+        Standing standing;
+        while ((standing = pendingCounts.poll()) != null) {
+            // Cleared before the count is read, so a later vote queues it again
+            standing.queued.set(false);
+            if (standingsById.get(standing.overall.candidate.getCandidateId()) != standing) {
+                continue; // Left over from before a rebuild
+            }
+            long votes = Math.max(0, standing.votes.sum());
+            while (standing.overall.votes < votes) {
+                overall.increment(standing.overall);
+                standing.raceBoard.increment(standing.race);
+                version++;
+            }
+            while (standing.overall.votes > votes) {
+                overall.decrement(standing.overall);
+                standing.raceBoard.decrement(standing.race);
+                version++;
+            }
+        }
+    }
+
+    /**
+     * Gets all candidates ordered by vote count (highest first).
+     *
+     * @return Read-only list of read-only candidate copies with their counts
+     */
+    public List<Candidate> getResults() {
+        refresh();
+        synchronized (this) {
+            return overall.results();
+        }
+    }
+
+    /**
+     * Gets the leading candidates.
+     *
+     * @param n The number of candidates to return
+     * @return Read-only list of at most n candidates ordered by vote count
+     */
+    public List<Candidate> getTopResults(int n) {
+        return head(getResults(), n);
+    }
+
+    /**
+     * Gets the ranking of one race without looking at other races.
+     *
+     * @param position The position, in any spelling that normalizes to the race
+     * @return Read-only list of the race's candidates ordered by vote count;
+     *         empty if no candidate runs for the position
+     */
+    public List<Candidate> getResults(String position) {
+        refresh();
+        synchronized (this) {
+            Leaderboard race = races.get(normalizePosition(position));
+            return race == null ? Collections.<Candidate>emptyList() : race.results();
+        }
+    }
+
+    /**
+     * Gets the leading candidates of one race.
+     *
+     * @param position The position, in any spelling that normalizes to the race
+     * @param n The number of candidates to return
+     * @return Read-only list of at most n candidates ordered by vote count
+     */
+    public List<Candidate> getTopResults(String position, int n) {
+        return head(getResults(position), n);
+    }
+
+    /**
+     * Gets the results of every race.
+     *
+     * @return Map from each race's display name (the spelling of its first
+     *         candidate) to its ranking, in order of first appearance
+     */
+    public Map<String, List<Candidate>> getResultsByPosition() {
+        refresh();
+        synchronized (this) {
+            Map<String, List<Candidate>> byPosition = new LinkedHashMap<>();
+            for (Leaderboard race : races.values()) {
+                byPosition.put(race.label, race.results());
+            }
+            return byPosition;
+        }
+    }
+
+    /**
+     * Gets a number that changes whenever the tally changes, so callers can
+     * skip redrawing an unchanged tally.
+     *
+     * @return The tally version
+     */
+    public long getVersion() {
+        refresh();
+        synchronized (this) {
+            return version;
+        }
+    }
+
+    /**
+     * Gets a number that changes whenever the given race changes.
+     *
+     * @param position The position, in any spelling that normalizes to the race
+     * @return The race version, or -1 if no candidate runs for the position
+     */
+    public long getVersion(String position) {
+        refresh();
+        synchronized (this) {
+            Leaderboard race = races.get(normalizePosition(position));
+            return race == null ? -1 : race.version;
+        }
+    }
+
+    /**
+     * Registers a listener for tally changes.
+     *
+     * @param listener The listener to add
+     */
+    public void addTallyListener(TallyListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener registered with {@link #addTallyListener}.
+     *
+     * @param listener The listener to remove
+     */
+    public void removeTallyListener(TallyListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Schedules an event for the changes made so far, unless one is already
+     * scheduled. Takes no lock, so it may be called while holding any lock.
+     */
+    private void changed() {
+        if (listeners.isEmpty() || eventPending.get() || !eventPending.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = Math.max(0, lastEventNanos + eventIntervalNanos - System.nanoTime());
+        eventThread().schedule(new Runnable() {
+            @Override
+            public void run() {
+                publish();
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Sends the current tally to every listener, on the event thread.
+     */
+    private void publish() {
+        // Cleared first, so a change from now on schedules the next event
+        eventPending.set(false);
+        lastEventNanos = System.nanoTime();
+        boolean rebuilt = candidatesChanged.getAndSet(false);
+        refresh();
+        TallyEvent event;
+        synchronized (this) {
+            if (version == publishedVersion && !rebuilt) {
+                return;
+            }
+            publishedVersion = version;
+            event = new TallyEvent(version, overall.results(), rebuilt);
+        }
+        for (TallyListener listener : listeners) {
+            try {
+                listener.tallyChanged(event);
+            } catch (RuntimeException e) {
+                // One failing listener must not keep the others from updating
+                System.err.println("Error in tally listener: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized ScheduledExecutorService eventThread() {
+        if (eventThread == null) {
+            eventThread = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "tally-events");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return eventThread;
+    }
+
+    private static List<Candidate> head(List<Candidate> ranking, int n) {
+        return ranking.subList(0, Math.max(0, Math.min(n, ranking.size())));
+    }
+
+    /**
+     * Rebuilds the leaderboards if the candidate set changed, and applies the
+     * counts of votes cast since the last read.
+     */
+    private void refresh() {
+        if (stale) {
+            rebuild();
+        }
+        applyPendingCounts();
+    }
+
+    /**
+     * Rebuilds the leaderboards from the stored candidates with ballots excluded.
+     */
+    private void rebuild() {
+        // Cleared before reading, so a change made during the rebuild triggers another.
+        // The candidate set is copied before taking the vote lock so that ballots
+        // are excluded only while the counts are read; taking the repository
+        // monitor under the vote lock would also follow the lock order
+        stale = false;
+        List<Candidate> candidates = CandidateRepository.getInstance().findAll();
+        Lock snapshotLock = StorageFactory.getStorage().getVoteLock().writeLock();
+        snapshotLock.lock();
+        try {
+            final Map<Candidate, Long> counts = new HashMap<>();
+            for (Candidate candidate : candidates) {
+                counts.put(candidate, (long) candidate.getVoteCount());
+            }
+            List<Candidate> sorted = new ArrayList<>(candidates);
+            sorted.sort(new Comparator<Candidate>() {
+                @Override
+                public int compare(Candidate c1, Candidate c2) {
+                    return Long.compare(counts.get(c2), counts.get(c1));
+                }
+            });
+
+            synchronized (this) {
+                version++;
+                overall = new Leaderboard(null, version);
+                races.clear();
+                Map<String, Standing> standings = new HashMap<>();
+
+                // Create the races in repository order so their order is stable
+                for (Candidate candidate : candidates) {
+                    String key = normalizePosition(candidate.getPosition());
+                    if (!races.containsKey(key)) {
+                        String label = candidate.getPosition() == null ? "" : candidate.getPosition().trim();
+                        races.put(key, new Leaderboard(label, version));
+                    }
+                }
+
+                // Appending in count order keeps every leaderboard sorted
+                for (Candidate candidate : sorted) {
+                    long votes = counts.get(candidate);
+                    Leaderboard race = races.get(normalizePosition(candidate.getPosition()));
+                    standings.put(candidate.getCandidateId(), new Standing(
+                            overall.append(candidate, votes), race.append(candidate, votes), race));
+                }
+                standingsById = standings;
+            }
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package repository;
+
+import model.Candidate;
+
+import java.util.List;
+
+/**
+ * A tally change published by {@link TallyEngine}.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class TallyEvent {
+
+    private final long version;
+    private final List<Candidate> results;
+    private final boolean candidatesChanged;
+
+    TallyEvent(long version, List<Candidate> results, boolean candidatesChanged) {
+        this.version = version;
+        this.results = results;
+        this.candidatesChanged = candidatesChanged;
+    }
+
+    /**
+     * Gets the tally version the event reflects, see {@link TallyEngine#getVersion()}.
+     *
+     * @return The tally version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets all candidates ordered by vote count (highest first).
+     *
+     * @return Read-only list of read-only candidate copies with their counts
+     */
+    public List<Candidate> getResults() {
+        return results;
+    }
+
+    /**
+     * Checks whether candidates were added, deleted, edited or reset since the
+     * previous event, rather than only receiving votes.
+     *
+     * @return true if the candidate set changed
+     */
+    public boolean isCandidatesChanged() {
+        return candidatesChanged;
+    }
+}
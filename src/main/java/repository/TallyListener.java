@@ -0,0 +1,21 @@
+package repository;
+
+/**
+ * Receives tally changes from {@link TallyEngine}.
+ * Events are coalesced: a listener hears about a burst of votes once, with
+ * the tally as it stands after the burst, and at most once per event interval.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public interface TallyListener {
+
+    /**
+     * Called on the tally's event thread after the tally changed.
+     * Implementations must return quickly; UI listeners hand the event to
+     * their UI thread.
+     *
+     * @param event The tally after the changes
+     */
+    void tallyChanged(TallyEvent event);
+}
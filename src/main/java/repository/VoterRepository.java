@@ -0,0 +1,233 @@
+package repository;
+
+import model.Voter;
+import storage.CsvStorage;
+import storage.Storage;
+import storage.StorageFactory;
+import utils.AppConfig;
+import utils.DataManager;
+import utils.MappedVoterStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * In-memory repository of voters indexed by voter ID.
+ * Implements Singleton pattern so all controllers and panels share one copy.
+ * 
+ * Voters are persisted to the configured storage. With the CSV storage and
+ * {@code -Dvoting.voterStore=mapped} they are kept in the binary voters.dat
+ * store instead (created from voters.csv on first use), where recording a vote
+ * flips one flag byte in place.
+ * 
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class VoterRepository extends InMemoryRepository<Voter> {
+    
+    private static final String VOTER_STORE_FILE = "voters.dat";
+    
+    private static VoterRepository instance;
+    
+    private final Storage storage = StorageFactory.getStorage();
+    
+    /**
+     * Binary voter store, or null when voters are kept in the storage.
+     */
+    private final MappedVoterStore store;
+    
+    /**
+     * Vote log position captured with the last snapshot; see Storage.saveVoters.
+     */
+    private long snapshotVotePosition;
+    
+    private final CredentialIndex credentials = new CredentialIndex();
+    
+    /**
+     * Private constructor to enforce Singleton pattern.
+     */
+    private VoterRepository() {
+        super();
+        store = openConfiguredStore(storage);
+        if (store != null) {
+            // voters.csv is no longer authoritative; keep checkpoints off it
+            DataManager.setVoterCheckpointEnabled(false);
+        }
+        loadEntities();
+    }
+    
+    /**
+     * Gets the singleton instance of VoterRepository, loading voters on first use.
+     * 
+     * @return The single VoterRepository instance
+     */
+    public static synchronized VoterRepository getInstance() {
+        if (instance == null) {
+            instance = new VoterRepository();
+        }
+        return instance;
+    }
+    
+    /**
+     * Opens the binary voter store if it is enabled.
+     * 
+     * @param storage The configured storage
+     * @return The store, or null when voters are kept in the storage
+     */
+    private static MappedVoterStore openConfiguredStore(Storage storage) {
+        if (!"mapped".equalsIgnoreCase(AppConfig.getString("voting.voterStore", "csv"))) {
+            return null;
+        }
+        if (!(storage instanceof CsvStorage)) {
+            System.err.println("The binary voter store requires the CSV storage; ignoring voting.voterStore");
+            return null;
+        }
+        
+        File storeFile = new File(VOTER_STORE_FILE);
+        try {
+            if (!storeFile.exists()) {
+                // voters.csv reflects the journal once loaded, so convert from that state
+                MappedVoterStore store = new MappedVoterStore(storeFile);
+                store.replaceAll(storage.loadVoters());
+                store.force();
+                return store;
+            }
+            return new MappedVoterStore(storeFile);
+        } catch (IOException e) {
+            System.err.println("Error opening voter store, falling back to voters.csv: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Gets the password hash of a voter from the credential index without
+     * locking the repository, so the time a login takes does not depend on
+     * the number of voters.
+     * 
+     * @param voterId The voter ID
+     * @return The stored hash, or null if the voter ID is unknown
+     */
+    public String getPasswordHash(String voterId) {
+        return credentials.get(voterId);
+    }
+    
+    /**
+     * Checks whether voters may be stored with salted password hashes.
+     * The binary store only has room for a SHA-256 hash, so it keeps the
+     * legacy unsalted format.
+     * 
+     * @return true unless the binary voter store is in use
+     */
+    public boolean storesSaltedHashes() {
+        return store == null;
+    }
+    
+    /**
+     * Replaces the password hash of a stored voter with a stronger hash of the
+     * same password. The change is deferred, so rehashes at login are written
+     * together with the next votes rather than each rewriting the voters; a
+     * rehash lost in a crash is simply repeated at the next login.
+     * 
+     * @param voter The stored voter
+     * @param passwordHash The new password hash, in a format the store accepts (see storesSaltedHashes)
+     */
+    public synchronized void rehashPassword(Voter voter, String passwordHash) {
+        if (findById(voter.getId()) != voter) {
+            return;
+        }
+        voter.setPassword(passwordHash);
+        stored(voter);
+        markDeferred();
+    }
+    
+    /**
+     * Sets the voting status of a stored voter.
+     * With the binary store the flag is written in place immediately; otherwise
+     * the repository is marked dirty, because a snapshot may already hold the
+     * old status and no recorded vote corrects it.
+     * 
+     * @param voter The stored voter
+     * @param hasVoted The new voting status
+     */
+    public void setHasVoted(Voter voter, boolean hasVoted) {
+        voter.setHasVoted(hasVoted);
+        if (store != null) {
+            store.setHasVoted(voter.getId(), hasVoted);
+        } else {
+            markDirty();
+        }
+    }
+    
+    /**
+     * Atomically marks a stored voter as having voted.
+     * Only the caller that wins the compare-and-set writes the binary store.
+     * Otherwise the change is deferred: the recorded vote is replayed after a
+     * restart, so the flag is written with the next flush of other changes.
+     * 
+     * @param voter The stored voter
+     * @return true if the voter had not voted before, false otherwise
+     */
+    public boolean markVoted(Voter voter) {
+        if (!voter.markVoted()) {
+            return false;
+        }
+        if (store != null) {
+            store.setHasVoted(voter.getId(), true);
+        } else {
+            markDeferred();
+        }
+        return true;
+    }
+    
+    @Override
+    protected void flush(boolean includeDeferred) {
+        super.flush(includeDeferred);
+        if (store != null) {
+            store.force();
+        }
+    }
+    
+    @Override
+    protected List<Voter> loadAll() {
+        if (store != null) {
+            return store.loadVoters();
+        }
+        return storage.loadVoters();
+    }
+    
+    @Override
+    protected List<Voter> snapshot() {
+        // No snapshot lock: ballots claim the voter before their vote is
+        // ordered, so every vote up to the position is in the copy. Later votes
+        // may be in it too; the storage re-applies them anyway, and a claim
+        // released after a failed vote marks the repository dirty again.
+        snapshotVotePosition = storage.getVotePosition();
+        return super.snapshot();
+    }
+    
+    @Override
+    protected boolean persist(List<Voter> snapshot) {
+        if (store != null) {
+            store.replaceAll(snapshot);
+            store.force();
+            return true;
+        }
+        return storage.saveVoters(snapshot, snapshotVotePosition);
+    }
+    
+    @Override
+    protected String keyOf(Voter voter) {
+        return voter.getId();
+    }
+    
+    @Override
+    protected void stored(Voter voter) {
+        credentials.put(voter.getId(), voter.getPassword());
+    }
+    
+    @Override
+    protected void removed(Voter voter) {
+        credentials.remove(voter.getId());
+    }
+}
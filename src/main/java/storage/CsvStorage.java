@@ -0,0 +1,144 @@
+package storage;
+
+import model.Administrator;
+import model.Candidate;
+import model.VoteRecord;
+import model.Voter;
+import utils.CsvParser;
+import utils.DataManager;
+import utils.LedgerReport;
+import utils.MerkleLog;
+import utils.ParallelCsvLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Storage backed by the CSV files in the working directory.
+ * Delegates to DataManager; the vote log is the votes.csv journal and its
+ * position is the journal length in bytes, counting votes discarded after a
+ * failed write. Votes are written by a group-commit writer whose durability
+ * is set with -Dvoting.journal.durability.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class CsvStorage implements Storage {
+
+    private final ReadWriteLock voteLock = new ReentrantReadWriteLock();
+
+    /**
+     * Creates the CSV storage, migrating a legacy votes.csv first.
+     */
+    public CsvStorage() {
+        DataManager.migrateVoteJournal();
+    }
+
+    @Override
+    public ReadWriteLock getVoteLock() {
+        return voteLock;
+    }
+
+    @Override
+    public long getVotePosition() {
+        return DataManager.getVoteJournalPosition();
+    }
+
+    @Override
+    public List<Voter> loadVoters() {
+        return DataManager.loadVoters();
+    }
+
+    @Override
+    public boolean saveVoters(List<Voter> voters, long votePosition) {
+        return DataManager.saveVoters(voters, votePosition);
+    }
+
+    @Override
+    public List<Candidate> loadCandidates() {
+        return DataManager.loadCandidates();
+    }
+
+    @Override
+    public boolean saveCandidates(List<Candidate> candidates, long votePosition) {
+        return DataManager.saveCandidates(candidates, votePosition);
+    }
+
+    @Override
+    public List<Administrator> loadAdministrators() {
+        return DataManager.loadAdministrators();
+    }
+
+    @Override
+    public boolean saveAdministrators(List<Administrator> administrators) {
+        return DataManager.saveAdministrators(administrators);
+    }
+
+    @Override
+    public List<VoteRecord> loadVoteRecords() {
+        return DataManager.loadVoteRecords();
+    }
+
+    @Override
+    public LedgerReport verifyVoteLedger() {
+        return DataManager.verifyVoteLedger();
+    }
+
+    @Override
+    public MerkleLog getVoteLog() {
+        return DataManager.getVoteLog();
+    }
+
+    @Override
+    public long getVoteLogIndex(String voterId) {
+        return DataManager.getVoteLogIndex(voterId);
+    }
+
+    @Override
+    public <A> A reduceVoteRecords(long votePosition, final VoteReducer<A> reducer) {
+        return DataManager.reduceVoteJournal(votePosition, new ParallelCsvLoader.RowReducer<A>() {
+            @Override
+            public A create() {
+                return reducer.create();
+            }
+
+            @Override
+            public void accumulate(A accumulator, CsvParser.Row row) {
+                reducer.accumulate(accumulator, row.get(0), row.get(1));
+            }
+
+            @Override
+            public A combine(A left, A right) {
+                return reducer.combine(left, right);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> recordVote(VoteRecord record) {
+        return DataManager.appendVoteRecord(record);
+    }
+
+    @Override
+    public CompletableFuture<Void> recordVotes(List<VoteRecord> records) {
+        return DataManager.appendVoteRecords(records);
+    }
+
+    @Override
+    public void clearVotes() {
+        DataManager.saveVoteRecords(new ArrayList<VoteRecord>());
+    }
+
+    @Override
+    public void saveSnapshot(List<Voter> voters, List<Candidate> candidates, long votePosition) {
+        DataManager.writeStateSnapshot(voters, candidates, votePosition);
+    }
+
+    @Override
+    public void close() {
+        DataManager.closeVoteJournal();
+    }
+}
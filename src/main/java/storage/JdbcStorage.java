@@ -0,0 +1,892 @@
+package storage;
+
+import model.Administrator;
+import model.Candidate;
+import model.VoteRecord;
+import model.Voter;
+import utils.AppConfig;
+import utils.LedgerReport;
+import utils.MerkleLog;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Storage backed by an embedded SQL database over JDBC, for example a
+ * file-based H2, Derby or SQLite database. Only portable SQL is used, and the
+ * driver is supplied on the classpath at runtime.
+ *
+ * Votes are written with group commit: recording a vote assigns its sequence
+ * number and queues it, and a writer thread inserts the queued votes, flags
+ * their voters and adds them to their candidates' counts in one transaction.
+ * Ballots therefore never wait for each other's commits. If a transaction
+ * fails, each vote group in it is retried on its own, so only the votes that
+ * cannot be recorded, such as a second vote by the same voter, fail. The vote
+ * log position is the sequence number of the last queued vote; saves wait
+ * until the votes up to their snapshot position are written.
+ *
+ * Other access goes through the same connection and is serialized on this
+ * object, except scans of the whole vote table, which read committed rows
+ * through a second connection so that votes are recorded while an audit runs.
+ * Saving voters writes only the rows that differ from what the table holds,
+ * and saving candidates updates each row in place.
+ *
+ * Configuration (system properties):
+ * - voting.storage.jdbc.batchSize: the most votes written per transaction (default 256)
+ * - voting.storage.jdbc.queueCapacity: the most vote groups waiting to be written (default 65536)
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class JdbcStorage implements Storage {
+
+    private static final int BATCH_SIZE =
+            Math.max(1, AppConfig.getInt("voting.storage.jdbc.batchSize", 256));
+    private static final int QUEUE_CAPACITY =
+            Math.max(1, AppConfig.getInt("voting.storage.jdbc.queueCapacity", 65536));
+
+    private static final String[] SCHEMA = {
+        "CREATE TABLE voters (id VARCHAR(255) NOT NULL PRIMARY KEY, has_voted SMALLINT NOT NULL, password_hash VARCHAR(255))",
+        "CREATE TABLE candidates (candidate_id VARCHAR(255) NOT NULL PRIMARY KEY, candidate_name VARCHAR(255),"
+                + " candidate_position VARCHAR(255), vote_count INTEGER NOT NULL)",
+        "CREATE TABLE administrators (username VARCHAR(255) NOT NULL PRIMARY KEY, password_hash VARCHAR(255))",
+        "CREATE TABLE votes (seq BIGINT NOT NULL PRIMARY KEY, voter_id VARCHAR(255) NOT NULL UNIQUE,"
+                + " candidate_id VARCHAR(255) NOT NULL, cast_at BIGINT NOT NULL)"
+    };
+
+    /**
+     * Voter row as last read from or written to the voters table.
+     */
+    private static final class StoredVoter {
+        private boolean hasVoted;
+        private String passwordHash;
+
+        StoredVoter(boolean hasVoted, String passwordHash) {
+            this.hasVoted = hasVoted;
+            this.passwordHash = passwordHash;
+        }
+    }
+
+    /**
+     * Votes queued by one call to recordVote or recordVotes. The group is
+     * recorded as a whole or not at all.
+     */
+    private static final class VoteGroup {
+        private final List<VoteRecord> records;
+        private final long firstSeq;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private SQLException failure;
+
+        VoteGroup(List<VoteRecord> records, long firstSeq) {
+            this.records = records;
+            this.firstSeq = firstSeq;
+        }
+    }
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final Connection connection;
+    private final boolean created;
+    private final PreparedStatement insertVote;
+    private final PreparedStatement markVoter;
+    private final PreparedStatement addCandidateVotes;
+    private final ReadWriteLock voteLock = new ReentrantReadWriteLock();
+
+    /**
+     * Vote groups waiting for the writer thread, guarded by queueLock, which
+     * is taken after this object's monitor and never before it.
+     */
+    private final Object queueLock = new Object();
+    private final ArrayDeque<VoteGroup> queuedVotes = new ArrayDeque<>();
+    private long lastVoteSeq;
+    private boolean writerClosed;
+    private final Thread writerThread;
+
+    /**
+     * Sequence number of the last vote the writer thread has finished with,
+     * whether it was committed or failed; guarded by this object.
+     */
+    private long writtenVoteSeq;
+
+    /**
+     * Contents of the voters table by voter ID, or null until first read.
+     */
+    private Map<String, StoredVoter> storedVoters;
+
+    /**
+     * Connection for scans of the vote table, guarded by scanLock.
+     */
+    private final Object scanLock = new Object();
+    private Connection scanConnection;
+
+    /**
+     * Opens the database, creating the tables if they do not exist.
+     *
+     * @param url The JDBC URL, for example jdbc:h2:./voting
+     * @param user The database user, or null
+     * @param password The database password, or null
+     * @throws SQLException if the database cannot be opened or initialized
+     */
+    public JdbcStorage(String url, String user, String password) throws SQLException {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        connection = DriverManager.getConnection(url, user, password);
+        try {
+            connection.setAutoCommit(false);
+            created = createSchemaIfMissing() || isEmpty();
+
+            insertVote = connection.prepareStatement(
+                    "INSERT INTO votes (seq, voter_id, candidate_id, cast_at) VALUES (?, ?, ?, ?)");
+            markVoter = connection.prepareStatement(
+                    "UPDATE voters SET has_voted = 1 WHERE id = ?");
+            addCandidateVotes = connection.prepareStatement(
+                    "UPDATE candidates SET vote_count = vote_count + ? WHERE candidate_id = ?");
+
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT MAX(seq) FROM votes")) {
+                result.next();
+                lastVoteSeq = result.getLong(1);
+                writtenVoteSeq = lastVoteSeq;
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "jdbc-vote-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Checks whether the database held no data when this storage was opened,
+     * because its tables were just created or an earlier import was rolled back.
+     *
+     * @return true if the database was empty
+     */
+    public boolean isCreated() {
+        return created;
+    }
+
+    /**
+     * Copies all data from another storage into this one, in one transaction.
+     * Used to seed a new database from the CSV files; if any part fails,
+     * nothing is imported.
+     *
+     * @param source The storage to copy from
+     * @throws SQLException if the data could not be imported
+     */
+    public synchronized void importFrom(Storage source) throws SQLException {
+        if (storedVoters == null) {
+            loadVoters();
+            if (storedVoters == null) {
+                throw new SQLException("The voters table could not be read");
+            }
+        }
+        long votePosition = getVotePosition();
+        awaitVotesWritten(votePosition);
+        long seq = votePosition;
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO votes (seq, voter_id, candidate_id, cast_at) VALUES (?, ?, ?, ?)")) {
+            writeAdministrators(source.loadAdministrators());
+            writeCandidates(source.loadCandidates(), votePosition);
+            writeVoters(source.loadVoters(), votePosition);
+
+            for (VoteRecord record : source.loadVoteRecords()) {
+                insert.setLong(1, ++seq);
+                insert.setString(2, record.getVoterId());
+                insert.setString(3, record.getCandidateId());
+                insert.setLong(4, record.getTimestamp());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            storedVoters = null;
+            throw e;
+        }
+
+        synchronized (queueLock) {
+            lastVoteSeq += seq - votePosition;
+        }
+        writtenVoteSeq += seq - votePosition;
+    }
+
+    @Override
+    public ReadWriteLock getVoteLock() {
+        return voteLock;
+    }
+
+    @Override
+    public long getVotePosition() {
+        synchronized (queueLock) {
+            return lastVoteSeq;
+        }
+    }
+
+    @Override
+    public synchronized List<Voter> loadVoters() {
+        awaitVotesWritten(getVotePosition());
+        List<Voter> voters = new ArrayList<>();
+        Map<String, StoredVoter> stored = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT id, has_voted, password_hash FROM voters ORDER BY id")) {
+            while (result.next()) {
+                Voter voter = new Voter();
+                voter.setId(result.getString(1));
+                voter.setHasVoted(result.getInt(2) != 0);
+                voter.setPassword(result.getString(3));
+                voters.add(voter);
+                stored.put(voter.getId(), new StoredVoter(voter.isHasVoted(), voter.getPassword()));
+            }
+            connection.commit();
+            storedVoters = stored;
+        } catch (SQLException e) {
+            rollback();
+            System.err.println("Error loading voters: " + e.getMessage());
+        }
+        return voters;
+    }
+
+    @Override
+    public synchronized boolean saveVoters(List<Voter> voters, long votePosition) {
+        if (storedVoters == null) {
+            loadVoters();
+            if (storedVoters == null) {
+                return false;
+            }
+        }
+
+        awaitVotesWritten(votePosition);
+        try {
+            writeVoters(voters, votePosition);
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            rollback();
+            storedVoters = null;
+            System.err.println("Error saving voters: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized List<Candidate> loadCandidates() {
+        awaitVotesWritten(getVotePosition());
+        List<Candidate> candidates = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT candidate_id, candidate_name, candidate_position, vote_count"
+                             + " FROM candidates ORDER BY candidate_id")) {
+            while (result.next()) {
+                candidates.add(new Candidate(result.getString(1), result.getString(2),
+                        result.getString(3), result.getInt(4)));
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            System.err.println("Error loading candidates: " + e.getMessage());
+        }
+        return candidates;
+    }
+
+    @Override
+    public synchronized boolean saveCandidates(List<Candidate> candidates, long votePosition) {
+        awaitVotesWritten(votePosition);
+        try {
+            writeCandidates(candidates, votePosition);
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            rollback();
+            System.err.println("Error saving candidates: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized List<Administrator> loadAdministrators() {
+        List<Administrator> administrators = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT username, password_hash FROM administrators ORDER BY username")) {
+            while (result.next()) {
+                administrators.add(new Administrator(result.getString(1), result.getString(2)));
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            System.err.println("Error loading administrators: " + e.getMessage());
+        }
+        return administrators;
+    }
+
+    @Override
+    public synchronized boolean saveAdministrators(List<Administrator> administrators) {
+        try {
+            writeAdministrators(administrators);
+            connection.commit();
+            return true;
+        } catch (SQLException e) {
+            rollback();
+            System.err.println("Error saving administrators: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized List<VoteRecord> loadVoteRecords() {
+        awaitVotesWritten(getVotePosition());
+        List<VoteRecord> voteRecords = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(
+                     "SELECT voter_id, candidate_id, cast_at FROM votes ORDER BY seq")) {
+            while (result.next()) {
+                voteRecords.add(new VoteRecord(result.getString(1), result.getString(2), result.getLong(3)));
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            System.err.println("Error loading vote records: " + e.getMessage());
+        }
+        return voteRecords;
+    }
+
+    @Override
+    public <A> A reduceVoteRecords(long votePosition, VoteReducer<A> reducer) {
+        // Rows are streamed from one cursor into a single accumulator, on the
+        // scan connection so that the vote connection stays free. Vote rows up
+        // to the position are committed and never change, so any isolation
+        // level that reads committed rows gives a consistent result.
+        awaitVotesWritten(votePosition);
+        A accumulator = reducer.create();
+        synchronized (scanLock) {
+            try {
+                if (scanConnection == null) {
+                    scanConnection = DriverManager.getConnection(url, user, password);
+                    scanConnection.setReadOnly(true);
+                }
+                try (PreparedStatement select = scanConnection.prepareStatement(
+                        "SELECT voter_id, candidate_id FROM votes WHERE seq <= ? ORDER BY seq")) {
+                    select.setLong(1, votePosition);
+                    select.setFetchSize(10000);
+                    try (ResultSet result = select.executeQuery()) {
+                        while (result.next()) {
+                            reducer.accumulate(accumulator, result.getString(1), result.getString(2));
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Error scanning vote records: " + e.getMessage());
+                closeScanConnection();
+            }
+        }
+        return accumulator;
+    }
+
+    @Override
+    public LedgerReport verifyVoteLedger() {
+        // Vote rows are protected by the database, not chained
+        return null;
+    }
+
+    @Override
+    public MerkleLog getVoteLog() {
+        return null;
+    }
+
+    @Override
+    public long getVoteLogIndex(String voterId) {
+        return -1;
+    }
+
+    @Override
+    public CompletableFuture<Void> recordVote(VoteRecord record) {
+        return queueVotes(Collections.singletonList(record));
+    }
+
+    @Override
+    public CompletableFuture<Void> recordVotes(List<VoteRecord> records) {
+        return queueVotes(new ArrayList<>(records));
+    }
+
+    @Override
+    public synchronized void clearVotes() {
+        awaitVotesWritten(getVotePosition());
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM votes");
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            System.err.println("Error clearing vote records: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void saveSnapshot(List<Voter> voters, List<Candidate> candidates, long votePosition) {
+        // Rows are read directly from the database; there is nothing to speed up
+    }
+
+    @Override
+    public void close() {
+        // Let the writer thread write what is queued; it needs this object's monitor
+        synchronized (queueLock) {
+            writerClosed = true;
+            queueLock.notifyAll();
+        }
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (this) {
+            synchronized (scanLock) {
+                closeScanConnection();
+            }
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing database: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Assigns sequence numbers to a group of votes and queues it for the writer thread.
+     *
+     * @return A future completed once the group is committed; already
+     *         completed exceptionally if the storage is closed or the queue is full
+     */
+    private CompletableFuture<Void> queueVotes(List<VoteRecord> records) {
+        synchronized (queueLock) {
+            if (writerClosed) {
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new SQLException("Storage is closed"));
+                return failed;
+            }
+            if (queuedVotes.size() >= QUEUE_CAPACITY) {
+                CompletableFuture<Void> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new RejectedExecutionException("Vote queue is full"));
+                return rejected;
+            }
+
+            VoteGroup group = new VoteGroup(records, lastVoteSeq + 1);
+            lastVoteSeq += records.size();
+            queuedVotes.add(group);
+            queueLock.notifyAll();
+            return group.done;
+        }
+    }
+
+    /**
+     * Body of the writer thread. Futures are completed without holding this
+     * object's monitor.
+     */
+    private void writeLoop() {
+        while (true) {
+            synchronized (queueLock) {
+                while (queuedVotes.isEmpty() && !writerClosed) {
+                    try {
+                        queueLock.wait();
+                    } catch (InterruptedException e) {
+                        // The loop ends once the storage is closed
+                    }
+                }
+                if (queuedVotes.isEmpty()) {
+                    return;
+                }
+            }
+
+            for (VoteGroup group : writeQueuedVotes()) {
+                if (group.failure == null) {
+                    group.done.complete(null);
+                } else {
+                    System.err.println("Error recording " + group.records.size() + " vote(s): "
+                            + group.failure.getMessage());
+                    group.done.completeExceptionally(group.failure);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the next batch of queued vote groups in one transaction. If it
+     * fails, each group is retried in a transaction of its own.
+     *
+     * @return The groups taken off the queue, each with its failure if any
+     */
+    private synchronized List<VoteGroup> writeQueuedVotes() {
+        List<VoteGroup> batch = new ArrayList<>();
+        int votes = 0;
+        synchronized (queueLock) {
+            while (!queuedVotes.isEmpty() && votes < BATCH_SIZE) {
+                VoteGroup group = queuedVotes.poll();
+                batch.add(group);
+                votes += group.records.size();
+            }
+        }
+        if (batch.isEmpty()) {
+            return batch;
+        }
+
+        try {
+            insertVotes(batch);
+            connection.commit();
+        } catch (SQLException e) {
+            clearBatches(insertVote, markVoter, addCandidateVotes);
+            rollback();
+            if (batch.size() == 1) {
+                batch.get(0).failure = e;
+            } else {
+                for (VoteGroup group : batch) {
+                    try {
+                        insertVotes(Collections.singletonList(group));
+                        connection.commit();
+                    } catch (SQLException groupFailure) {
+                        clearBatches(insertVote, markVoter, addCandidateVotes);
+                        rollback();
+                        group.failure = groupFailure;
+                    }
+                }
+            }
+        }
+
+        for (VoteGroup group : batch) {
+            if (group.failure == null) {
+                for (VoteRecord record : group.records) {
+                    markStoredVoted(record);
+                }
+            }
+        }
+        VoteGroup last = batch.get(batch.size() - 1);
+        writtenVoteSeq = last.firstSeq + last.records.size() - 1;
+        notifyAll();
+        return batch;
+    }
+
+    /**
+     * Inserts the votes of the groups, flags their voters and adds them to
+     * their candidates' counts with one update per candidate. Does not commit.
+     */
+    private void insertVotes(List<VoteGroup> groups) throws SQLException {
+        Map<String, Integer> candidateVotes = new LinkedHashMap<>();
+        for (VoteGroup group : groups) {
+            long seq = group.firstSeq;
+            for (VoteRecord record : group.records) {
+                insertVote.setLong(1, seq++);
+                insertVote.setString(2, record.getVoterId());
+                insertVote.setString(3, record.getCandidateId());
+                insertVote.setLong(4, record.getTimestamp());
+                insertVote.addBatch();
+
+                markVoter.setString(1, record.getVoterId());
+                markVoter.addBatch();
+
+                Integer count = candidateVotes.get(record.getCandidateId());
+                candidateVotes.put(record.getCandidateId(), count == null ? 1 : count + 1);
+            }
+        }
+        for (Map.Entry<String, Integer> entry : candidateVotes.entrySet()) {
+            addCandidateVotes.setInt(1, entry.getValue());
+            addCandidateVotes.setString(2, entry.getKey());
+            addCandidateVotes.addBatch();
+        }
+        insertVote.executeBatch();
+        markVoter.executeBatch();
+        addCandidateVotes.executeBatch();
+    }
+
+    /**
+     * Waits until the writer thread has finished with every vote up to a
+     * position. Releases this object's monitor while waiting.
+     */
+    private synchronized void awaitVotesWritten(long votePosition) {
+        boolean interrupted = false;
+        while (writtenVoteSeq < votePosition && writerThread.isAlive()) {
+            try {
+                wait(100);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the voters that differ from the cached table contents and
+     * re-applies votes recorded after the snapshot. Does not commit; the
+     * caller discards the cache if the transaction is rolled back.
+     */
+    private void writeVoters(List<Voter> voters, long votePosition) throws SQLException {
+        // Compare with the table contents and write only the differences
+        Map<String, StoredVoter> changed = new HashMap<>();
+        Set<String> saved = new HashSet<>();
+        try (PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO voters (id, has_voted, password_hash) VALUES (?, ?, ?)");
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE voters SET has_voted = ?, password_hash = ? WHERE id = ?");
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM voters WHERE id = ?")) {
+            for (Voter voter : voters) {
+                if (!saved.add(voter.getId())) {
+                    continue;
+                }
+                StoredVoter stored = storedVoters.get(voter.getId());
+                if (stored == null) {
+                    insert.setString(1, voter.getId());
+                    insert.setInt(2, voter.isHasVoted() ? 1 : 0);
+                    insert.setString(3, voter.getPassword());
+                    insert.addBatch();
+                } else if (stored.hasVoted != voter.isHasVoted()
+                        || !Objects.equals(stored.passwordHash, voter.getPassword())) {
+                    update.setInt(1, voter.isHasVoted() ? 1 : 0);
+                    update.setString(2, voter.getPassword());
+                    update.setString(3, voter.getId());
+                    update.addBatch();
+                } else {
+                    continue;
+                }
+                changed.put(voter.getId(), new StoredVoter(voter.isHasVoted(), voter.getPassword()));
+            }
+            List<String> removed = new ArrayList<>();
+            for (String id : storedVoters.keySet()) {
+                if (!saved.contains(id)) {
+                    delete.setString(1, id);
+                    delete.addBatch();
+                    removed.add(id);
+                }
+            }
+            insert.executeBatch();
+            update.executeBatch();
+            delete.executeBatch();
+
+            // Re-apply votes recorded after the snapshot was taken
+            List<String> reapplied = new ArrayList<>();
+            try (PreparedStatement reapply = connection.prepareStatement(
+                         "UPDATE voters SET has_voted = 1 WHERE id IN (SELECT voter_id FROM votes WHERE seq > ?)");
+                 PreparedStatement later = connection.prepareStatement(
+                         "SELECT voter_id FROM votes WHERE seq > ?")) {
+                reapply.setLong(1, votePosition);
+                reapply.executeUpdate();
+                later.setLong(1, votePosition);
+                try (ResultSet result = later.executeQuery()) {
+                    while (result.next()) {
+                        reapplied.add(result.getString(1));
+                    }
+                }
+            }
+
+            storedVoters.keySet().removeAll(removed);
+            storedVoters.putAll(changed);
+            for (String id : reapplied) {
+                StoredVoter stored = storedVoters.get(id);
+                if (stored != null) {
+                    stored.hasVoted = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates each candidate row in place, inserts new candidates, deletes
+     * removed ones and re-applies votes recorded after the snapshot.
+     * Does not commit.
+     */
+    private void writeCandidates(List<Candidate> candidates, long votePosition) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("SELECT candidate_id FROM candidates")) {
+            while (result.next()) {
+                existing.add(result.getString(1));
+            }
+        }
+
+        Set<String> saved = new HashSet<>();
+        try (PreparedStatement update = connection.prepareStatement(
+                     "UPDATE candidates SET candidate_name = ?, candidate_position = ?, vote_count = ?"
+                             + " WHERE candidate_id = ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO candidates (candidate_id, candidate_name, candidate_position, vote_count)"
+                             + " VALUES (?, ?, ?, ?)");
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM candidates WHERE candidate_id = ?")) {
+            for (Candidate candidate : candidates) {
+                if (!saved.add(candidate.getCandidateId())) {
+                    continue;
+                }
+                if (existing.contains(candidate.getCandidateId())) {
+                    update.setString(1, candidate.getName());
+                    update.setString(2, candidate.getPosition());
+                    update.setInt(3, candidate.getVoteCount());
+                    update.setString(4, candidate.getCandidateId());
+                    update.addBatch();
+                } else {
+                    insert.setString(1, candidate.getCandidateId());
+                    insert.setString(2, candidate.getName());
+                    insert.setString(3, candidate.getPosition());
+                    insert.setInt(4, candidate.getVoteCount());
+                    insert.addBatch();
+                }
+            }
+            for (String id : existing) {
+                if (!saved.contains(id)) {
+                    delete.setString(1, id);
+                    delete.addBatch();
+                }
+            }
+            update.executeBatch();
+            insert.executeBatch();
+            delete.executeBatch();
+        }
+
+        // Re-apply votes recorded after the snapshot was taken
+        try (PreparedStatement reapply = connection.prepareStatement(
+                "UPDATE candidates SET vote_count = vote_count + (SELECT COUNT(*) FROM votes"
+                        + " WHERE votes.candidate_id = candidates.candidate_id AND votes.seq > ?)")) {
+            reapply.setLong(1, votePosition);
+            reapply.executeUpdate();
+        }
+    }
+
+    /**
+     * Replaces the administrators table. Does not commit.
+     */
+    private void writeAdministrators(List<Administrator> administrators) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO administrators (username, password_hash) VALUES (?, ?)")) {
+            statement.executeUpdate("DELETE FROM administrators");
+            for (Administrator administrator : administrators) {
+                insert.setString(1, administrator.getUsername());
+                insert.setString(2, administrator.getPassword());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+    }
+
+    /**
+     * Notes that a committed vote set the voter's flag in the table, so the
+     * next save does not write the row again.
+     */
+    private void markStoredVoted(VoteRecord record) {
+        StoredVoter stored = storedVoters == null ? null : storedVoters.get(record.getVoterId());
+        if (stored != null) {
+            stored.hasVoted = true;
+        }
+    }
+
+    /**
+     * Closes the scan connection; the next scan opens a new one.
+     */
+    private void closeScanConnection() {
+        if (scanConnection != null) {
+            try {
+                scanConnection.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing scan connection: " + e.getMessage());
+            }
+            scanConnection = null;
+        }
+    }
+
+    /**
+     * Creates the tables unless the voters table already exists.
+     *
+     * @return true if the tables were created
+     */
+    private boolean createSchemaIfMissing() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeQuery("SELECT COUNT(*) FROM voters").close();
+            return false;
+        } catch (SQLException e) {
+            // Some databases abort the transaction on a failed statement
+            connection.rollback();
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            for (String ddl : SCHEMA) {
+                statement.executeUpdate(ddl);
+            }
+        }
+        connection.commit();
+        return true;
+    }
+
+    /**
+     * Checks whether every table is empty.
+     *
+     * @return true if the database holds no rows
+     */
+    private boolean isEmpty() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (String table : new String[] { "voters", "candidates", "administrators", "votes" }) {
+                try (ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+                    result.next();
+                    if (result.getLong(1) > 0) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            System.err.println("Error rolling back transaction: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Drops statements queued by a failed batch so they are not sent later.
+     */
+    private void clearBatches(PreparedStatement... statements) {
+        for (PreparedStatement statement : statements) {
+            try {
+                statement.clearBatch();
+            } catch (SQLException e) {
+                System.err.println("Error clearing statement batch: " + e.getMessage());
+            }
+        }
+    }
+}
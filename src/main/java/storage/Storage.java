@@ -0,0 +1,184 @@
+package storage;
+
+import model.Administrator;
+import model.Candidate;
+import model.VoteRecord;
+import model.Voter;
+
+import utils.LedgerReport;
+import utils.MerkleLog;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Persistent storage backend for the online voting system.
+ * The repositories load their datasets from a Storage and write changes back
+ * to it; votes are recorded directly so each one is durable on its own.
+ *
+ * Recorded votes form an ordered log. Voter and candidate saves carry the log
+ * position their snapshot reflects, and the backend applies any votes recorded
+ * after that position, so a snapshot taken under the write lock of
+ * {@link #getVoteLock()} never loses a concurrent vote.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public interface Storage {
+
+    /**
+     * Gets the lock that orders recorded votes against snapshot positions.
+     * Ballots hold the shared read lock while recording a vote and applying it
+     * in memory, so they do not exclude each other; snapshots hold the write
+     * lock while capturing state together with {@link #getVotePosition()}.
+     * The vote lock is always taken before any repository monitor, never while
+     * holding one.
+     *
+     * @return The vote lock
+     */
+    ReadWriteLock getVoteLock();
+
+    /**
+     * Gets the position of the vote log after the last recorded vote.
+     *
+     * @return The current vote log position
+     */
+    long getVotePosition();
+
+    /**
+     * Loads all voters, including votes recorded since they were last saved.
+     *
+     * @return List of Voter objects
+     */
+    List<Voter> loadVoters();
+
+    /**
+     * Saves all voters.
+     *
+     * @param voters List of Voter objects to save
+     * @param votePosition The vote log position the list reflects
+     * @return true if the voters were saved, false if the write failed
+     */
+    boolean saveVoters(List<Voter> voters, long votePosition);
+
+    /**
+     * Loads all candidates, including votes recorded since they were last saved.
+     *
+     * @return List of Candidate objects
+     */
+    List<Candidate> loadCandidates();
+
+    /**
+     * Saves all candidates.
+     *
+     * @param candidates List of Candidate objects to save
+     * @param votePosition The vote log position the list reflects
+     * @return true if the candidates were saved, false if the write failed
+     */
+    boolean saveCandidates(List<Candidate> candidates, long votePosition);
+
+    /**
+     * Loads all administrators.
+     *
+     * @return List of Administrator objects
+     */
+    List<Administrator> loadAdministrators();
+
+    /**
+     * Saves all administrators.
+     *
+     * @param administrators List of Administrator objects to save
+     * @return true if the administrators were saved, false if the write failed
+     */
+    boolean saveAdministrators(List<Administrator> administrators);
+
+    /**
+     * Loads all recorded votes in the order they were recorded.
+     *
+     * @return List of VoteRecord objects
+     */
+    List<VoteRecord> loadVoteRecords();
+
+    /**
+     * Folds the votes recorded up to a vote log position into an accumulator,
+     * possibly in parallel. Meant for scans of the whole log such as audits:
+     * no vote is kept in memory, and the backend should not block new votes
+     * while scanning.
+     *
+     * @param votePosition A position from {@link #getVotePosition()}
+     * @param reducer Folds the votes
+     * @param <A> The accumulator type
+     * @return The accumulator of all votes up to the position
+     */
+    <A> A reduceVoteRecords(long votePosition, VoteReducer<A> reducer);
+
+    /**
+     * Verifies that the recorded votes were not altered, against the hash
+     * chain and signed checkpoints of the vote log. Like
+     * {@link #reduceVoteRecords}, should not block new votes while reading.
+     *
+     * @return The verification report, or null if the backend keeps no ledger
+     */
+    LedgerReport verifyVoteLedger();
+
+    /**
+     * Gets the Merkle tree over the vote log, for inclusion and consistency
+     * proofs. Leaf i is the i-th recorded vote.
+     *
+     * @return The tree, or null if the backend keeps none
+     */
+    MerkleLog getVoteLog();
+
+    /**
+     * Gets the leaf index of a voter's vote in the tree from {@link #getVoteLog()}.
+     *
+     * @param voterId The voter ID
+     * @return The leaf index, or -1 if the voter has no vote in the tree or the
+     *         backend keeps no tree
+     */
+    long getVoteLogIndex(String voterId);
+
+    /**
+     * Records one vote. The vote is ordered in the vote log when this method
+     * returns; it may become durable later, together with other votes.
+     * Callers wait on the returned future after releasing {@link #getVoteLock()}.
+     *
+     * @param record The vote to record
+     * @return A future completed once the vote is durable, or completed
+     *         exceptionally if it could not be recorded
+     */
+    CompletableFuture<Void> recordVote(VoteRecord record);
+
+    /**
+     * Records a batch of votes with one write. The votes are ordered in the
+     * vote log when this method returns and become durable together; if the
+     * write fails, none of them is recorded.
+     *
+     * @param records The votes to record, each by a different voter
+     * @return A future completed once the batch is durable, or completed
+     *         exceptionally if it could not be recorded
+     */
+    CompletableFuture<Void> recordVotes(List<VoteRecord> records);
+
+    /**
+     * Removes all recorded votes for a new election.
+     * Voters and candidates must already have been saved in their reset state.
+     */
+    void clearVotes();
+
+    /**
+     * Saves the full voter and candidate state for a fast next startup.
+     * Called on clean shutdown; backends that load quickly on their own may ignore it.
+     *
+     * @param voters The voters
+     * @param candidates The candidates
+     * @param votePosition The vote log position the state reflects
+     */
+    void saveSnapshot(List<Voter> voters, List<Candidate> candidates, long votePosition);
+
+    /**
+     * Releases the resources held by the backend.
+     */
+    void close();
+}
@@ -0,0 +1,65 @@
+package storage;
+
+import utils.AppConfig;
+
+import java.sql.SQLException;
+
+/**
+ * Creates the configured storage backend once and shares it.
+ *
+ * Configuration (system properties):
+ * - voting.storage: csv (default) or jdbc
+ * - voting.storage.jdbc.url: JDBC URL of the embedded database (default jdbc:h2:./voting)
+ * - voting.storage.jdbc.user, voting.storage.jdbc.password: database credentials (optional)
+ * - voting.storage.jdbc.batchSize, voting.storage.jdbc.queueCapacity: vote group commit, see {@link JdbcStorage}
+ *
+ * A new database is seeded from the CSV files in one transaction. If the
+ * database cannot be opened or seeded, for example because no driver is on
+ * the classpath, the CSV storage is used instead.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class StorageFactory {
+
+    private static Storage storage;
+
+    /**
+     * Gets the shared storage backend, opening it on first use.
+     *
+     * @return The storage backend
+     */
+    public static synchronized Storage getStorage() {
+        if (storage == null) {
+            storage = openConfiguredStorage();
+        }
+        return storage;
+    }
+
+    private static Storage openConfiguredStorage() {
+        if (!"jdbc".equalsIgnoreCase(AppConfig.getString("voting.storage", "csv"))) {
+            return new CsvStorage();
+        }
+
+        String url = AppConfig.getString("voting.storage.jdbc.url", "jdbc:h2:./voting");
+        try {
+            JdbcStorage jdbcStorage = new JdbcStorage(url,
+                    AppConfig.getString("voting.storage.jdbc.user", null),
+                    AppConfig.getString("voting.storage.jdbc.password", null));
+            if (jdbcStorage.isCreated()) {
+                try {
+                    jdbcStorage.importFrom(new CsvStorage());
+                } catch (SQLException e) {
+                    // Nothing was imported, so the next start tries again
+                    jdbcStorage.close();
+                    throw e;
+                }
+                System.out.println("Created database " + url + " from the CSV files");
+            }
+            return jdbcStorage;
+        } catch (SQLException e) {
+            System.err.println("Error opening database " + url + ", falling back to CSV files: " + e.getMessage());
+            return new CsvStorage();
+        }
+    }
+}
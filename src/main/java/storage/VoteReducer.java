@@ -0,0 +1,41 @@
+package storage;
+
+/**
+ * Folds recorded votes into an accumulator without keeping them in memory.
+ * A backend may split the vote log into ranges, fold each range into its own
+ * accumulator on its own thread, and combine the accumulators of adjacent
+ * ranges in log order; implementations must not share mutable state between
+ * accumulators.
+ *
+ * @param <A> The accumulator type
+ * @author Online Voting System
+ * @version 1.0
+ * @see Storage#reduceVoteRecords(long, VoteReducer)
+ */
+public interface VoteReducer<A> {
+
+    /**
+     * Creates an empty accumulator.
+     *
+     * @return The accumulator
+     */
+    A create();
+
+    /**
+     * Folds one recorded vote into an accumulator.
+     *
+     * @param accumulator The accumulator
+     * @param voterId The ID of the voter who cast the vote
+     * @param candidateId The ID of the candidate who received the vote
+     */
+    void accumulate(A accumulator, String voterId, String candidateId);
+
+    /**
+     * Combines the accumulators of two adjacent ranges of the vote log.
+     *
+     * @param left The accumulator of the earlier range
+     * @param right The accumulator of the later range
+     * @return The combined accumulator, which may be one of the arguments
+     */
+    A combine(A left, A right);
+}
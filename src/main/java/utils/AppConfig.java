@@ -0,0 +1,60 @@
+package utils;
+
+/**
+ * Reads deployment settings for the online voting system.
+ * Settings are passed as JVM system properties (for example
+ * {@code java -Dvoting.repository.flushIntervalMillis=500 -cp out Main})
+ * and fall back to the given defaults when absent or invalid.
+ * 
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class AppConfig {
+    
+    /**
+     * Gets an integer setting.
+     * 
+     * @param key The system property name
+     * @param defaultValue The value used when the property is absent or invalid
+     * @return The configured value or the default
+     */
+    public static int getInt(String key, int defaultValue) {
+        return (int) getLong(key, defaultValue);
+    }
+    
+    /**
+     * Gets a long setting.
+     * 
+     * @param key The system property name
+     * @param defaultValue The value used when the property is absent or invalid
+     * @return The configured value or the default
+     */
+    public static long getLong(String key, long defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Gets a string setting.
+     * 
+     * @param key The system property name
+     * @param defaultValue The value used when the property is absent or empty
+     * @return The configured value or the default
+     */
+    public static String getString(String key, String defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return value.trim();
+    }
+}
@@ -0,0 +1,422 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass streaming CSV tokenizer with RFC 4180 quoting.
+ * Characters are read into a reusable buffer and fed through a small state
+ * machine; each completed row is handed to a {@link RowHandler} as a reusable
+ * {@link Row} view, so no line strings or split arrays are allocated.
+ *
+ * Unquoted fields are trimmed. Quoted fields keep their content verbatim,
+ * may contain commas and line breaks, and use "" for a literal quote.
+ * Blank lines are skipped.
+ *
+ * A parser instance is not thread-safe but can be reused for several inputs.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class CsvParser {
+
+    /**
+     * Receives the rows of a CSV input.
+     */
+    public interface RowHandler {
+
+        /**
+         * Handles one row. The row is only valid during this call.
+         *
+         * @param row The parsed row
+         * @throws IOException to abort parsing
+         */
+        void handleRow(Row row) throws IOException;
+    }
+
+    /**
+     * Reusable view of the fields of the current row.
+     */
+    public static final class Row {
+        private char[] chars = new char[256];
+        private int length;
+        private int[] starts = new int[8];
+        private int[] ends = new int[8];
+        private int fieldCount;
+        private long index;
+
+        /**
+         * Gets the zero-based index of this row in the input, header included.
+         *
+         * @return The row index
+         */
+        public long index() {
+            return index;
+        }
+
+        /**
+         * Gets the number of fields in this row.
+         *
+         * @return The field count
+         */
+        public int fieldCount() {
+            return fieldCount;
+        }
+
+        /**
+         * Gets a field as a new String.
+         *
+         * @param field The zero-based field index
+         * @return The field value
+         */
+        public String get(int field) {
+            checkField(field);
+            return new String(chars, starts[field], ends[field] - starts[field]);
+        }
+
+        /**
+         * Gets the length of a field.
+         *
+         * @param field The zero-based field index
+         * @return The number of characters in the field
+         */
+        public int length(int field) {
+            checkField(field);
+            return ends[field] - starts[field];
+        }
+
+        /**
+         * Compares a field with a string without allocating.
+         *
+         * @param field The zero-based field index
+         * @param value The value to compare with
+         * @return true if the field equals the value
+         */
+        public boolean fieldEquals(int field, String value) {
+            return regionMatches(field, value, false);
+        }
+
+        /**
+         * Compares a field with a string ignoring case, without allocating.
+         *
+         * @param field The zero-based field index
+         * @param value The value to compare with
+         * @return true if the field equals the value ignoring case
+         */
+        public boolean fieldEqualsIgnoreCase(int field, String value) {
+            return regionMatches(field, value, true);
+        }
+
+        /**
+         * Parses a field as a boolean using the rules of Boolean.parseBoolean.
+         *
+         * @param field The zero-based field index
+         * @return true if the field is "true" ignoring case
+         */
+        public boolean getBoolean(int field) {
+            return fieldEqualsIgnoreCase(field, "true");
+        }
+
+        /**
+         * Parses a field as a decimal int.
+         *
+         * @param field The zero-based field index
+         * @return The parsed value
+         * @throws NumberFormatException if the field is not a valid int
+         */
+        public int getInt(int field) {
+            long value = getLong(field);
+            if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("Value out of int range: " + get(field));
+            }
+            return (int) value;
+        }
+
+        /**
+         * Parses a field as a decimal long.
+         *
+         * @param field The zero-based field index
+         * @return The parsed value
+         * @throws NumberFormatException if the field is not a valid long
+         */
+        public long getLong(int field) {
+            checkField(field);
+            int position = starts[field];
+            int end = ends[field];
+            boolean negative = false;
+            if (position < end && (chars[position] == '-' || chars[position] == '+')) {
+                negative = chars[position] == '-';
+                position++;
+            }
+            if (position == end || end - position > 18) {
+                // Empty, or possibly out of range: let Long report it precisely
+                return Long.parseLong(get(field));
+            }
+            long value = 0;
+            for (; position < end; position++) {
+                int digit = chars[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException("For input string: \"" + get(field) + "\"");
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        /**
+         * Returns the row as a CSV line, for diagnostics.
+         *
+         * @return The fields joined with commas and quoted where needed
+         */
+        @Override
+        public String toString() {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < fieldCount; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                line.append(quote(get(i)));
+            }
+            return line.toString();
+        }
+
+        private boolean regionMatches(int field, String value, boolean ignoreCase) {
+            checkField(field);
+            int fieldLength = ends[field] - starts[field];
+            if (fieldLength != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < fieldLength; i++) {
+                char a = chars[starts[field] + i];
+                char b = value.charAt(i);
+                if (a != b && !(ignoreCase && Character.toLowerCase(a) == Character.toLowerCase(b))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void checkField(int field) {
+            if (field < 0 || field >= fieldCount) {
+                throw new IndexOutOfBoundsException("Field " + field + " of " + fieldCount);
+            }
+        }
+
+        private void reset(long rowIndex) {
+            length = 0;
+            fieldCount = 0;
+            index = rowIndex;
+        }
+
+        private void append(char[] source, int offset, int count) {
+            if (length + count > chars.length) {
+                char[] grown = new char[Math.max(chars.length * 2, length + count)];
+                System.arraycopy(chars, 0, grown, 0, length);
+                chars = grown;
+            }
+            System.arraycopy(source, offset, chars, length, count);
+            length += count;
+        }
+
+        private void append(char c) {
+            if (length == chars.length) {
+                char[] grown = new char[chars.length * 2];
+                System.arraycopy(chars, 0, grown, 0, length);
+                chars = grown;
+            }
+            chars[length++] = c;
+        }
+
+        /**
+         * Ends the current field, trimming it unless it was quoted.
+         */
+        private void endField(int start, boolean quoted) {
+            int end = length;
+            if (!quoted) {
+                while (start < end && chars[start] <= ' ') {
+                    start++;
+                }
+                while (end > start && chars[end - 1] <= ' ') {
+                    end--;
+                }
+            }
+            if (fieldCount == starts.length) {
+                int[] grownStarts = new int[starts.length * 2];
+                int[] grownEnds = new int[ends.length * 2];
+                System.arraycopy(starts, 0, grownStarts, 0, fieldCount);
+                System.arraycopy(ends, 0, grownEnds, 0, fieldCount);
+                starts = grownStarts;
+                ends = grownEnds;
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = end;
+            fieldCount++;
+        }
+
+        private boolean isBlank() {
+            return fieldCount == 1 && ends[0] == starts[0];
+        }
+    }
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int AFTER_QUOTED = 4;
+
+    private final char[] buffer;
+    private final Row row = new Row();
+
+    /**
+     * Creates a parser with a 64 KB read buffer.
+     */
+    public CsvParser() {
+        this(64 * 1024);
+    }
+
+    /**
+     * Creates a parser with the given read buffer size.
+     *
+     * @param bufferSize The number of characters read per call to the reader
+     */
+    public CsvParser(int bufferSize) {
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Parses all rows from a reader. The reader is not closed.
+     *
+     * @param reader The CSV input
+     * @param handler Receives each non-blank row
+     * @throws IOException if reading fails or the handler aborts
+     */
+    public void parse(Reader reader, RowHandler handler) throws IOException {
+        long rowIndex = 0;
+        int state = FIELD_START;
+        int fieldStart = 0;
+        boolean quoted = false;
+        boolean skipLineFeed = false;
+        row.reset(rowIndex);
+
+        int read;
+        while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+            int i = 0;
+            while (i < read) {
+                char c = buffer[i];
+
+                if (skipLineFeed) {
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        i++;
+                        continue;
+                    }
+                }
+
+                if (state == QUOTED) {
+                    // Copy everything up to the next quote in one step
+                    int end = i;
+                    while (end < read && buffer[end] != '"') {
+                        end++;
+                    }
+                    row.append(buffer, i, end - i);
+                    if (end < read) {
+                        state = QUOTE_IN_QUOTED;
+                        end++;
+                    }
+                    i = end;
+                    continue;
+                }
+
+                if (state == QUOTE_IN_QUOTED) {
+                    if (c == '"') {
+                        row.append('"'); // Escaped quote
+                        state = QUOTED;
+                        i++;
+                        continue;
+                    }
+                    state = AFTER_QUOTED;
+                }
+
+                if (c == ',' || c == '\n' || c == '\r') {
+                    row.endField(fieldStart, quoted);
+                    fieldStart = row.length;
+                    quoted = false;
+                    state = FIELD_START;
+                    if (c != ',') {
+                        skipLineFeed = c == '\r';
+                        if (!row.isBlank()) {
+                            handler.handleRow(row);
+                            rowIndex++;
+                        }
+                        row.reset(rowIndex);
+                        fieldStart = 0;
+                    }
+                    i++;
+                    continue;
+                }
+
+                if (state == FIELD_START) {
+                    if (c == '"') {
+                        // Whitespace before an opening quote is not part of the field
+                        row.length = fieldStart;
+                        quoted = true;
+                        state = QUOTED;
+                        i++;
+                        continue;
+                    }
+                    if (c <= ' ') {
+                        row.append(c);
+                        i++;
+                        continue;
+                    }
+                    state = UNQUOTED;
+                }
+
+                if (state == UNQUOTED) {
+                    // Copy the rest of the field up to the next delimiter in one step
+                    int end = i + 1;
+                    while (end < read && (c = buffer[end]) != ',' && c != '\n' && c != '\r') {
+                        end++;
+                    }
+                    row.append(buffer, i, end - i);
+                    i = end;
+                    continue;
+                }
+
+                // AFTER_QUOTED: characters between a closing quote and the delimiter are ignored
+                i++;
+            }
+        }
+
+        // Last row without a trailing line break
+        if (state != FIELD_START || row.length > fieldStart || row.fieldCount > 0) {
+            row.endField(fieldStart, quoted);
+            if (!row.isBlank()) {
+                handler.handleRow(row);
+            }
+        }
+    }
+
+    /**
+     * Quotes a value for writing to CSV if it contains a comma, quote,
+     * line break, or leading or trailing whitespace.
+     *
+     * @param value The field value
+     * @return The value, quoted and escaped if needed
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        boolean needsQuotes = !value.isEmpty()
+                && (value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' ');
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!needsQuotes) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -6,15 +6,29 @@ import model.VoteRecord;
 import model.Voter;
 
 import java.io.*;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.charset.Charset;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * Manages CSV file I/O operations for the online voting system.
  * Handles loading and saving of voters, candidates, vote records, and administrators.
+ * votes.csv is an append-only journal: voters.csv and candidates.csv are
+ * checkpoints, and votes appended after a checkpoint are replayed on load.
+ * Each journal line is hash-chained to the one before it, see {@link VoteLedger},
+ * and the votes are the leaves of a persisted Merkle tree, see {@link MerkleLog}.
  * 
  * @author Online Voting System
  * @version 1.0
@@ -25,98 +39,311 @@ public class DataManager {
     private static final String CANDIDATES_FILE = "candidates.csv";
     private static final String VOTES_FILE = "votes.csv";
     private static final String ADMINISTRATORS_FILE = "administrators.csv";
-    private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    private static final String VOTES_CHECKPOINT_FILE = "votes.checkpoint";
+    private static final String STATE_SNAPSHOT_FILE = "state.snapshot";
+    private static final String VOTE_LEDGER_FILE = "votes.ledger";
+    private static final String VOTE_LOG_FILE = "votes.merkle";
+    private static final String VOTE_LOG_INDEX_FILE = "votes.merkle.index";
+    private static final String VOTES_HEADER = "voterId,candidateId,timestampMillis,timestamp,hash";
     
     /**
-     * Loads all voters from the CSV file.
+     * Human-readable timestamp column; DateTimeFormatter is immutable and thread-safe.
+     */
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_INSTANT;
+    
+    /**
+     * Local-time format of the timestamp column written before epoch timestamps were introduced.
+     */
+    private static final DateTimeFormatter LEGACY_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    /**
+     * Number of appended votes after which the Merkle tree is forced, so that
+     * a restart only re-adds the votes appended since. voters.csv and
+     * candidates.csv are checkpointed by the repositories' write-behind flush.
+     */
+    private static final int CHECKPOINT_INTERVAL = 1000;
+    
+    /**
+     * Stands in for a vote's ledger hash until the journal writer chains it.
+     */
+    private static final String HASH_PLACEHOLDER = new String(new char[64]).replace('\0', '0');
+    
+    /**
+     * Encoded length of the hash and line terminator that end a journal line.
+     */
+    private static final int HASH_SUFFIX_BYTES =
+            (HASH_PLACEHOLDER + System.lineSeparator()).getBytes(Charset.defaultCharset()).length;
+    
+    /**
+     * Guards the Merkle tree, which the journal writer thread extends while
+     * other threads read proofs from it or reopen it. Taken after the
+     * DataManager lock, never before it.
+     */
+    private static final Object VOTE_LOG_LOCK = new Object();
+    
+    /**
+     * Votes added to the Merkle tree since it was last forced; guarded by VOTE_LOG_LOCK.
+     */
+    private static int votesSinceCheckpoint = 0;
+    
+    /**
+     * Whether voters.csv is checkpointed with the journal; disabled when
+     * voters are kept in the binary voter store.
+     */
+    private static boolean voterCheckpointEnabled = true;
+    
+    /**
+     * Whether votes.csv has been checked for the legacy three-column format.
+     */
+    private static boolean journalFormatChecked = false;
+    
+    /**
+     * Group-commit writer for votes.csv, opened on the first append together
+     * with everything else the append path needs, so appending takes no
+     * DataManager lock.
+     * Configuration (system properties):
+     * - voting.journal.durability: none, batch (default) or per_vote
+     * - voting.journal.batchSize: most votes written per batch (default 256)
+     * - voting.journal.windowMicros: how long a batch waits to fill (default 2000)
+     * - voting.journal.queueCapacity: most votes waiting to be written (default 65536)
+     */
+    private static volatile GroupCommitWriter voteJournal;
+    
+    /**
+     * Hash chain and signed checkpoints of votes.csv.
+     */
+    private static final VoteLedger voteLedger = new VoteLedger(new File(VOTES_FILE), new File(VOTE_LEDGER_FILE),
+            new File(AppConfig.getString("voting.ledger.keyFile", "ledger.key")),
+            AppConfig.getInt("voting.ledger.checkpointInterval", 8192));
+    
+    /**
+     * Merkle tree over votes.csv, opened on first use; guarded by VOTE_LOG_LOCK.
+     */
+    private static MerkleLog voteLog;
+    
+    /**
+     * Merkle tree leaf index of each voter's vote, so a proof for a voter
+     * does not scan the journal. Persisted as voterId,leafIndex lines in
+     * votes.merkle.index, appended as leaves are added and forced with the
+     * tree. Leaf i is the i-th vote line of votes.csv, so a line appended
+     * twice after a crash carries the same index. Guarded by VOTE_LOG_LOCK
+     * for writing; read without locking.
+     */
+    private static final Map<String, Long> voteLeafIndex = new ConcurrentHashMap<>();
+    private static FileOutputStream voteLeafIndexOut;
+    
+    /**
+     * Set when leaves could not be appended, so the tree is reopened and
+     * caught up with the journal on next use.
+     */
+    private static volatile boolean voteLogStale = false;
+    
+    /**
+     * Snapshot read on the first load, until its voters and candidates are taken.
+     */
+    private static StateSnapshot startupSnapshot;
+    private static boolean startupSnapshotRead = false;
+    
+    /**
+     * Whether loads print where they were served from; only during startup.
+     */
+    private static boolean loadLogging = false;
+    
+    /**
+     * Loads all voters, from the state snapshot if it is current and otherwise
+     * from the CSV file, and applies the votes appended to the journal since.
      * 
      * @return List of Voter objects
      */
-    public static List<Voter> loadVoters() {
-        List<Voter> voters = new ArrayList<>();
+    public static synchronized List<Voter> loadVoters() {
+        long start = System.nanoTime();
+        StateSnapshot snapshot = startupSnapshot();
+        List<Voter> voters = snapshot == null ? null : snapshot.takeVoters();
+        long offset;
+        String source;
+        if (voters != null) {
+            offset = snapshot.getJournalOffset();
+            source = STATE_SNAPSHOT_FILE;
+        } else {
+            voters = readVotersFile(new File(VOTERS_FILE));
+            offset = readCheckpointOffset(VOTERS_FILE);
+            source = VOTERS_FILE;
+        }
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(VOTERS_FILE))) {
-            String line = reader.readLine(); // Skip header
-            if (line == null) {
-                return voters; // Empty file
-            }
-            
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
+        // Apply votes appended to the journal since the voters were written
+        final Map<String, Voter> votersById = new HashMap<>();
+        for (Voter voter : voters) {
+            votersById.put(voter.getId(), voter);
+        }
+        int replayed = replayVoteJournal(offset, new BiConsumer<String, String>() {
+            @Override
+            public void accept(String voterId, String candidateId) {
+                Voter voter = votersById.get(voterId);
+                if (voter != null) {
+                    voter.setHasVoted(true);
                 }
-                
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
+            }
+        });
+        
+        logLoad("voter", voters.size(), source, replayed, start);
+        return voters;
+    }
+    
+    /**
+     * Reads voters from a CSV file in voters.csv format without applying the vote journal.
+     * Large files are parsed in parallel.
+     * 
+     * @param file The CSV file to read
+     * @return List of Voter objects
+     */
+    public static List<Voter> readVotersFile(File file) {
+        try {
+            return ParallelCsvLoader.load(file, new ParallelCsvLoader.RowMapper<Voter>() {
+                @Override
+                public Voter map(CsvParser.Row row) {
+                    // Skip incomplete rows
+                    if (row.fieldCount() < 3) {
+                        return null;
+                    }
+                    
                     Voter voter = new Voter();
-                    voter.setId(parts[0].trim());
-                    voter.setHasVoted(Boolean.parseBoolean(parts[1].trim()));
-                    voter.setPassword(parts[2].trim());
-                    voters.add(voter);
+                    voter.setId(row.get(0));
+                    voter.setHasVoted(row.getBoolean(1));
+                    voter.setPassword(row.get(2));
+                    return voter;
                 }
-            }
+            });
         } catch (FileNotFoundException e) {
             // File doesn't exist yet, return empty list
-            return voters;
+            return new ArrayList<>();
         } catch (IOException e) {
             System.err.println("Error loading voters: " + e.getMessage());
+            return new ArrayList<>();
         }
-        
-        return voters;
     }
     
     /**
      * Saves all voters to the CSV file.
+     * The list must reflect every vote currently in the journal.
+     * 
+     * @param voters List of Voter objects to save
+     * @return true if the voters were saved, false otherwise
+     */
+    public static synchronized boolean saveVoters(List<Voter> voters) {
+        return saveVoters(voters, getVoteJournalPosition());
+    }
+    
+    /**
+     * Saves all voters to the CSV file as a checkpoint of the vote journal.
      * 
      * @param voters List of Voter objects to save
+     * @param journalPosition Journal position, from getVoteJournalPosition(),
+     *                        that the voters reflect; votes appended after it
+     *                        are replayed on load
+     * @return true if the voters and their checkpoint were saved, false otherwise
+     */
+    public static synchronized boolean saveVoters(List<Voter> voters, long journalPosition) {
+        return writeVotersFile(new File(VOTERS_FILE), voters)
+                && writeCheckpointOffset(VOTERS_FILE, journalOffsetOf(journalPosition));
+    }
+    
+    /**
+     * Writes voters to a CSV file in voters.csv format.
+     * 
+     * @param file The CSV file to write
+     * @param voters List of Voter objects to write
+     * @return true if the file was written, false otherwise
      */
-    public static void saveVoters(List<Voter> voters) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(VOTERS_FILE))) {
+    public static boolean writeVotersFile(File file, List<Voter> voters) {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
             // Write header
             writer.write("id,hasVoted,password");
             writer.newLine();
             
             // Write data
             for (Voter voter : voters) {
-                writer.write(voter.getId() + "," + 
+                writer.write(CsvParser.quote(voter.getId()) + "," + 
                            voter.isHasVoted() + "," + 
                            voter.getPassword());
                 writer.newLine();
             }
         } catch (IOException e) {
             System.err.println("Error saving voters: " + e.getMessage());
+            return false;
         }
+        
+        return true;
     }
     
     /**
-     * Loads all candidates from the CSV file.
+     * Loads all candidates, from the state snapshot if it is current and otherwise
+     * from the CSV file, and applies the votes appended to the journal since.
      * 
      * @return List of Candidate objects
      */
-    public static List<Candidate> loadCandidates() {
-        List<Candidate> candidates = new ArrayList<>();
+    public static synchronized List<Candidate> loadCandidates() {
+        long start = System.nanoTime();
+        StateSnapshot snapshot = startupSnapshot();
+        List<Candidate> candidates = snapshot == null ? null : snapshot.takeCandidates();
+        long offset;
+        String source;
+        if (candidates != null) {
+            offset = snapshot.getJournalOffset();
+            source = STATE_SNAPSHOT_FILE;
+        } else {
+            candidates = readCandidatesFile();
+            offset = readCheckpointOffset(CANDIDATES_FILE);
+            source = CANDIDATES_FILE;
+        }
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(CANDIDATES_FILE))) {
-            String line = reader.readLine(); // Skip header
-            if (line == null) {
-                return candidates; // Empty file
-            }
-            
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                
-                String[] parts = line.split(",");
-                if (parts.length >= 4) {
-                    Candidate candidate = new Candidate();
-                    candidate.setCandidateId(parts[0].trim());
-                    candidate.setName(parts[1].trim());
-                    candidate.setPosition(parts[2].trim());
-                    candidate.setVoteCount(Integer.parseInt(parts[3].trim()));
-                    candidates.add(candidate);
+        // Apply votes appended to the journal since the candidates were written
+        final Map<String, Candidate> candidatesById = new HashMap<>();
+        for (Candidate candidate : candidates) {
+            candidatesById.put(candidate.getCandidateId(), candidate);
+        }
+        int replayed = replayVoteJournal(offset, new BiConsumer<String, String>() {
+            @Override
+            public void accept(String voterId, String candidateId) {
+                Candidate candidate = candidatesById.get(candidateId);
+                if (candidate != null) {
+                    candidate.incrementVoteCount();
                 }
             }
+        });
+        
+        logLoad("candidate", candidates.size(), source, replayed, start);
+        return candidates;
+    }
+    
+    /**
+     * Reads candidates from candidates.csv without applying the vote journal.
+     * 
+     * @return List of Candidate objects
+     */
+    private static List<Candidate> readCandidatesFile() {
+        final List<Candidate> candidates = new ArrayList<>();
+        
+        try (Reader reader = new FileReader(CANDIDATES_FILE)) {
+            new CsvParser().parse(reader, new CsvParser.RowHandler() {
+                @Override
+                public void handleRow(CsvParser.Row row) {
+                    // Skip header and incomplete rows
+                    if (row.index() == 0 || row.fieldCount() < 4) {
+                        return;
+                    }
+                    
+                    try {
+                        Candidate candidate = new Candidate();
+                        candidate.setCandidateId(row.get(0));
+                        candidate.setName(row.get(1));
+                        candidate.setPosition(row.get(2));
+                        candidate.setVoteCount(row.getInt(3));
+                        candidates.add(candidate);
+                    } catch (NumberFormatException e) {
+                        System.err.println("Skipping candidate with invalid vote count: " + row);
+                    }
+                }
+            });
         } catch (FileNotFoundException e) {
             // File doesn't exist yet, return empty list
             return candidates;
@@ -129,10 +356,25 @@ public class DataManager {
     
     /**
      * Saves all candidates to the CSV file.
+     * The list must reflect every vote currently in the journal.
+     * 
+     * @param candidates List of Candidate objects to save
+     * @return true if the candidates were saved, false otherwise
+     */
+    public static synchronized boolean saveCandidates(List<Candidate> candidates) {
+        return saveCandidates(candidates, getVoteJournalPosition());
+    }
+    
+    /**
+     * Saves all candidates to the CSV file as a checkpoint of the vote journal.
      * 
      * @param candidates List of Candidate objects to save
+     * @param journalPosition Journal position, from getVoteJournalPosition(),
+     *                        that the vote counts reflect; votes appended after
+     *                        it are replayed on load
+     * @return true if the candidates and their checkpoint were saved, false otherwise
      */
-    public static void saveCandidates(List<Candidate> candidates) {
+    public static synchronized boolean saveCandidates(List<Candidate> candidates, long journalPosition) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(CANDIDATES_FILE))) {
             // Write header
             writer.write("candidateId,name,position,voteCount");
@@ -140,113 +382,972 @@ public class DataManager {
             
             // Write data
             for (Candidate candidate : candidates) {
-                writer.write(candidate.getCandidateId() + "," + 
-                           candidate.getName() + "," + 
-                           candidate.getPosition() + "," + 
+                writer.write(CsvParser.quote(candidate.getCandidateId()) + "," + 
+                           CsvParser.quote(candidate.getName()) + "," + 
+                           CsvParser.quote(candidate.getPosition()) + "," + 
                            candidate.getVoteCount());
                 writer.newLine();
             }
         } catch (IOException e) {
             System.err.println("Error saving candidates: " + e.getMessage());
+            return false;
         }
+        
+        return writeCheckpointOffset(CANDIDATES_FILE, journalOffsetOf(journalPosition));
     }
     
     /**
      * Loads all vote records from the CSV file.
+     * A votes.csv in the legacy format is migrated first.
      * 
      * @return List of VoteRecord objects
      */
-    public static List<VoteRecord> loadVoteRecords() {
-        List<VoteRecord> voteRecords = new ArrayList<>();
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(VOTES_FILE))) {
-            String line = reader.readLine(); // Skip header
-            if (line == null) {
-                return voteRecords; // Empty file
+    public static synchronized List<VoteRecord> loadVoteRecords() {
+        migrateVoteJournal();
+        return readVoteRecords();
+    }
+    
+    /**
+     * Folds the vote records in the journal before an offset, in parallel for
+     * large journals. Rows passed to the reducer hold at least the voter and
+     * candidate IDs in fields 0 and 1.
+     * 
+     * Does not hold the DataManager lock while reading, so votes keep being
+     * appended during a long scan; the journal is append-only, so its first
+     * bytes do not change.
+     * 
+     * @param journalPosition The journal position to read up to, from getVoteJournalPosition()
+     * @param reducer Folds the vote rows
+     * @param <A> The accumulator type
+     * @return The accumulator of all vote rows before the position
+     */
+    public static <A> A reduceVoteJournal(long journalPosition, final ParallelCsvLoader.RowReducer<A> reducer) {
+        final long journalOffset = journalOffsetOf(journalPosition);
+        drainVoteJournal();
+        File votesFile = new File(VOTES_FILE);
+        ParallelCsvLoader.RowReducer<A> voteRows = new ParallelCsvLoader.RowReducer<A>() {
+            @Override
+            public A create() {
+                return reducer.create();
             }
             
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
+            @Override
+            public void accumulate(A accumulator, CsvParser.Row row) {
+                // Skip incomplete rows and headers of a journal that was recreated
+                if (row.fieldCount() >= 3 && !row.fieldEquals(0, "voterId")) {
+                    reducer.accumulate(accumulator, row);
                 }
-                
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
+            }
+            
+            @Override
+            public A combine(A left, A right) {
+                return reducer.combine(left, right);
+            }
+        };
+        
+        try {
+            return ParallelCsvLoader.reduce(votesFile, journalOffset, voteRows);
+        } catch (FileNotFoundException e) {
+            // No votes recorded yet
+            return reducer.create();
+        } catch (IOException e) {
+            System.err.println("Error scanning vote records: " + e.getMessage());
+            return reducer.create();
+        }
+    }
+    
+    /**
+     * Verifies votes.csv against its hash chain and signed checkpoints.
+     * Like {@link #reduceVoteJournal}, does not hold the DataManager lock while
+     * reading, so votes keep being appended during verification.
+     * 
+     * @return The verification report for the votes written when it started
+     */
+    public static LedgerReport verifyVoteLedger() {
+        long journalOffset = getVoteJournalLength();
+        drainVoteJournal();
+        return voteLedger.verify(journalOffset);
+    }
+    
+    /**
+     * Reads all vote records from votes.csv in either the current or the legacy format.
+     * The current format is voterId,candidateId,timestampMillis,timestamp where only
+     * the epoch milliseconds are parsed; the legacy format is voterId,candidateId,timestamp
+     * with a local "yyyy-MM-dd HH:mm:ss" time. Large files are parsed in parallel.
+     * 
+     * @return List of VoteRecord objects
+     */
+    private static List<VoteRecord> readVoteRecords() {
+        drainVoteJournal();
+        File votesFile = new File(VOTES_FILE);
+        final boolean legacy = isLegacyVotesHeader(readHeader(votesFile));
+        
+        List<VoteRecord> records;
+        try {
+            records = ParallelCsvLoader.load(votesFile, new ParallelCsvLoader.RowMapper<VoteRecord>() {
+                @Override
+                public VoteRecord map(CsvParser.Row row) {
+                    // Skip incomplete rows and headers of a journal that was recreated
+                    if (row.fieldCount() < 3 || row.fieldEquals(0, "voterId")) {
+                        return null;
+                    }
+                    
                     VoteRecord record = new VoteRecord();
-                    record.setVoterId(parts[0].trim());
-                    record.setCandidateId(parts[1].trim());
+                    record.setVoterId(row.get(0));
+                    record.setCandidateId(row.get(1));
+                    if (row.fieldCount() >= 5) {
+                        record.setHash(row.get(4));
+                    }
                     
                     try {
-                        Date timestamp = DATE_FORMAT.parse(parts[2].trim());
-                        record.setTimestamp(timestamp);
-                    } catch (ParseException e) {
-                        // If parsing fails, use current date
-                        record.setTimestamp(new Date());
+                        if (legacy) {
+                            LocalDateTime local = LocalDateTime.parse(row.get(2), LEGACY_TIMESTAMP_FORMAT);
+                            record.setTimestamp(local.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+                        } else {
+                            record.setTimestamp(row.getLong(2));
+                        }
+                    } catch (NumberFormatException | DateTimeParseException e) {
+                        // Keep the vote but mark its time as unknown rather than inventing one
+                        System.err.println("Invalid vote timestamp, recorded as unknown: " + row);
+                        record.setTimestamp(0L);
                     }
                     
-                    voteRecords.add(record);
+                    return record;
                 }
-            }
+            });
         } catch (FileNotFoundException e) {
             // File doesn't exist yet, return empty list
-            return voteRecords;
+            return new ArrayList<>();
         } catch (IOException e) {
             System.err.println("Error loading vote records: " + e.getMessage());
+            return new ArrayList<>();
         }
         
-        return voteRecords;
+        // The Merkle tree's leaves are the vote lines in journal order
+        for (int i = 0; i < records.size(); i++) {
+            records.get(i).setLogIndex(i);
+        }
+        return records;
     }
     
     /**
-     * Saves all vote records to the CSV file.
+     * Reads the first line of a file.
+     * 
+     * @param file The file to read
+     * @return The trimmed first line, or null if the file is missing, empty, or unreadable
+     */
+    private static String readHeader(File file) {
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String header = reader.readLine();
+            return header == null ? null : header.trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+    
+    private static boolean isLegacyVotesHeader(String header) {
+        return "voterId,candidateId,timestamp".equals(header);
+    }
+    
+    /**
+     * Saves all vote records to the CSV file, replacing the whole vote journal.
+     * The caller must already have saved voters and candidates in a state that
+     * reflects these records, since the rewritten journal is marked as fully
+     * checkpointed. The records are chained and signed again from the start.
      * 
      * @param voteRecords List of VoteRecord objects to save
      */
-    public static void saveVoteRecords(List<VoteRecord> voteRecords) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(VOTES_FILE))) {
+    public static synchronized void saveVoteRecords(List<VoteRecord> voteRecords) {
+        closeVoteJournal();
+        
+        // The snapshot's and tree's journal offsets are meaningless for the rewritten journal
+        discardStateSnapshot();
+        discardVoteLog();
+        
+        voteLedger.reset();
+        try (FileOutputStream out = new FileOutputStream(VOTES_FILE);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, Charset.defaultCharset()))) {
             // Write header
-            writer.write("voterId,candidateId,timestamp");
+            writer.write(VOTES_HEADER);
             writer.newLine();
             
             // Write data
             for (VoteRecord record : voteRecords) {
-                writer.write(record.getVoterId() + "," + 
-                           record.getCandidateId() + "," + 
-                           DATE_FORMAT.format(record.getTimestamp()));
+                List<VoteRecord> single = Collections.singletonList(record);
+                voteLedger.chain(single);
+                writer.write(formatVoteRecord(record, record.getHash()));
                 writer.newLine();
+                if (voteLedger.isCheckpointDue(1)) {
+                    // The checkpoint records the file position, so it must be current
+                    writer.flush();
+                }
+                voteLedger.written(single, out.getChannel().position());
             }
         } catch (IOException e) {
             System.err.println("Error saving vote records: " + e.getMessage());
+            voteLedger.invalidate();
+            return;
         }
+        
+        long length = votesFileLength();
+        writeCheckpointOffset(VOTERS_FILE, length);
+        writeCheckpointOffset(CANDIDATES_FILE, length);
+        journalFormatChecked = true;
     }
     
     /**
-     * Loads all administrators from the CSV file.
+     * Migrates a votes.csv written in the legacy voterId,candidateId,timestamp
+     * format to the epoch-millisecond format. Runs once; later calls return immediately.
+     * Voters and candidates are checkpointed first so the rewritten journal is
+     * fully reflected by them.
+     */
+    public static synchronized void migrateVoteJournal() {
+        if (journalFormatChecked) {
+            return;
+        }
+        journalFormatChecked = true;
+        
+        // A missing journal is created in the current format on first append
+        if (!isLegacyVotesHeader(readHeader(new File(VOTES_FILE)))) {
+            return;
+        }
+        
+        checkpointVoteJournal();
+        List<VoteRecord> voteRecords = readVoteRecords();
+        saveVoteRecords(voteRecords);
+        System.out.println("Migrated " + voteRecords.size() + " vote record(s) to epoch timestamps");
+    }
+    
+    /**
+     * Formats a vote record as a votes.csv line.
      * 
-     * @return List of Administrator objects
+     * @param record The vote record
+     * @param hash The record's ledger hash, or a placeholder of the same length
+     * @return The CSV line without a line terminator
      */
-    public static List<Administrator> loadAdministrators() {
-        List<Administrator> administrators = new ArrayList<>();
+    private static String formatVoteRecord(VoteRecord record, String hash) {
+        return CsvParser.quote(record.getVoterId()) + "," + 
+               CsvParser.quote(record.getCandidateId()) + "," + 
+               record.getTimestamp() + "," + 
+               TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(record.getTimestamp())) + "," + 
+               hash;
+    }
+    
+    /**
+     * Appends a single vote record to the vote journal (votes.csv).
+     * Voter and candidate state is derived from the journal on load, so a vote
+     * costs one appended line regardless of how many votes or voters exist.
+     * The Merkle tree is forced every CHECKPOINT_INTERVAL votes on the writer
+     * thread, so no vote waits for a checkpoint.
+     * 
+     * The record is queued for the group-commit writer, which writes it together
+     * with votes arriving at the same time. Callers wait on the returned future
+     * without holding any lock, so that concurrent votes share one write and
+     * one force.
+     * 
+     * @param record The vote record to append
+     * @return A future completed once the record is written with the configured
+     *         durability, or completed exceptionally if it could not be written
+     */
+    public static CompletableFuture<Void> appendVoteRecord(VoteRecord record) {
+        return appendVoteRecords(Collections.singletonList(record));
+    }
+    
+    /**
+     * Appends a batch of vote records to the vote journal with one write.
+     * The lines are handed to the group-commit writer as a single record, so
+     * the batch is written, forced and, on failure, truncated as a whole.
+     * 
+     * Takes no DataManager lock once the journal is open: the lines are
+     * formatted here with a placeholder hash, and the writer thread chains the
+     * records to the ledger, fills in their hashes and signs checkpoints right
+     * before writing them, then adds them to the Merkle tree and sets their
+     * leaf indexes. Votes appended while the journal is being closed or
+     * rewritten fail.
+     * 
+     * @param records The vote records to append
+     * @return A future completed once the records are written with the configured
+     *         durability and added to the Merkle tree, or completed exceptionally
+     *         if they could not be written
+     */
+    public static CompletableFuture<Void> appendVoteRecords(List<VoteRecord> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        GroupCommitWriter journal = voteJournal;
+        if (journal == null) {
+            try {
+                journal = openVoteJournal();
+            } catch (IOException e) {
+                System.err.println("Error appending vote record: " + e.getMessage());
+                CompletableFuture<Void> failed = new CompletableFuture<>();
+                failed.completeExceptionally(e);
+                return failed;
+            }
+        }
+        
+        final List<VoteRecord> appended = new ArrayList<>(records);
+        final List<byte[]> leaves = new ArrayList<>(records.size());
+        final int[] hashOffsets = new int[records.size()];
+        ByteArrayOutputStream lines = new ByteArrayOutputStream(records.size() * 160);
+        for (int i = 0; i < records.size(); i++) {
+            VoteRecord record = records.get(i);
+            leaves.add(MerkleLog.hashLeaf(record.getVoterId(), record.getCandidateId(), record.getTimestamp()));
+            byte[] line = (formatVoteRecord(record, HASH_PLACEHOLDER) + System.lineSeparator())
+                    .getBytes(Charset.defaultCharset());
+            hashOffsets[i] = lines.size() + line.length - HASH_SUFFIX_BYTES;
+            lines.write(line, 0, line.length);
+        }
         
-        try (BufferedReader reader = new BufferedReader(new FileReader(ADMINISTRATORS_FILE))) {
-            String line = reader.readLine(); // Skip header
-            if (line == null) {
-                return administrators; // Empty file
+        return journal.append(lines.toByteArray(), new GroupCommitWriter.WriteHook() {
+            @Override
+            public void beforeWrite(byte[] data, long offset) {
+                voteLedger.chain(appended, offset, offset + data.length);
+                for (int i = 0; i < appended.size(); i++) {
+                    byte[] hash = appended.get(i).getHash().getBytes(Charset.defaultCharset());
+                    System.arraycopy(hash, 0, data, hashOffsets[i], hash.length);
+                }
             }
             
-            while ((line = reader.readLine()) != null) {
-                if (line.trim().isEmpty()) {
-                    continue;
+            @Override
+            public void afterWrite(long endOffset) {
+                voteLedger.written(appended, endOffset);
+                addVoteLeaves(appended, leaves, endOffset);
+            }
+        });
+    }
+    
+    /**
+     * Adds written votes to the Merkle tree, on the journal writer thread in
+     * journal order. Votes the tree already covers, because it was reopened
+     * and caught up with the journal meanwhile, are skipped.
+     */
+    private static void addVoteLeaves(List<VoteRecord> records, List<byte[]> leaves, long journalOffset) {
+        synchronized (VOTE_LOG_LOCK) {
+            MerkleLog log = voteLog;
+            if (log == null || voteLogStale || journalOffset <= log.getJournalOffset()) {
+                return; // Added when the tree is next opened, or already there
+            }
+            try {
+                long first = log.append(leaves, journalOffset);
+                StringBuilder indexLines = new StringBuilder();
+                for (int i = 0; i < records.size(); i++) {
+                    records.get(i).setLogIndex(first + i);
+                    indexVoteLeaf(records.get(i).getVoterId(), first + i, indexLines);
                 }
-                
-                String[] parts = line.split(",");
-                if (parts.length >= 2) {
+                writeVoteLeafIndex(indexLines);
+                votesSinceCheckpoint += records.size();
+                if (votesSinceCheckpoint >= CHECKPOINT_INTERVAL) {
+                    votesSinceCheckpoint = 0;
+                    forceVoteLogFiles(log);
+                }
+            } catch (IOException e) {
+                System.err.println("Error updating " + VOTE_LOG_FILE + ": " + e.getMessage());
+                voteLogStale = true;
+            }
+        }
+    }
+    
+    /**
+     * Records a leaf in the in-memory index and adds its line to a batch for
+     * the index file. The caller holds VOTE_LOG_LOCK.
+     */
+    private static void indexVoteLeaf(String voterId, long leafIndex, StringBuilder indexLines) {
+        voteLeafIndex.put(voterId, leafIndex);
+        indexLines.append(CsvParser.quote(voterId)).append(',').append(leafIndex).append(System.lineSeparator());
+    }
+    
+    /**
+     * Appends index lines to votes.merkle.index. A lost line is harmless
+     * until the tree is forced, since the leaves after the forced part are
+     * added and indexed again on open. The caller holds VOTE_LOG_LOCK.
+     */
+    private static void writeVoteLeafIndex(StringBuilder indexLines) throws IOException {
+        if (voteLeafIndexOut != null && indexLines.length() > 0) {
+            voteLeafIndexOut.write(indexLines.toString().getBytes(Charset.defaultCharset()));
+        }
+    }
+    
+    /**
+     * Forces the leaf index and then the tree, so the forced tree never
+     * covers leaves the index lost. The caller holds VOTE_LOG_LOCK.
+     */
+    private static void forceVoteLogFiles(MerkleLog log) throws IOException {
+        if (voteLeafIndexOut != null) {
+            voteLeafIndexOut.getChannel().force(false);
+        }
+        log.force();
+    }
+    
+    /**
+     * Gets the Merkle tree over the vote journal, opening it and adding the
+     * votes appended since it was last forced if needed.
+     * 
+     * @return The tree, or null if it cannot be opened
+     */
+    public static synchronized MerkleLog getVoteLog() {
+        migrateVoteJournal();
+        synchronized (VOTE_LOG_LOCK) {
+            return openVoteLog();
+        }
+    }
+    
+    /**
+     * Gets the Merkle tree leaf index of a voter's vote from the persisted
+     * index, without reading the journal.
+     * 
+     * @param voterId The voter ID
+     * @return The leaf index, or -1 if the voter has no vote in the tree
+     */
+    public static long getVoteLogIndex(String voterId) {
+        if (getVoteLog() == null) {
+            return -1;
+        }
+        Long leafIndex = voteLeafIndex.get(voterId);
+        return leafIndex == null ? -1 : leafIndex;
+    }
+    
+    /**
+     * Opens the Merkle tree if it is not open or fell behind the journal.
+     * Only the journal tail after the offset recorded in the tree is read, up
+     * to the votes written so far; the journal writer adds later votes.
+     * The caller holds VOTE_LOG_LOCK.
+     * 
+     * @return The tree, or null if it cannot be opened
+     */
+    private static MerkleLog openVoteLog() {
+        if (voteLog != null && !voteLogStale) {
+            return voteLog;
+        }
+        closeVoteLog();
+        voteLogStale = false;
+        
+        File logFile = new File(VOTE_LOG_FILE);
+        File indexFile = new File(VOTE_LOG_INDEX_FILE);
+        try {
+            MerkleLog log;
+            try {
+                log = new MerkleLog(logFile);
+            } catch (IOException e) {
+                System.err.println("Rebuilding " + VOTE_LOG_FILE + ": " + e.getMessage());
+                log = recreateVoteLog(logFile, null);
+            }
+            final long length = writtenJournalLength();
+            if (log.getJournalOffset() > length) {
+                // The journal was rewritten outside the application
+                System.err.println("Rebuilding " + VOTE_LOG_FILE + ": it covers more than " + VOTES_FILE);
+                log = recreateVoteLog(logFile, log);
+            } else if (log.size() > 0 && !indexFile.exists()) {
+                // Written before the leaf index existed; indexed by re-adding every leaf
+                System.out.println("Rebuilding " + VOTE_LOG_FILE + " to index its leaves");
+                log = recreateVoteLog(logFile, log);
+            }
+            if (log.size() == 0 && indexFile.exists() && !indexFile.delete()) {
+                throw new IOException("Cannot delete " + indexFile.getName());
+            }
+            readVoteLeafIndex(indexFile, log.size());
+            voteLeafIndexOut = new FileOutputStream(indexFile, true);
+            
+            final MerkleLog catchingUp = log;
+            final long[] nextLeaf = { log.size() };
+            final StringBuilder indexLines = new StringBuilder();
+            final List<byte[]> leaves = new ArrayList<>();
+            final IOException[] failure = new IOException[1];
+            try (FileInputStream in = new FileInputStream(VOTES_FILE)) {
+                in.getChannel().position(log.getJournalOffset());
+                InputStream written = new ParallelCsvLoader.PrefixInputStream(in, length - log.getJournalOffset());
+                new CsvParser().parse(new InputStreamReader(written), new CsvParser.RowHandler() {
+                    @Override
+                    public void handleRow(CsvParser.Row row) {
+                        // Skip headers and incomplete rows
+                        if (failure[0] != null || row.fieldCount() < 3 || row.fieldEquals(0, "voterId")) {
+                            return;
+                        }
+                        long timestamp;
+                        try {
+                            timestamp = row.getLong(2);
+                        } catch (NumberFormatException e) {
+                            timestamp = 0L; // Read back as unknown, see readVoteRecords
+                        }
+                        leaves.add(MerkleLog.hashLeaf(row.get(0), row.get(1), timestamp));
+                        indexVoteLeaf(row.get(0), nextLeaf[0]++, indexLines);
+                        if (leaves.size() == 4096) {
+                            try {
+                                catchingUp.append(leaves, length);
+                                writeVoteLeafIndex(indexLines);
+                            } catch (IOException e) {
+                                failure[0] = e;
+                            }
+                            leaves.clear();
+                            indexLines.setLength(0);
+                        }
+                    }
+                });
+            } catch (FileNotFoundException e) {
+                // No journal yet, nothing to add
+            }
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            log.append(leaves, length);
+            writeVoteLeafIndex(indexLines);
+            forceVoteLogFiles(log);
+            votesSinceCheckpoint = 0;
+            voteLog = log;
+        } catch (IOException e) {
+            System.err.println("Error opening " + VOTE_LOG_FILE + ": " + e.getMessage());
+            closeVoteLog();
+            voteLogStale = true;
+        }
+        return voteLog;
+    }
+    
+    /**
+     * Loads the leaf index, keeping only leaves the tree holds; the others
+     * are indexed again as the tree catches up with the journal.
+     */
+    private static void readVoteLeafIndex(File indexFile, final long treeSize) throws IOException {
+        voteLeafIndex.clear();
+        try (Reader reader = new InputStreamReader(new FileInputStream(indexFile), Charset.defaultCharset())) {
+            new CsvParser().parse(reader, new CsvParser.RowHandler() {
+                @Override
+                public void handleRow(CsvParser.Row row) {
+                    if (row.fieldCount() < 2) {
+                        return;
+                    }
+                    try {
+                        long leafIndex = row.getLong(1);
+                        if (leafIndex < treeSize) {
+                            voteLeafIndex.put(row.get(0), leafIndex);
+                        }
+                    } catch (NumberFormatException e) {
+                        // A line cut short by a crash; its leaf is indexed again
+                    }
+                }
+            });
+        } catch (FileNotFoundException e) {
+            // No votes indexed yet
+        }
+    }
+    
+    /**
+     * Closes the tree and the leaf index file. The caller holds VOTE_LOG_LOCK.
+     */
+    private static void closeVoteLog() {
+        if (voteLog != null) {
+            voteLog.close();
+            voteLog = null;
+        }
+        if (voteLeafIndexOut != null) {
+            try {
+                voteLeafIndexOut.close();
+            } catch (IOException e) {
+                System.err.println("Error closing " + VOTE_LOG_INDEX_FILE + ": " + e.getMessage());
+            }
+            voteLeafIndexOut = null;
+        }
+    }
+    
+    /**
+     * Deletes the Merkle tree file and creates an empty one.
+     */
+    private static MerkleLog recreateVoteLog(File logFile, MerkleLog open) throws IOException {
+        if (open != null) {
+            open.close();
+        }
+        if (logFile.exists() && !logFile.delete()) {
+            throw new IOException("Cannot delete " + logFile.getName());
+        }
+        return new MerkleLog(logFile);
+    }
+    
+    /**
+     * Closes and deletes the Merkle tree, before the journal is rewritten.
+     * It is rebuilt from the new journal on next use.
+     */
+    private static void discardVoteLog() {
+        synchronized (VOTE_LOG_LOCK) {
+            closeVoteLog();
+            voteLeafIndex.clear();
+            voteLogStale = false;
+            for (String name : new String[] { VOTE_LOG_FILE, VOTE_LOG_INDEX_FILE }) {
+                File file = new File(name);
+                if (file.exists() && !file.delete()) {
+                    System.err.println("Error deleting " + name);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Forces the Merkle tree so that a restart only re-adds later votes.
+     */
+    private static void forceVoteLog() {
+        synchronized (VOTE_LOG_LOCK) {
+            if (voteLog != null) {
+                try {
+                    forceVoteLogFiles(voteLog);
+                } catch (IOException e) {
+                    System.err.println("Error saving " + VOTE_LOG_FILE + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Opens votes.csv for appending if it is not open yet, with everything the
+     * append path needs: the legacy format is migrated, the data file
+     * checkpoints are pinned, the header is queued for an empty journal and
+     * the Merkle tree is caught up. Only then is the writer published, so
+     * appends never repeat these checks.
+     * 
+     * @return The open writer
+     * @throws IOException if votes.csv cannot be opened
+     */
+    private static synchronized GroupCommitWriter openVoteJournal() throws IOException {
+        if (voteJournal != null) {
+            return voteJournal;
+        }
+        migrateVoteJournal();
+        
+        // Pin the checkpoints before the first append so the existing files
+        // are not replayed twice
+        if (!new File(VOTES_CHECKPOINT_FILE).exists()) {
+            long length = votesFileLength();
+            writeCheckpointOffset(VOTERS_FILE, length);
+            writeCheckpointOffset(CANDIDATES_FILE, length);
+        }
+        
+        String durability = AppConfig.getString("voting.journal.durability", "batch");
+        GroupCommitWriter.Durability level;
+        try {
+            level = GroupCommitWriter.Durability.valueOf(durability.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid value for voting.journal.durability: " + durability + ", using batch");
+            level = GroupCommitWriter.Durability.BATCH;
+        }
+        GroupCommitWriter journal = new GroupCommitWriter(new File(VOTES_FILE), level,
+                AppConfig.getInt("voting.journal.batchSize", 256),
+                AppConfig.getLong("voting.journal.windowMicros", 2000),
+                AppConfig.getInt("voting.journal.queueCapacity", 65536));
+        if (journal.length() == 0) {
+            journal.append((VOTES_HEADER + System.lineSeparator()).getBytes(Charset.defaultCharset()));
+        }
+        
+        // Caught up before any vote is queued, since this reads the whole journal
+        synchronized (VOTE_LOG_LOCK) {
+            openVoteLog();
+        }
+        voteJournal = journal;
+        return journal;
+    }
+    
+    /**
+     * Waits until every appended vote is in votes.csv, before the file is read.
+     */
+    private static void drainVoteJournal() {
+        GroupCommitWriter journal = voteJournal;
+        if (journal != null) {
+            journal.drain();
+        }
+    }
+    
+    /**
+     * Writes every appended vote and closes votes.csv.
+     * The next append reopens it; used before the file is rewritten and on shutdown.
+     */
+    public static synchronized void closeVoteJournal() {
+        GroupCommitWriter journal = voteJournal;
+        if (journal != null) {
+            voteJournal = null;
+            journal.close();
+        }
+        forceVoteLog();
+    }
+    
+    /**
+     * Rewrites voters.csv and candidates.csv with the state derived from the
+     * vote journal, so that subsequent loads only replay votes appended later.
+     * Used before the journal itself is rewritten; while the application runs
+     * the repositories checkpoint their own state.
+     */
+    public static synchronized void checkpointVoteJournal() {
+        List<Voter> voters = null;
+        if (voterCheckpointEnabled) {
+            voters = loadVoters();
+            saveVoters(voters);
+        }
+        List<Candidate> candidates = loadCandidates();
+        saveCandidates(candidates);
+        writeStateSnapshot(voters, candidates, getVoteJournalPosition());
+        forceVoteLog();
+    }
+    
+    /**
+     * Writes the binary state snapshot loaded on the next startup.
+     * Voters are left out when voters.csv is not the authoritative voter file.
+     * 
+     * @param voters The voters, or null to leave them out
+     * @param candidates The candidates
+     * @param journalPosition Journal position, from getVoteJournalPosition(), that the state reflects
+     */
+    public static synchronized void writeStateSnapshot(List<Voter> voters, List<Candidate> candidates, long journalPosition) {
+        try {
+            StateSnapshot.write(new File(STATE_SNAPSHOT_FILE), journalOffsetOf(journalPosition),
+                    voterCheckpointEnabled ? voters : null, candidates,
+                    new File(VOTERS_FILE), new File(CANDIDATES_FILE));
+        } catch (IOException e) {
+            System.err.println("Error writing state snapshot: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Reads the state snapshot once, if it exists and matches the CSV files.
+     * 
+     * @return The snapshot, or null if there is no usable snapshot
+     */
+    private static StateSnapshot startupSnapshot() {
+        if (!startupSnapshotRead) {
+            startupSnapshotRead = true;
+            try {
+                StateSnapshot snapshot = StateSnapshot.read(new File(STATE_SNAPSHOT_FILE));
+                if (snapshot != null && snapshot.matches(new File(VOTERS_FILE), new File(CANDIDATES_FILE))
+                        && snapshot.getJournalOffset() <= votesFileLength()) {
+                    startupSnapshot = snapshot;
+                } else if (snapshot != null) {
+                    System.out.println("Ignoring " + STATE_SNAPSHOT_FILE + ": the data files changed after it was written");
+                }
+            } catch (IOException e) {
+                System.err.println("Error reading state snapshot: " + e.getMessage());
+            }
+        }
+        return startupSnapshot;
+    }
+    
+    /**
+     * Deletes the state snapshot so the next startup loads the CSV files.
+     */
+    private static void discardStateSnapshot() {
+        startupSnapshot = null;
+        startupSnapshotRead = true;
+        File snapshotFile = new File(STATE_SNAPSHOT_FILE);
+        if (snapshotFile.exists() && !snapshotFile.delete()) {
+            System.err.println("Error deleting " + STATE_SNAPSHOT_FILE);
+        }
+    }
+    
+    private static void logLoad(String kind, int count, String source, int replayed, long startNanos) {
+        if (!loadLogging) {
+            return;
+        }
+        System.out.println("Loaded " + count + " " + kind + "(s) from " + source + ", replayed "
+                + replayed + " journal vote(s) in " + (System.nanoTime() - startNanos) / 1_000_000 + " ms");
+    }
+    
+    /**
+     * Enables or disables the line printed for each load of voters or
+     * candidates, which belongs to the startup timing breakdown.
+     * 
+     * @param enabled true while the repositories are first loaded
+     */
+    public static synchronized void setLoadLogging(boolean enabled) {
+        loadLogging = enabled;
+    }
+    
+    /**
+     * Enables or disables checkpointing of voters.csv with the vote journal.
+     * 
+     * @param enabled false when voters.csv is not the authoritative voter file
+     */
+    public static synchronized void setVoterCheckpointEnabled(boolean enabled) {
+        voterCheckpointEnabled = enabled;
+    }
+    
+    /**
+     * Replays vote journal entries starting at the given byte offset.
+     * 
+     * @param offset Byte offset in votes.csv of the first entry to replay
+     * @param consumer Receives the voter ID and candidate ID of each entry
+     * @return The number of entries replayed
+     */
+    private static int replayVoteJournal(long offset, final BiConsumer<String, String> consumer) {
+        drainVoteJournal();
+        if (offset >= votesFileLength()) {
+            return 0; // Nothing appended since the checkpoint
+        }
+        
+        final int[] replayed = new int[1];
+        
+        try (FileInputStream in = new FileInputStream(VOTES_FILE)) {
+            in.getChannel().position(offset);
+            new CsvParser().parse(new InputStreamReader(in), new CsvParser.RowHandler() {
+                @Override
+                public void handleRow(CsvParser.Row row) {
+                    // Skip the header (when replaying from the start) and incomplete rows
+                    if (row.fieldCount() < 2 || (row.fieldEquals(0, "voterId") && row.fieldEquals(1, "candidateId"))) {
+                        return;
+                    }
+                    consumer.accept(row.get(0), row.get(1));
+                    replayed[0]++;
+                }
+            });
+        } catch (FileNotFoundException e) {
+            // No journal yet, nothing to replay
+        } catch (IOException e) {
+            System.err.println("Error replaying vote journal: " + e.getMessage());
+        }
+        return replayed[0];
+    }
+    
+    /**
+     * Gets the current length of the vote journal, including votes that are
+     * queued but not yet written.
+     * 
+     * @return The length of votes.csv in bytes
+     */
+    public static long getVoteJournalLength() {
+        return votesFileLength();
+    }
+    
+    /**
+     * Gets the current position of the vote journal, for callers that record
+     * how much of it a snapshot reflects. It equals the length unless votes
+     * were discarded after a failed write; positions handed out before the
+     * discard then still map to the offset the snapshot really reflects.
+     * Callers that snapshot voter or candidate state hold the vote lock so that
+     * no vote is appended between the snapshot and this call.
+     * 
+     * @return The journal position
+     */
+    public static long getVoteJournalPosition() {
+        GroupCommitWriter journal = voteJournal;
+        return journal != null ? journal.position() : new File(VOTES_FILE).length();
+    }
+    
+    /**
+     * Maps a journal position to the offset in votes.csv it corresponds to now.
+     * 
+     * @param journalPosition A position from getVoteJournalPosition()
+     * @return The byte offset in votes.csv
+     */
+    private static long journalOffsetOf(long journalPosition) {
+        GroupCommitWriter journal = voteJournal;
+        return journal != null ? journal.offsetOf(journalPosition) : journalPosition;
+    }
+    
+    /**
+     * Gets the current length of votes.csv in bytes, including queued votes.
+     * 
+     * @return The journal length, or 0 if the file does not exist
+     */
+    private static long votesFileLength() {
+        GroupCommitWriter journal = voteJournal;
+        if (journal != null) {
+            return journal.length();
+        }
+        return new File(VOTES_FILE).length();
+    }
+    
+    /**
+     * Gets the length of votes.csv up to the end of the last vote written,
+     * excluding queued votes and a batch being written.
+     * 
+     * @return The written journal length, or 0 if the file does not exist
+     */
+    private static long writtenJournalLength() {
+        GroupCommitWriter journal = voteJournal;
+        if (journal != null) {
+            return journal.writtenLength();
+        }
+        return new File(VOTES_FILE).length();
+    }
+    
+    /**
+     * Reads the journal offset up to which the given data file is up to date.
+     * A missing checkpoint means the files were written by a full rewrite and
+     * already reflect the whole journal.
+     * 
+     * @param dataFile The data file name (voters.csv or candidates.csv)
+     * @return The checkpointed byte offset in votes.csv
+     */
+    private static synchronized long readCheckpointOffset(String dataFile) {
+        long length = votesFileLength();
+        Properties checkpoints = readCheckpoints();
+        String value = checkpoints.getProperty(dataFile);
+        if (value == null) {
+            return length;
+        }
+        
+        try {
+            long offset = Long.parseLong(value.trim());
+            // A journal shorter than the checkpoint was rewritten externally
+            return offset > length ? length : offset;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid vote journal checkpoint for " + dataFile + ": " + value);
+            return length;
+        }
+    }
+    
+    /**
+     * Records the journal offset up to which the given data file is up to date.
+     * 
+     * @param dataFile The data file name (voters.csv or candidates.csv)
+     * @param offset The byte offset in votes.csv
+     * @return true if the checkpoint was saved, false otherwise
+     */
+    private static synchronized boolean writeCheckpointOffset(String dataFile, long offset) {
+        Properties checkpoints = readCheckpoints();
+        checkpoints.setProperty(dataFile, Long.toString(offset));
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(VOTES_CHECKPOINT_FILE))) {
+            checkpoints.store(writer, "Vote journal offsets reflected in each data file");
+        } catch (IOException e) {
+            System.err.println("Error saving vote journal checkpoint: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Loads the vote journal checkpoint file.
+     * 
+     * @return The checkpoint offsets keyed by data file name
+     */
+    private static Properties readCheckpoints() {
+        Properties checkpoints = new Properties();
+        try (BufferedReader reader = new BufferedReader(new FileReader(VOTES_CHECKPOINT_FILE))) {
+            checkpoints.load(reader);
+        } catch (FileNotFoundException e) {
+            // No checkpoint yet
+        } catch (IOException e) {
+            System.err.println("Error loading vote journal checkpoint: " + e.getMessage());
+        }
+        return checkpoints;
+    }
+    
+    /**
+     * Loads all administrators from the CSV file.
+     * 
+     * @return List of Administrator objects
+     */
+    public static List<Administrator> loadAdministrators() {
+        final List<Administrator> administrators = new ArrayList<>();
+        
+        try (Reader reader = new FileReader(ADMINISTRATORS_FILE)) {
+            new CsvParser().parse(reader, new CsvParser.RowHandler() {
+                @Override
+                public void handleRow(CsvParser.Row row) {
+                    // Skip header and incomplete rows
+                    if (row.index() == 0 || row.fieldCount() < 2) {
+                        return;
+                    }
+                    
                     Administrator admin = new Administrator();
-                    admin.setUsername(parts[0].trim());
-                    admin.setPassword(parts[1].trim());
+                    admin.setUsername(row.get(0));
+                    admin.setPassword(row.get(1));
                     administrators.add(admin);
                 }
-            }
+            });
         } catch (FileNotFoundException e) {
             // File doesn't exist yet, return empty list
             return administrators;
@@ -259,10 +1360,12 @@ public class DataManager {
     
     /**
      * Saves all administrators to the CSV file.
+     * Passwords are written as given and must already be hashed.
      * 
      * @param administrators List of Administrator objects to save
+     * @return true if the administrators were saved, false otherwise
      */
-    public static void saveAdministrators(List<Administrator> administrators) {
+    public static boolean saveAdministrators(List<Administrator> administrators) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(ADMINISTRATORS_FILE))) {
             // Write header
             writer.write("username,password");
@@ -270,11 +1373,14 @@ public class DataManager {
             
             // Write data
             for (Administrator admin : administrators) {
-                writer.write(admin.getUsername() + "," + PasswordUtils.hashPassword(admin.getPassword()));
+                writer.write(CsvParser.quote(admin.getUsername()) + "," + admin.getPassword());
                 writer.newLine();
             }
         } catch (IOException e) {
             System.err.println("Error saving administrators: " + e.getMessage());
+            return false;
         }
+        
+        return true;
     }
 }
@@ -0,0 +1,111 @@
+package utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers values by key for a limited time and up to a limited number of keys.
+ * Used to recognize repeated submissions that carry the same idempotency key.
+ *
+ * Entries are kept in insertion order; since every entry lives equally long,
+ * the oldest entry is always the first to expire, so expired entries are
+ * dropped from the head of the map in constant time per entry. When the map is
+ * full, the oldest entry is evicted even if it has not expired.
+ *
+ * @param <V> The type of the remembered values
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class DedupCache<V> {
+
+    /**
+     * A remembered value and when it expires.
+     */
+    private static final class Remembered<V> {
+        private final V value;
+        private final long expiresAt;
+
+        Remembered(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Remembered<V>> entries;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxEntries The most keys remembered at once
+     * @param ttlMillis How long a key is remembered
+     */
+    public DedupCache(int maxEntries, long ttlMillis) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMillis));
+        this.entries = new LinkedHashMap<String, Remembered<V>>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Remembered<V>> eldest) {
+                return size() > DedupCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Remembers a value unless the key is already remembered.
+     *
+     * @param key The key
+     * @param value The value to remember
+     * @return The value already remembered for the key, or null if the given
+     *         value was stored
+     */
+    public synchronized V putIfAbsent(String key, V value) {
+        long now = System.nanoTime();
+        purgeExpired(now);
+
+        Remembered<V> existing = entries.get(key);
+        if (existing != null) {
+            return existing.value;
+        }
+        entries.put(key, new Remembered<>(value, now + ttlNanos));
+        return null;
+    }
+
+    /**
+     * Forgets a key if it is still mapped to the given value.
+     *
+     * @param key The key
+     * @param value The value the key must be mapped to
+     */
+    public synchronized void remove(String key, V value) {
+        Remembered<V> existing = entries.get(key);
+        if (existing != null && existing.value == value) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Gets the number of remembered keys, including expired keys not yet dropped.
+     *
+     * @return The number of keys
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Drops expired entries from the head of the map.
+     */
+    private void purgeExpired(long now) {
+        Iterator<Remembered<V>> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().expiresAt - now > 0) {
+                return;
+            }
+            iterator.remove();
+        }
+    }
+}
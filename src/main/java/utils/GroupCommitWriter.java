@@ -0,0 +1,427 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends records to a file with group commit.
+ * Callers hand over encoded records and receive a future; a single writer
+ * thread collects the records that arrive within a short window (or until the
+ * batch is full), writes them with one call, optionally forces them to the
+ * storage device once, and then completes all of their futures together.
+ *
+ * The queue is bounded: when it is full, new records are rejected at once
+ * instead of blocking the caller.
+ *
+ * If a batch cannot be written, the file is truncated back to where the batch
+ * started and every future of the batch completes exceptionally, together
+ * with those of the records queued behind it: they were encoded for offsets
+ * that no longer exist. Positions from {@link #position()} are never reused
+ * after such a discard; {@link #offsetOf(long)} maps them to file offsets.
+ *
+ * Futures are completed on the writer thread, so their dependent actions
+ * must not block. Work that must run in file order, such as chaining a record
+ * to the one before it, is passed as a {@link WriteHook} instead: dependent
+ * actions of a future may run on the appending thread when the record is
+ * written before they are registered.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class GroupCommitWriter {
+
+    /**
+     * When appended records are forced to the storage device.
+     */
+    public enum Durability {
+        /** Records are written to the operating system but never forced. */
+        NONE,
+        /** Each batch is forced once before its records are acknowledged. */
+        BATCH,
+        /** Each record is written and forced on its own before it is acknowledged. */
+        PER_VOTE
+    }
+
+    /**
+     * Work done for one record on the writer thread, in file order.
+     */
+    public interface WriteHook {
+        /**
+         * Called just before the record is written.
+         *
+         * @param data The encoded record; its bytes may be filled in, but its length is fixed
+         * @param offset The file offset the record is written at
+         */
+        void beforeWrite(byte[] data, long offset);
+
+        /**
+         * Called once the record is written with the configured durability,
+         * before its future completes. Not called if the write fails.
+         *
+         * @param endOffset The file offset right after the record
+         */
+        void afterWrite(long endOffset);
+    }
+
+    /**
+     * A record waiting to be written.
+     */
+    private static final class Entry {
+        private final byte[] bytes;
+        private final ByteBuffer data;
+        private final WriteHook hook;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Entry(byte[] data, WriteHook hook) {
+            this.bytes = data;
+            this.data = ByteBuffer.wrap(data);
+            this.hook = hook;
+        }
+    }
+
+    private final FileChannel channel;
+    private final Durability durability;
+    private final int batchSize;
+    private final int queueCapacity;
+    private final long windowNanos;
+    private final Thread writerThread;
+    private final ArrayDeque<Entry> pending = new ArrayDeque<>();
+
+    /**
+     * File length including records that are queued but not yet written.
+     */
+    private long length;
+
+    /**
+     * File length up to the end of the last batch written.
+     */
+    private volatile long writtenLength;
+
+    /**
+     * Bytes handed out as positions and then discarded after failed writes.
+     */
+    private long discarded;
+
+    /**
+     * Discarded position ranges, as start and end position, in order.
+     */
+    private final List<long[]> discards = new ArrayList<>();
+
+    /**
+     * Future of the most recently appended record.
+     */
+    private CompletableFuture<Void> lastAppended = CompletableFuture.completedFuture(null);
+
+    private boolean closed;
+
+    /**
+     * Opens a file for appending and starts the writer thread.
+     *
+     * @param file The file to append to, created if missing
+     * @param durability When batches are forced to the device
+     * @param batchSize The most records written per batch
+     * @param windowMicros How long the writer waits for a batch to fill
+     * @param queueCapacity The most records waiting to be written
+     * @throws IOException if the file cannot be opened
+     */
+    public GroupCommitWriter(File file, Durability durability, int batchSize, long windowMicros,
+                             int queueCapacity) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.durability = durability;
+        this.batchSize = durability == Durability.PER_VOTE ? 1 : Math.max(1, batchSize);
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, windowMicros));
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.length = channel.size();
+        this.writtenLength = length;
+        channel.position(length);
+
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, "group-commit-" + file.getName());
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Queues a record for writing.
+     *
+     * @param data The encoded record
+     * @return A future completed once the record is written with the configured
+     *         durability; already completed exceptionally with a
+     *         RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Void> append(byte[] data) {
+        return append(data, null);
+    }
+
+    /**
+     * Queues a record for writing, with work to do on the writer thread.
+     *
+     * @param data The encoded record
+     * @param hook Called on the writer thread around the write, or null
+     * @return A future completed once the record is written with the configured
+     *         durability; already completed exceptionally with a
+     *         RejectedExecutionException if the queue is full
+     */
+    public synchronized CompletableFuture<Void> append(byte[] data, WriteHook hook) {
+        if (closed) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IOException("Writer is closed"));
+            return failed;
+        }
+        if (pending.size() >= queueCapacity) {
+            CompletableFuture<Void> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(new RejectedExecutionException("Write queue is full"));
+            return rejected;
+        }
+
+        Entry entry = new Entry(data, hook);
+        pending.add(entry);
+        length += data.length;
+        lastAppended = entry.done;
+        notifyAll();
+        return entry.done;
+    }
+
+    /**
+     * Gets the file length including queued records.
+     *
+     * @return The length in bytes the file has once all queued records are written
+     */
+    public synchronized long length() {
+        return length;
+    }
+
+    /**
+     * Gets the file length up to the end of the last batch written, which
+     * excludes queued records and a batch being written. Every record before
+     * it has had its {@link WriteHook#afterWrite} call or is about to.
+     *
+     * @return The written length in bytes
+     */
+    public long writtenLength() {
+        return writtenLength;
+    }
+
+    /**
+     * Gets the position after the queued records. Unlike the length, positions
+     * only grow: the bytes of discarded records are never handed out again.
+     *
+     * @return The position, equal to the length unless records were discarded
+     */
+    public synchronized long position() {
+        return length + discarded;
+    }
+
+    /**
+     * Maps a position to the file offset it corresponds to now. A position
+     * inside discarded records maps to where they would have started.
+     *
+     * @param position A position from {@link #position()}
+     * @return The file offset
+     */
+    public synchronized long offsetOf(long position) {
+        long offset = position;
+        for (long[] discard : discards) {
+            if (position <= discard[0]) {
+                break;
+            }
+            offset -= Math.min(position, discard[1]) - discard[0];
+        }
+        return offset;
+    }
+
+    /**
+     * Waits until every record queued so far has been written.
+     * Failures are reported through the records' own futures.
+     */
+    public void drain() {
+        CompletableFuture<Void> last;
+        synchronized (this) {
+            last = lastAppended;
+        }
+        try {
+            last.join();
+        } catch (RuntimeException e) {
+            // Already reported to the caller that appended the record
+        }
+    }
+
+    /**
+     * Writes the queued records, stops the writer thread and closes the file.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing " + writerThread.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Body of the writer thread.
+     */
+    private void writeLoop() {
+        while (true) {
+            List<Entry> batch = nextBatch();
+            if (batch == null) {
+                return;
+            }
+            writeBatch(batch);
+        }
+    }
+
+    /**
+     * Waits for records and collects the next batch.
+     *
+     * @return The batch, or null once the writer is closed and empty
+     */
+    private synchronized List<Entry> nextBatch() {
+        try {
+            while (pending.isEmpty()) {
+                if (closed) {
+                    return null;
+                }
+                wait();
+            }
+
+            // Give concurrent callers a moment to join this batch
+            long deadline = System.nanoTime() + windowNanos;
+            while (!closed && pending.size() < batchSize) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        } catch (InterruptedException e) {
+            // Write what is queued; the loop ends once the writer is closed
+        }
+
+        List<Entry> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+        while (!pending.isEmpty() && batch.size() < batchSize) {
+            batch.add(pending.poll());
+        }
+        return batch;
+    }
+
+    /**
+     * Writes one batch with a gathering write and a single force.
+     */
+    private void writeBatch(List<Entry> batch) {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long batchBytes = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = batch.get(i).data;
+            batchBytes += buffers[i].remaining();
+        }
+
+        long start = -1;
+        try {
+            start = channel.position();
+            long offset = start;
+            for (Entry entry : batch) {
+                if (entry.hook != null) {
+                    entry.hook.beforeWrite(entry.bytes, offset);
+                }
+                offset += entry.bytes.length;
+            }
+            long written = 0;
+            while (written < batchBytes) {
+                written += channel.write(buffers);
+            }
+            if (durability != Durability.NONE) {
+                channel.force(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error writing " + batch.size() + " record(s) in " + writerThread.getName() + ": " + e.getMessage());
+            List<Entry> queued = discardBatch(start, batchBytes);
+            for (Entry entry : batch) {
+                entry.done.completeExceptionally(e);
+            }
+            if (!queued.isEmpty()) {
+                IOException behind = new IOException("An earlier record could not be written: " + e.getMessage());
+                for (Entry entry : queued) {
+                    entry.done.completeExceptionally(behind);
+                }
+            }
+            return;
+        }
+
+        writtenLength = start + batchBytes;
+        long end = start;
+        for (Entry entry : batch) {
+            end += entry.bytes.length;
+            if (entry.hook != null) {
+                try {
+                    entry.hook.afterWrite(end);
+                } catch (RuntimeException e) {
+                    // The record is written; a failing hook must not stop the writer
+                    System.err.println("Error after writing a record in " + writerThread.getName() + ": " + e.getMessage());
+                }
+            }
+        }
+        for (Entry entry : batch) {
+            entry.done.complete(null);
+        }
+    }
+
+    /**
+     * Removes a partially written batch so the file only holds acknowledged
+     * records, and takes the records queued behind it off the queue.
+     *
+     * @return The queued records, to be failed with the batch
+     */
+    private List<Entry> discardBatch(long start, long batchBytes) {
+        List<Entry> queued;
+        synchronized (this) {
+            queued = new ArrayList<>(pending);
+            pending.clear();
+            long discardedBytes = batchBytes;
+            for (Entry entry : queued) {
+                discardedBytes += entry.data.remaining();
+            }
+            long end = length + discarded;
+            length -= discardedBytes;
+            discards.add(new long[] { end - discardedBytes, end });
+            discarded += discardedBytes;
+        }
+        if (start < 0) {
+            return queued;
+        }
+        try {
+            channel.truncate(start);
+            channel.position(start);
+        } catch (IOException e) {
+            System.err.println("Error truncating " + writerThread.getName() + ": " + e.getMessage());
+        }
+        return queued;
+    }
+}
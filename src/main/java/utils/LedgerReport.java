@@ -0,0 +1,110 @@
+package utils;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of verifying the vote journal against its hash chain and signed
+ * checkpoints, see {@link VoteLedger#verify(long)}.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class LedgerReport {
+
+    private final long recordCount;
+    private final long unprotectedCount;
+    private final long unprotectedAfterChainCount;
+    private final int checkpointCount;
+    private final long elapsedMillis;
+    private final List<String> problems;
+
+    LedgerReport(long recordCount, long unprotectedCount, long unprotectedAfterChainCount, int checkpointCount,
+                 long elapsedMillis, List<String> problems) {
+        this.recordCount = recordCount;
+        this.unprotectedCount = unprotectedCount;
+        this.unprotectedAfterChainCount = unprotectedAfterChainCount;
+        this.checkpointCount = checkpointCount;
+        this.elapsedMillis = elapsedMillis;
+        this.problems = Collections.unmodifiableList(problems);
+    }
+
+    /**
+     * Gets the number of vote records read.
+     *
+     * @return The number of records
+     */
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Gets the number of records written before the ledger existed, which
+     * carry no hash and cannot be verified.
+     *
+     * @return The number of unprotected records
+     */
+    public long getUnprotectedCount() {
+        return unprotectedCount;
+    }
+
+    /**
+     * Gets the number of records without a hash that follow a hashed record.
+     * Such records cannot predate the ledger, so they were altered or inserted.
+     *
+     * @return The number of unprotected records after the first hashed record
+     */
+    public long getUnprotectedAfterChainCount() {
+        return unprotectedAfterChainCount;
+    }
+
+    /**
+     * Gets the number of checkpoints whose chain and signature were verified.
+     *
+     * @return The number of verified checkpoints
+     */
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * Gets how long the verification took.
+     *
+     * @return The elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the problems found, in journal order; at most the first problem of
+     * each segment between checkpoints is reported.
+     *
+     * @return Descriptions of the problems, empty if the journal is intact
+     */
+    public List<String> getProblems() {
+        return problems;
+    }
+
+    /**
+     * Checks whether no tampering was found.
+     *
+     * @return true if every record and checkpoint verified and only records
+     *         before the first hashed record lack a hash
+     */
+    public boolean isIntact() {
+        return problems.isEmpty() && unprotectedAfterChainCount == 0;
+    }
+
+    /**
+     * Summarizes the report on one line.
+     *
+     * @return The summary
+     */
+    @Override
+    public String toString() {
+        return "Verified " + recordCount + " vote record(s) and " + checkpointCount + " checkpoint(s) in "
+                + elapsedMillis + " ms: " + (isIntact() ? "intact" : problems.size() + " problem(s)")
+                + (unprotectedCount > 0 ? ", " + unprotectedCount + " record(s) predate the ledger" : "");
+    }
+}
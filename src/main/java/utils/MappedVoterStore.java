@@ -0,0 +1,384 @@
+package utils;
+
+import model.Voter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary voter store with fixed-width records accessed through a MappedByteBuffer.
+ * Because every record has a known offset, marking a voter as voted flips a
+ * single flag byte in place instead of rewriting the whole voter file.
+ *
+ * File layout (big-endian):
+ * - Header (16 bytes): magic "VOTR", format version, record count, reserved
+ * - Records (72 bytes each): voter ID length (1), voter ID UTF-8 padded (38),
+ *   SHA-256 password hash (32), flags (1)
+ *
+ * Deleted voters keep their slot with the DELETED flag set until the store is
+ * rewritten. Use {@link #main(String[])} to convert from and export to voters.csv.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class MappedVoterStore {
+
+    private static final int MAGIC = 0x564F5452; // "VOTR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+
+    private static final int ID_BYTES = 38;
+    private static final int HASH_BYTES = 32;
+    private static final int RECORD_SIZE = 1 + ID_BYTES + HASH_BYTES + 1;
+    private static final int HASH_OFFSET = 1 + ID_BYTES;
+    private static final int FLAGS_OFFSET = HASH_OFFSET + HASH_BYTES;
+
+    private static final byte FLAG_HAS_VOTED = 0x01;
+    private static final byte FLAG_DELETED = 0x02;
+    private static final byte FLAG_HAS_HASH = 0x04;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int recordCount;
+    private final Map<String, Integer> slotsById = new HashMap<>();
+
+    /**
+     * Opens an existing store or creates an empty one.
+     *
+     * @param storeFile The binary voter file
+     * @throws IOException if the file cannot be opened or is not a voter store
+     */
+    public MappedVoterStore(File storeFile) throws IOException {
+        boolean exists = storeFile.exists() && storeFile.length() >= HEADER_SIZE;
+        file = new RandomAccessFile(storeFile, "rw");
+        channel = file.getChannel();
+
+        if (exists) {
+            long records = (channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            map((int) Math.max(records, INITIAL_CAPACITY));
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                close();
+                throw new IOException("Not a voter store: " + storeFile);
+            }
+            recordCount = buffer.getInt(COUNT_OFFSET);
+            for (int slot = 0; slot < recordCount; slot++) {
+                if ((flags(slot) & FLAG_DELETED) == 0) {
+                    slotsById.put(readId(slot), slot);
+                }
+            }
+        } else {
+            map(INITIAL_CAPACITY);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(COUNT_OFFSET, 0);
+        }
+    }
+
+    /**
+     * Reads all voters in slot order, skipping deleted records.
+     *
+     * @return List of Voter objects with hex-encoded password hashes
+     */
+    public synchronized List<Voter> loadVoters() {
+        List<Voter> voters = new ArrayList<>(slotsById.size());
+        for (int slot = 0; slot < recordCount; slot++) {
+            byte flags = flags(slot);
+            if ((flags & FLAG_DELETED) != 0) {
+                continue;
+            }
+            Voter voter = new Voter(readId(slot), readHash(slot, flags));
+            voter.setHasVoted((flags & FLAG_HAS_VOTED) != 0);
+            voters.add(voter);
+        }
+        return voters;
+    }
+
+    /**
+     * Sets the has-voted flag of a voter in place.
+     *
+     * @param voterId The voter ID
+     * @param hasVoted The new voting status
+     * @return true if the voter exists, false otherwise
+     */
+    public synchronized boolean setHasVoted(String voterId, boolean hasVoted) {
+        Integer slot = slotsById.get(voterId);
+        if (slot == null) {
+            return false;
+        }
+        int position = recordPosition(slot) + FLAGS_OFFSET;
+        byte flags = buffer.get(position);
+        buffer.put(position, (byte) (hasVoted ? flags | FLAG_HAS_VOTED : flags & ~FLAG_HAS_VOTED));
+        return true;
+    }
+
+    /**
+     * Appends a voter, or overwrites the record of an existing voter with the same ID.
+     *
+     * @param voter The voter to store
+     */
+    public synchronized void put(Voter voter) {
+        Integer slot = slotsById.get(voter.getId());
+        if (slot == null) {
+            slot = recordCount;
+            ensureCapacity(recordCount + 1);
+            recordCount++;
+            buffer.putInt(COUNT_OFFSET, recordCount);
+            slotsById.put(voter.getId(), slot);
+        }
+        writeRecord(slot, voter);
+    }
+
+    /**
+     * Marks a voter as deleted.
+     *
+     * @param voterId The voter ID
+     * @return true if the voter existed, false otherwise
+     */
+    public synchronized boolean delete(String voterId) {
+        Integer slot = slotsById.remove(voterId);
+        if (slot == null) {
+            return false;
+        }
+        int position = recordPosition(slot) + FLAGS_OFFSET;
+        buffer.put(position, (byte) (buffer.get(position) | FLAG_DELETED));
+        return true;
+    }
+
+    /**
+     * Replaces the contents of the store with the given voters, compacting deleted slots.
+     *
+     * @param voters List of Voter objects to store
+     */
+    public synchronized void replaceAll(List<Voter> voters) {
+        slotsById.clear();
+        recordCount = 0;
+        ensureCapacity(voters.size());
+        for (Voter voter : voters) {
+            if (slotsById.containsKey(voter.getId())) {
+                continue;
+            }
+            slotsById.put(voter.getId(), recordCount);
+            writeRecord(recordCount, voter);
+            recordCount++;
+        }
+        buffer.putInt(COUNT_OFFSET, recordCount);
+    }
+
+    /**
+     * Forces all changes to the storage device.
+     */
+    public synchronized void force() {
+        buffer.force();
+    }
+
+    /**
+     * Forces pending changes and closes the underlying file.
+     *
+     * @throws IOException if closing fails
+     */
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+        file.close();
+    }
+
+    /**
+     * Creates a binary store from a CSV file in voters.csv format.
+     *
+     * @param csvFile The voters CSV file to convert
+     * @param storeFile The binary voter file to create (replaced if it exists)
+     * @return The number of voters converted
+     * @throws IOException if the store cannot be written
+     */
+    public static int convertFromCsv(File csvFile, File storeFile) throws IOException {
+        List<Voter> voters = DataManager.readVotersFile(csvFile);
+        if (storeFile.exists() && !storeFile.delete()) {
+            throw new IOException("Cannot replace " + storeFile);
+        }
+        MappedVoterStore store = new MappedVoterStore(storeFile);
+        try {
+            store.replaceAll(voters);
+        } finally {
+            store.close();
+        }
+        return voters.size();
+    }
+
+    /**
+     * Exports a binary store to a CSV file in voters.csv format.
+     *
+     * @param storeFile The binary voter file to read
+     * @param csvFile The CSV file to write
+     * @return The number of voters exported
+     * @throws IOException if the store cannot be read or the CSV cannot be written
+     */
+    public static int exportToCsv(File storeFile, File csvFile) throws IOException {
+        MappedVoterStore store = new MappedVoterStore(storeFile);
+        List<Voter> voters;
+        try {
+            voters = store.loadVoters();
+        } finally {
+            store.close();
+        }
+        if (!DataManager.writeVotersFile(csvFile, voters)) {
+            throw new IOException("Cannot write " + csvFile);
+        }
+        return voters.size();
+    }
+
+    /**
+     * Command line converter for operators.
+     * Usage: {@code import <voters.csv> <voters.dat>} or {@code export <voters.dat> <voters.csv>}
+     *
+     * @param args The command and the source and target files
+     */
+    public static void main(String[] args) {
+        if (args.length != 3 || !("import".equals(args[0]) || "export".equals(args[0]))) {
+            System.err.println("Usage: MappedVoterStore import <voters.csv> <voters.dat>");
+            System.err.println("       MappedVoterStore export <voters.dat> <voters.csv>");
+            System.exit(1);
+        }
+
+        try {
+            int count;
+            if ("import".equals(args[0])) {
+                count = convertFromCsv(new File(args[1]), new File(args[2]));
+            } else {
+                count = exportToCsv(new File(args[1]), new File(args[2]));
+            }
+            System.out.println(count + " voter(s) written to " + args[2]);
+        } catch (IOException e) {
+            System.err.println("Conversion failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Maps the header and the given number of record slots, growing the file if needed.
+     *
+     * @param slots The number of record slots to map
+     * @throws IOException if mapping fails
+     */
+    private void map(int slots) throws IOException {
+        capacity = slots;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * RECORD_SIZE);
+    }
+
+    /**
+     * Remaps the file so that at least the given number of slots fit.
+     *
+     * @param slots The number of slots required
+     */
+    private void ensureCapacity(int slots) {
+        if (slots <= capacity) {
+            return;
+        }
+        int newCapacity = Math.max(slots, capacity * 2);
+        try {
+            buffer.force();
+            map(newCapacity);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot grow voter store: " + e.getMessage(), e);
+        }
+    }
+
+    private int recordPosition(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    private byte flags(int slot) {
+        return buffer.get(recordPosition(slot) + FLAGS_OFFSET);
+    }
+
+    private String readId(int slot) {
+        int position = recordPosition(slot);
+        int length = buffer.get(position) & 0xff;
+        byte[] id = new byte[length];
+        for (int i = 0; i < length; i++) {
+            id[i] = buffer.get(position + 1 + i);
+        }
+        return new String(id, StandardCharsets.UTF_8);
+    }
+
+    private String readHash(int slot, byte flags) {
+        if ((flags & FLAG_HAS_HASH) == 0) {
+            return "";
+        }
+        int position = recordPosition(slot) + HASH_OFFSET;
+        StringBuilder hex = new StringBuilder(HASH_BYTES * 2);
+        for (int i = 0; i < HASH_BYTES; i++) {
+            int b = buffer.get(position + i) & 0xff;
+            hex.append(Character.forDigit(b >>> 4, 16)).append(Character.forDigit(b & 0x0f, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Writes a full record into a slot.
+     *
+     * @param slot The record slot
+     * @param voter The voter to write
+     */
+    private void writeRecord(int slot, Voter voter) {
+        byte[] id = voter.getId().getBytes(StandardCharsets.UTF_8);
+        if (id.length > ID_BYTES) {
+            throw new IllegalArgumentException("Voter ID longer than " + ID_BYTES + " bytes: " + voter.getId());
+        }
+        byte[] hash = parseHash(voter.getPassword());
+
+        int position = recordPosition(slot);
+        buffer.put(position, (byte) id.length);
+        for (int i = 0; i < ID_BYTES; i++) {
+            buffer.put(position + 1 + i, i < id.length ? id[i] : 0);
+        }
+        for (int i = 0; i < HASH_BYTES; i++) {
+            buffer.put(position + HASH_OFFSET + i, hash != null ? hash[i] : 0);
+        }
+        byte flags = 0;
+        if (voter.isHasVoted()) {
+            flags |= FLAG_HAS_VOTED;
+        }
+        if (hash != null) {
+            flags |= FLAG_HAS_HASH;
+        }
+        buffer.put(position + FLAGS_OFFSET, flags);
+    }
+
+    /**
+     * Decodes a hex SHA-256 hash.
+     *
+     * @param hex The hex string
+     * @return The 32 hash bytes, or null if the password is empty
+     */
+    private static byte[] parseHash(String hex) {
+        if (hex == null || hex.isEmpty()) {
+            return null;
+        }
+        if (hex.length() != HASH_BYTES * 2) {
+            throw new IllegalArgumentException("Password is not a SHA-256 hex hash");
+        }
+        byte[] hash = new byte[HASH_BYTES];
+        for (int i = 0; i < HASH_BYTES; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Password is not a SHA-256 hex hash");
+            }
+            hash[i] = (byte) ((high << 4) | low);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,507 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merkle tree over the vote log, as defined for Certificate Transparency
+ * (RFC 6962): leaves are hashed as SHA-256(0x00 || vote) and inner nodes as
+ * SHA-256(0x01 || left || right). Auditors use it to prove that a vote is in
+ * the log, and that the log at one size is a prefix of the log at a later size,
+ * with O(log n) hashes instead of re-reading the votes.
+ *
+ * Every node of a complete subtree is written once, in post-order, to an
+ * append-only file, so node (height h, index k) is found by arithmetic and
+ * the tree is never rebuilt. The header records how many leaves and which
+ * journal offset the forced part of the file covers; on open, nodes beyond it
+ * are discarded and the journal tail after that offset is appended again.
+ * The roots of the complete subtrees on the right edge are kept in memory for
+ * appending.
+ *
+ * File layout: a 32-byte header (magic, version, leaf count, journal offset)
+ * followed by 32-byte node hashes.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class MerkleLog {
+
+    private static final int HASH_SIZE = 32;
+    private static final int HEADER_SIZE = 32;
+    private static final int MAGIC = 0x564d524b; // "VMRK"
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final MessageDigest digest;
+
+    private long size;
+    private long journalOffset;
+
+    /**
+     * Roots of the complete subtrees covering all leaves, largest first,
+     * with their heights.
+     */
+    private final List<byte[]> frontier = new ArrayList<>();
+    private final List<Integer> frontierHeights = new ArrayList<>();
+
+    /**
+     * Opens a node file, creating it if it does not exist.
+     *
+     * @param file The node file
+     * @throws IOException if the file cannot be read or is not a node file
+     */
+    public MerkleLog(File file) throws IOException {
+        this.file = file;
+        this.digest = newDigest();
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                writeHeader();
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                readFully(header, 0);
+                header.flip();
+                if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                    throw new IOException(file.getName() + " is not a vote log tree");
+                }
+                size = header.getLong();
+                journalOffset = header.getLong();
+                long nodesEnd = nodePosition(nodeCount(size));
+                if (channel.size() < nodesEnd) {
+                    throw new IOException(file.getName() + " is shorter than its header claims");
+                }
+                // Drop nodes appended after the last force
+                channel.truncate(nodesEnd);
+                loadFrontier();
+            }
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Gets the number of leaves.
+     *
+     * @return The tree size
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Gets the journal length that the leaves cover.
+     *
+     * @return The byte offset in votes.csv just after the last leaf's vote
+     */
+    public synchronized long getJournalOffset() {
+        return journalOffset;
+    }
+
+    /**
+     * Computes the leaf hash of a vote: SHA-256 over 0x00, the UTF-8 voter ID,
+     * 0x00, the UTF-8 candidate ID, 0x00 and the timestamp as 8 big-endian bytes.
+     *
+     * @param voterId The voter ID
+     * @param candidateId The candidate ID
+     * @param timestamp The vote time in epoch milliseconds
+     * @return The leaf hash
+     */
+    public static byte[] hashLeaf(String voterId, String candidateId, long timestamp) {
+        MessageDigest digest = newDigest();
+        digest.update((byte) 0);
+        digest.update((voterId == null ? "" : voterId).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update((candidateId == null ? "" : candidateId).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (timestamp >>> shift));
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Appends leaves and the inner nodes they complete.
+     * The nodes are written but not forced; see {@link #force()}.
+     *
+     * @param leafHashes The leaf hashes, in log order
+     * @param newJournalOffset The journal length just after the last leaf's vote
+     * @return The index of the first appended leaf
+     * @throws IOException if the nodes cannot be written
+     */
+    public synchronized long append(List<byte[]> leafHashes, long newJournalOffset) throws IOException {
+        long first = size;
+        ByteBuffer nodes = ByteBuffer.allocate(leafHashes.size() * 2 * HASH_SIZE + 64 * HASH_SIZE);
+        for (byte[] leaf : leafHashes) {
+            byte[] node = leaf;
+            int height = 0;
+            nodes.put(node);
+            // Merge equal-height subtrees on the right edge
+            while (!frontier.isEmpty() && frontierHeights.get(frontierHeights.size() - 1) == height) {
+                int last = frontier.size() - 1;
+                node = hashNode(frontier.remove(last), node);
+                frontierHeights.remove(last);
+                height++;
+                nodes.put(node);
+            }
+            frontier.add(node);
+            frontierHeights.add(height);
+            size++;
+        }
+        nodes.flip();
+        long position = nodePosition(nodeCount(first));
+        while (nodes.hasRemaining()) {
+            position += channel.write(nodes, position);
+        }
+        journalOffset = newJournalOffset;
+        return first;
+    }
+
+    /**
+     * Forces the nodes to the storage device and then records the covered
+     * size and journal offset in the header, so they survive a restart.
+     *
+     * @throws IOException if the file cannot be forced
+     */
+    public synchronized void force() throws IOException {
+        channel.force(false);
+        writeHeader();
+        channel.force(false);
+    }
+
+    /**
+     * Computes the root hash of the current tree.
+     *
+     * @return The root hash
+     */
+    public synchronized byte[] rootHash() {
+        byte[] root = null;
+        for (int i = frontier.size() - 1; i >= 0; i--) {
+            root = root == null ? frontier.get(i) : hashNode(frontier.get(i), root);
+        }
+        return root == null ? emptyRoot() : root;
+    }
+
+    /**
+     * Computes the root hash the tree had when it held treeSize leaves.
+     *
+     * @param treeSize A size from 0 to {@link #size()}
+     * @return The root hash
+     * @throws IOException if a node cannot be read
+     */
+    public synchronized byte[] rootHash(long treeSize) throws IOException {
+        checkSize(treeSize);
+        return treeSize == 0 ? emptyRoot() : subtreeHash(0, treeSize);
+    }
+
+    /**
+     * Gets the hash of one leaf.
+     *
+     * @param leafIndex The leaf index
+     * @return The leaf hash
+     * @throws IOException if the node cannot be read
+     */
+    public synchronized byte[] leafHash(long leafIndex) throws IOException {
+        if (leafIndex < 0 || leafIndex >= size) {
+            throw new IllegalArgumentException("No leaf " + leafIndex + " in a tree of " + size);
+        }
+        return readNode(0, leafIndex);
+    }
+
+    /**
+     * Builds the audit path proving that a leaf is in the tree of a given size
+     * (RFC 6962, section 2.1.1).
+     *
+     * @param leafIndex The leaf index
+     * @param treeSize The tree size the proof is for, greater than leafIndex
+     * @return The sibling hashes from the leaf up to the root
+     * @throws IOException if a node cannot be read
+     */
+    public synchronized List<byte[]> inclusionProof(long leafIndex, long treeSize) throws IOException {
+        checkSize(treeSize);
+        if (leafIndex < 0 || leafIndex >= treeSize) {
+            throw new IllegalArgumentException("No leaf " + leafIndex + " in a tree of " + treeSize);
+        }
+        List<byte[]> proof = new ArrayList<>();
+        path(leafIndex, 0, treeSize, proof);
+        return proof;
+    }
+
+    /**
+     * Builds the proof that the tree of oldSize leaves is a prefix of the tree
+     * of newSize leaves (RFC 6962, section 2.1.2).
+     *
+     * @param oldSize The earlier size, from 1 to newSize
+     * @param newSize The later size, up to {@link #size()}
+     * @return The consistency proof, empty if the sizes are equal
+     * @throws IOException if a node cannot be read
+     */
+    public synchronized List<byte[]> consistencyProof(long oldSize, long newSize) throws IOException {
+        checkSize(newSize);
+        if (oldSize < 1 || oldSize > newSize) {
+            throw new IllegalArgumentException("Cannot prove size " + oldSize + " against size " + newSize);
+        }
+        List<byte[]> proof = new ArrayList<>();
+        if (oldSize < newSize) {
+            subproof(oldSize, 0, newSize, true, proof);
+        }
+        return proof;
+    }
+
+    /**
+     * Verifies an inclusion proof (RFC 9162, section 2.1.3.2).
+     *
+     * @param leafHash The hash of the leaf, from {@link #hashLeaf}
+     * @param leafIndex The leaf index
+     * @param treeSize The tree size the proof is for
+     * @param proof The audit path
+     * @param rootHash The root hash of the tree of treeSize leaves
+     * @return true if the leaf is in the tree
+     */
+    public static boolean verifyInclusion(byte[] leafHash, long leafIndex, long treeSize,
+                                          List<byte[]> proof, byte[] rootHash) {
+        if (leafIndex < 0 || leafIndex >= treeSize) {
+            return false;
+        }
+        long fn = leafIndex;
+        long sn = treeSize - 1;
+        byte[] r = leafHash;
+        for (byte[] p : proof) {
+            if (sn == 0) {
+                return false;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                r = hashChildren(p, r);
+                while ((fn & 1) == 0 && fn != 0) {
+                    fn >>= 1;
+                    sn >>= 1;
+                }
+            } else {
+                r = hashChildren(r, p);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && MessageDigest.isEqual(r, rootHash);
+    }
+
+    /**
+     * Verifies a consistency proof (RFC 9162, section 2.1.4.2).
+     *
+     * @param oldSize The earlier tree size
+     * @param newSize The later tree size
+     * @param oldRoot The root hash at the earlier size
+     * @param newRoot The root hash at the later size
+     * @param proof The consistency proof
+     * @return true if the earlier tree is a prefix of the later one
+     */
+    public static boolean verifyConsistency(long oldSize, long newSize, byte[] oldRoot, byte[] newRoot,
+                                            List<byte[]> proof) {
+        if (oldSize < 1 || oldSize > newSize) {
+            return false;
+        }
+        if (oldSize == newSize) {
+            return proof.isEmpty() && MessageDigest.isEqual(oldRoot, newRoot);
+        }
+        if (proof.isEmpty()) {
+            return false;
+        }
+        List<byte[]> path = new ArrayList<>(proof);
+        if (Long.bitCount(oldSize) == 1) {
+            path.add(0, oldRoot);
+        }
+        long fn = oldSize - 1;
+        long sn = newSize - 1;
+        while ((fn & 1) == 1) {
+            fn >>= 1;
+            sn >>= 1;
+        }
+        byte[] fr = path.get(0);
+        byte[] sr = path.get(0);
+        for (byte[] c : path.subList(1, path.size())) {
+            if (sn == 0) {
+                return false;
+            }
+            if ((fn & 1) == 1 || fn == sn) {
+                fr = hashChildren(c, fr);
+                sr = hashChildren(c, sr);
+                while ((fn & 1) == 0 && fn != 0) {
+                    fn >>= 1;
+                    sn >>= 1;
+                }
+            } else {
+                sr = hashChildren(sr, c);
+            }
+            fn >>= 1;
+            sn >>= 1;
+        }
+        return sn == 0 && MessageDigest.isEqual(fr, oldRoot) && MessageDigest.isEqual(sr, newRoot);
+    }
+
+    /**
+     * Closes the node file without forcing it.
+     */
+    public synchronized void close() {
+        try {
+            raf.close();
+        } catch (IOException e) {
+            System.err.println("Error closing " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends the audit path of leaf m within the n leaves starting at start.
+     */
+    private void path(long m, long start, long n, List<byte[]> proof) throws IOException {
+        if (n == 1) {
+            return;
+        }
+        long k = Long.highestOneBit(n - 1);
+        if (m < k) {
+            path(m, start, k, proof);
+            proof.add(subtreeHash(start + k, n - k));
+        } else {
+            path(m - k, start + k, n - k, proof);
+            proof.add(subtreeHash(start, k));
+        }
+    }
+
+    /**
+     * Appends the consistency subproof of the first m of the n leaves starting at start.
+     */
+    private void subproof(long m, long start, long n, boolean complete, List<byte[]> proof) throws IOException {
+        if (m == n) {
+            if (!complete) {
+                proof.add(subtreeHash(start, n));
+            }
+            return;
+        }
+        long k = Long.highestOneBit(n - 1);
+        if (m <= k) {
+            subproof(m, start, k, complete, proof);
+            proof.add(subtreeHash(start + k, n - k));
+        } else {
+            subproof(m - k, start + k, n - k, false, proof);
+            proof.add(subtreeHash(start, k));
+        }
+    }
+
+    /**
+     * Computes the hash of the n leaves starting at start, where start is a
+     * multiple of the largest power of two below n, as it is for every range
+     * the proofs visit. Complete subtrees are read from the file.
+     */
+    private byte[] subtreeHash(long start, long n) throws IOException {
+        if (Long.bitCount(n) == 1) {
+            int height = Long.numberOfTrailingZeros(n);
+            return readNode(height, start >>> height);
+        }
+        long k = Long.highestOneBit(n);
+        return hashNode(subtreeHash(start, k), subtreeHash(start + k, n - k));
+    }
+
+    /**
+     * Reads the root of complete subtree k at a height.
+     */
+    private byte[] readNode(int height, long k) throws IOException {
+        long lastLeaf = ((k + 1) << height) - 1;
+        long index = 2 * lastLeaf - Long.bitCount(lastLeaf) + height;
+        ByteBuffer node = ByteBuffer.allocate(HASH_SIZE);
+        readFully(node, nodePosition(index));
+        return node.array();
+    }
+
+    /**
+     * Rebuilds the right-edge subtree roots from the file.
+     */
+    private void loadFrontier() throws IOException {
+        frontier.clear();
+        frontierHeights.clear();
+        long start = 0;
+        for (int height = 63; height >= 0; height--) {
+            if ((size & (1L << height)) != 0) {
+                frontier.add(readNode(height, start >>> height));
+                frontierHeights.add(height);
+                start += 1L << height;
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(size).putLong(journalOffset);
+        header.position(HEADER_SIZE);
+        header.flip();
+        long position = 0;
+        while (header.hasRemaining()) {
+            position += channel.write(header, position);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException(file.getName() + " is truncated");
+            }
+        }
+    }
+
+    private void checkSize(long treeSize) {
+        if (treeSize < 0 || treeSize > size) {
+            throw new IllegalArgumentException("Tree size " + treeSize + " exceeds the log size " + size);
+        }
+    }
+
+    /**
+     * Number of nodes written for a tree of the given size.
+     */
+    private static long nodeCount(long leaves) {
+        return 2 * leaves - Long.bitCount(leaves);
+    }
+
+    private static long nodePosition(long index) {
+        return HEADER_SIZE + index * HASH_SIZE;
+    }
+
+    /**
+     * Hashes two children with the instance digest; callers hold the lock.
+     */
+    private byte[] hashNode(byte[] left, byte[] right) {
+        digest.update((byte) 1);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static byte[] hashChildren(byte[] left, byte[] right) {
+        MessageDigest digest = newDigest();
+        digest.update((byte) 1);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+
+    private static byte[] emptyRoot() {
+        return newDigest().digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads large CSV files in parallel.
+ * The file is split into byte ranges aligned to line breaks, each range is
+ * parsed with its own {@link CsvParser} on the common fork-join pool, and the
+ * mapped rows are merged back in file order. Rows can also be folded into
+ * per-range accumulators instead of being kept, see {@link RowReducer}.
+ *
+ * Line-aligned splitting is only valid when no quoted field spans a line
+ * break. A range containing a quote character therefore abandons the parallel
+ * load and the whole file is parsed sequentially instead; files below the size
+ * threshold are always parsed sequentially.
+ *
+ * Configuration (system properties):
+ * - voting.loader.parallelThresholdBytes: smallest file loaded in parallel (default 8 MB)
+ * - voting.loader.chunkBytes: target size of each parsed range (default 4 MB)
+ *
+ * Files are decoded with the platform charset, like FileReader.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class ParallelCsvLoader {
+
+    private static final long PARALLEL_THRESHOLD_BYTES =
+            AppConfig.getLong("voting.loader.parallelThresholdBytes", 8L * 1024 * 1024);
+    private static final int CHUNK_BYTES =
+            AppConfig.getInt("voting.loader.chunkBytes", 4 * 1024 * 1024);
+
+    /**
+     * Converts a data row into an entity.
+     * Mappers are called concurrently from several threads and must not share mutable state.
+     *
+     * @param <T> The entity type
+     */
+    public interface RowMapper<T> {
+
+        /**
+         * Maps one data row. The header row is never passed to the mapper,
+         * and {@link CsvParser.Row#index()} is relative to the parsed range.
+         *
+         * @param row The parsed row, valid only during this call
+         * @return The entity, or null to skip the row
+         */
+        T map(CsvParser.Row row);
+    }
+
+    /**
+     * Folds data rows into accumulators, one per parsed range, and combines
+     * the accumulators of adjacent ranges in file order. Unlike loading, this
+     * does not keep an object per row, so files larger than the heap can be
+     * reduced.
+     *
+     * @param <A> The accumulator type
+     */
+    public interface RowReducer<A> {
+
+        /**
+         * Creates an empty accumulator for one range.
+         *
+         * @return The accumulator
+         */
+        A create();
+
+        /**
+         * Folds one data row into an accumulator. The header row is never passed.
+         *
+         * @param accumulator The accumulator of the row's range
+         * @param row The parsed row, valid only during this call
+         */
+        void accumulate(A accumulator, CsvParser.Row row);
+
+        /**
+         * Combines the accumulators of two adjacent ranges.
+         *
+         * @param left The accumulator of the earlier range
+         * @param right The accumulator of the later range
+         * @return The combined accumulator, which may be one of the arguments
+         */
+        A combine(A left, A right);
+    }
+
+    /**
+     * Loads all data rows of a CSV file, skipping its header row.
+     *
+     * @param file The CSV file to read
+     * @param mapper Converts each data row
+     * @param <T> The entity type
+     * @return The mapped entities in file order
+     * @throws FileNotFoundException if the file does not exist
+     * @throws IOException if reading fails
+     */
+    public static <T> List<T> load(File file, RowMapper<T> mapper) throws IOException {
+        return reduce(file, Long.MAX_VALUE, new ListReducer<>(mapper));
+    }
+
+    /**
+     * Reduces the data rows in the first bytes of a CSV file, skipping its header row.
+     * Used to scan an append-only file up to a known position while it keeps growing.
+     *
+     * @param file The CSV file to read
+     * @param limit The number of bytes to read; must end at a line break
+     * @param reducer Folds the data rows
+     * @param <A> The accumulator type
+     * @return The accumulator of the whole file
+     * @throws FileNotFoundException if the file does not exist
+     * @throws IOException if reading fails
+     */
+    public static <A> A reduce(File file, long limit, RowReducer<A> reducer) throws IOException {
+        long length = Math.min(limit, file.length());
+        if (length >= PARALLEL_THRESHOLD_BYTES) {
+            A result = reduceParallel(file, length, reducer);
+            if (result != null) {
+                return result;
+            }
+        }
+        return reduceSequential(file, length, reducer);
+    }
+
+    /**
+     * Parses the first length bytes of the file on the caller's thread.
+     */
+    private static <A> A reduceSequential(File file, long length, RowReducer<A> reducer) throws IOException {
+        A result = reducer.create();
+        try (Reader reader = new InputStreamReader(
+                new PrefixInputStream(new FileInputStream(file), length), Charset.defaultCharset())) {
+            new CsvParser().parse(reader, new ReducingHandler<>(reducer, true, result));
+        }
+        return result;
+    }
+
+    /**
+     * Parses line-aligned ranges of the file on the fork-join pool.
+     *
+     * @return The combined accumulator, or null if a range contained quotes
+     */
+    private static <A> A reduceParallel(File file, long length, RowReducer<A> reducer) throws IOException {
+        try (FileInputStream input = new FileInputStream(file)) {
+            FileChannel channel = input.getChannel();
+            long[] bounds = lineAlignedBounds(channel, length);
+            AtomicBoolean quoted = new AtomicBoolean();
+            try {
+                A result = ForkJoinPool.commonPool().invoke(
+                        new ChunkTask<>(channel, bounds, 0, bounds.length - 1, reducer, quoted));
+                return quoted.get() ? null : result;
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Computes range boundaries so that every range starts at the beginning of a line.
+     *
+     * @return Ascending offsets; range i is [bounds[i], bounds[i + 1])
+     */
+    private static long[] lineAlignedBounds(FileChannel channel, long length) throws IOException {
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        long chunkSize = Math.max(64 * 1024, Math.min(CHUNK_BYTES, length / (parallelism * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+
+        ByteBuffer probe = ByteBuffer.allocate(8 * 1024);
+        long position = chunkSize;
+        while (position < length) {
+            // Move the boundary just past the next line break
+            long lineStart = -1;
+            long scan = position;
+            while (lineStart < 0 && scan < length) {
+                probe.clear();
+                int read = channel.read(probe, scan);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        lineStart = scan + i + 1;
+                        break;
+                    }
+                }
+                scan += read;
+            }
+            if (lineStart < 0 || lineStart >= length) {
+                break;
+            }
+            bounds.add(lineStart);
+            position = lineStart + chunkSize;
+        }
+        bounds.add(length);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the ranges [from, to) of the boundary array, splitting in halves
+     * and combining the left result with the right to keep file order.
+     */
+    private static class ChunkTask<A> extends RecursiveTask<A> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] bounds;
+        private final int from;
+        private final int to;
+        private final RowReducer<A> reducer;
+        private final AtomicBoolean quoted;
+
+        ChunkTask(FileChannel channel, long[] bounds, int from, int to, RowReducer<A> reducer, AtomicBoolean quoted) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+            this.reducer = reducer;
+            this.quoted = quoted;
+        }
+
+        @Override
+        protected A compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ChunkTask<A> left = new ChunkTask<>(channel, bounds, from, middle, reducer, quoted);
+                ChunkTask<A> right = new ChunkTask<>(channel, bounds, middle, to, reducer, quoted);
+                left.fork();
+                A rightResult = right.compute();
+                A leftResult = left.join();
+                return reducer.combine(leftResult, rightResult);
+            }
+
+            A result = reducer.create();
+            if (quoted.get()) {
+                return result; // Another range already forced the sequential path
+            }
+            try {
+                byte[] bytes = readRange(bounds[from], bounds[to]);
+                for (byte b : bytes) {
+                    if (b == '"') {
+                        quoted.set(true);
+                        return result;
+                    }
+                }
+                Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), Charset.defaultCharset());
+                new CsvParser().parse(reader, new ReducingHandler<>(reducer, from == 0, result));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return result;
+        }
+
+        private byte[] readRange(long start, long end) throws IOException {
+            byte[] bytes = new byte[(int) (end - start)];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, start + buffer.position());
+                if (read < 0) {
+                    throw new IOException("File truncated while loading");
+                }
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Collects the non-null results of a mapper into lists concatenated in file order.
+     */
+    private static class ListReducer<T> implements RowReducer<List<T>> {
+        private final RowMapper<T> mapper;
+
+        ListReducer(RowMapper<T> mapper) {
+            this.mapper = mapper;
+        }
+
+        @Override
+        public List<T> create() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void accumulate(List<T> accumulator, CsvParser.Row row) {
+            T entity = mapper.map(row);
+            if (entity != null) {
+                accumulator.add(entity);
+            }
+        }
+
+        @Override
+        public List<T> combine(List<T> left, List<T> right) {
+            left.addAll(right);
+            return left;
+        }
+    }
+
+    /**
+     * Reads no more than a fixed number of bytes from another stream.
+     */
+    static class PrefixInputStream extends FilterInputStream {
+        private long remaining;
+
+        PrefixInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Passes data rows to a reducer.
+     */
+    private static class ReducingHandler<A> implements CsvParser.RowHandler {
+        private final RowReducer<A> reducer;
+        private final boolean skipHeader;
+        private final A accumulator;
+
+        ReducingHandler(RowReducer<A> reducer, boolean skipHeader, A accumulator) {
+            this.reducer = reducer;
+            this.skipHeader = skipHeader;
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public void handleRow(CsvParser.Row row) {
+            if (skipHeader && row.index() == 0) {
+                return;
+            }
+            reducer.accumulate(accumulator, row);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded worker pool for slow password hashing.
+ * Logins and imports hash here instead of on the EDT or the common fork-join
+ * pool, so raising the hashing cost lengthens each hash but never blocks the
+ * UI or starves unrelated work. Tasks beyond the queue are rejected at once
+ * rather than piling up.
+ *
+ * Configuration (system properties):
+ * - voting.password.hashThreads: worker threads (default: number of processors)
+ * - voting.password.maxQueued: tasks waiting for a worker before new ones are rejected (default 1024)
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class PasswordHasher {
+
+    private static PasswordHasher instance;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a hashing pool.
+     *
+     * @param threads The number of worker threads
+     * @param maxQueued The most tasks waiting for a worker
+     */
+    public PasswordHasher(int threads, int maxQueued) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        int size = Math.max(1, threads);
+        executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, maxQueued)), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "password-hasher-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * Gets the shared hashing pool.
+     *
+     * @return The single PasswordHasher instance
+     */
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            instance = new PasswordHasher(
+                    AppConfig.getInt("voting.password.hashThreads", Runtime.getRuntime().availableProcessors()),
+                    AppConfig.getInt("voting.password.maxQueued", 1024));
+        }
+        return instance;
+    }
+
+    /**
+     * Runs a task on the pool.
+     *
+     * @param task The task, typically one that hashes or verifies passwords
+     * @param <T> The result type
+     * @return A future of the task's result, or a future already completed
+     *         exceptionally with a RejectedExecutionException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(final Supplier<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        result.complete(task.get());
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Hashes a password on the pool, see {@link PasswordUtils#createHash}.
+     *
+     * @param plainText The plain text password
+     * @return A future of the encoded salted hash
+     */
+    public CompletableFuture<String> createHash(final String plainText) {
+        return submit(new Supplier<String>() {
+            @Override
+            public String get() {
+                return PasswordUtils.createHash(plainText);
+            }
+        });
+    }
+
+    /**
+     * Gets the number of worker threads, which bounds how many hashes run at once.
+     *
+     * @return The pool size
+     */
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+}
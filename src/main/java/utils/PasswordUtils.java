@@ -1,52 +1,227 @@
 package utils;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
 
 /**
  * Utility class for password hashing operations.
- * Implements SHA-256 hashing algorithm for secure password storage.
+ * 
+ * New passwords are stored as salted PBKDF2-HMAC-SHA256 hashes in the form
+ * {@code $pbkdf2-sha256$v=1$i=<iterations>$<salt>$<hash>} (unpadded base64).
+ * The prefix names the scheme and its version, and the iteration count
+ * travels with each hash, so raising the cost leaves existing hashes
+ * verifiable. Passwords stored before this scheme are unsalted SHA-256 hex
+ * hashes; {@link #verifyPassword} accepts both and {@link #needsRehash} tells
+ * the caller when a hash should be replaced after a successful login.
+ * 
+ * Each thread reuses one MessageDigest, passwords are encoded as UTF-8
+ * regardless of the platform charset, and hex strings are built from a
+ * lookup table, so hashing allocates little beyond its result. Slow hashing
+ * belongs on the {@link PasswordHasher} pool rather than the EDT.
+ * 
+ * Configuration (system properties):
+ * - voting.password.iterations: PBKDF2 iterations of new hashes (default 100000)
  * 
  * @author Online Voting System
  * @version 1.0
  */
 public class PasswordUtils {
     
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    private static final byte[] EMPTY = new byte[0];
+    
+    private static final String PBKDF2_PREFIX = "$pbkdf2-sha256$v=1$i=";
+    private static final String PBKDF2_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int PBKDF2_HASH_BYTES = 32;
+    private static final int ITERATIONS = Math.max(1, AppConfig.getInt("voting.password.iterations", 100000));
+    
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    /**
+     * SHA-256 digest of the current thread; MessageDigest is not thread-safe.
+     */
+    private static final ThreadLocal<MessageDigest> SHA_256 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                // Log the error or handle it more gracefully without crashing
+                System.err.println("SHA-256 algorithm not available: " + e.getMessage());
+                return null;
+            }
+        }
+    };
+    
+    /**
+     * Hashes a plain text password with a new random salt at the configured
+     * cost. This method is used for secure password storage (NFR-S01).
+     * Takes tens of milliseconds by design; see {@link PasswordHasher}.
+     * 
+     * @param plainText The plain text password to hash
+     * @return The encoded salted hash, or an empty string for an empty password
+     * @throws IllegalStateException if PBKDF2 is not available
+     */
+    public static String createHash(String plainText) {
+        if (plainText == null || plainText.isEmpty()) {
+            return "";
+        }
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PBKDF2_PREFIX + ITERATIONS + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(pbkdf2(plainText, salt, ITERATIONS));
+    }
+    
+    /**
+     * Checks a plain text password against a stored hash in constant time.
+     * Accepts salted hashes from {@link #createHash} and legacy SHA-256 hex hashes.
+     * 
+     * @param plainText The plain text password
+     * @param storedHash The stored hash
+     * @return true if the password matches, false otherwise or if the stored hash is malformed
+     */
+    public static boolean verifyPassword(String plainText, String storedHash) {
+        if (plainText == null || plainText.isEmpty() || storedHash == null || storedHash.isEmpty()) {
+            return false;
+        }
+        if (!storedHash.startsWith(PBKDF2_PREFIX)) {
+            byte[] expected = fromHex(storedHash);
+            return expected != null && MessageDigest.isEqual(expected, hashPasswordBytes(plainText));
+        }
+        
+        String[] parts = storedHash.substring(PBKDF2_PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = Base64.getDecoder().decode(parts[1]);
+            byte[] expected = Base64.getDecoder().decode(parts[2]);
+            if (iterations < 1 || expected.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(expected, pbkdf2(plainText, salt, iterations, expected.length));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Checks whether a stored hash is weaker than new hashes: a legacy SHA-256
+     * hash, or a salted hash with fewer iterations than configured.
+     * 
+     * @param storedHash The stored hash
+     * @return true if the hash should be replaced by {@link #createHash}
+     */
+    public static boolean needsRehash(String storedHash) {
+        if (storedHash == null || storedHash.isEmpty()) {
+            return false;
+        }
+        if (!storedHash.startsWith(PBKDF2_PREFIX)) {
+            return true;
+        }
+        int end = storedHash.indexOf('$', PBKDF2_PREFIX.length());
+        try {
+            return end < 0 || Integer.parseInt(storedHash.substring(PBKDF2_PREFIX.length(), end)) < ITERATIONS;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+    
     /**
      * Hashes a plain text password using SHA-256 algorithm.
-     * This method is used for secure password storage (NFR-S01).
+     * This is the legacy unsalted format, still used where a hash must fit
+     * 32 bytes (the binary voter store); prefer {@link #createHash}.
      * 
      * @param plainText The plain text password to hash
-     * @return A hexadecimal string representation of the SHA-256 hash
-     * @throws RuntimeException if SHA-256 algorithm is not available
+     * @return A hexadecimal string representation of the SHA-256 hash,
+     *         or an empty string for an empty password or if SHA-256 is not available
      */
     public static String hashPassword(String plainText) {
+        byte[] hashBytes = hashPasswordBytes(plainText);
+        return hashBytes.length == 0 ? "" : toHex(hashBytes);
+    }
+    
+    /**
+     * Hashes a plain text password using SHA-256 algorithm without hex
+     * encoding, for comparing against stored hash bytes.
+     * 
+     * @param plainText The plain text password to hash
+     * @return The 32 hash bytes, or an empty array for an empty password or
+     *         if SHA-256 is not available
+     */
+    public static byte[] hashPasswordBytes(String plainText) {
         if (plainText == null || plainText.isEmpty()) {
-            return "";
+            return EMPTY;
         }
         
+        MessageDigest digest = SHA_256.get();
+        if (digest == null) {
+            return EMPTY;
+        }
+        // digest() resets the instance for the next call on this thread
+        return digest.digest(plainText.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static byte[] pbkdf2(String plainText, byte[] salt, int iterations) {
+        return pbkdf2(plainText, salt, iterations, PBKDF2_HASH_BYTES);
+    }
+    
+    private static byte[] pbkdf2(String plainText, byte[] salt, int iterations, int hashBytes) {
+        PBEKeySpec spec = new PBEKeySpec(plainText.toCharArray(), salt, iterations, hashBytes * 8);
         try {
-            // Get instance of SHA-256 MessageDigest
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            
-            // Compute the hash
-            byte[] hashBytes = digest.digest(plainText.getBytes());
-            
-            // Convert byte array to hexadecimal string
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hashBytes) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
+            return SecretKeyFactory.getInstance(PBKDF2_ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(PBKDF2_ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    
+    /**
+     * Decodes a hex string.
+     * 
+     * @param hex The hex string
+     * @return The bytes, or null if the string is not hex
+     */
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            return null;
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(2 * i), 16);
+            int low = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (high < 0 || low < 0) {
+                return null;
             }
-            
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            // Log the error or handle it more gracefully without crashing
-            System.err.println("SHA-256 algorithm not available: " + e.getMessage());
-            return ""; // Return an empty string or null to indicate failure
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+    
+    /**
+     * Encodes bytes as a lowercase hexadecimal string.
+     * 
+     * @param bytes The bytes to encode
+     * @return Two hex digits per byte
+     */
+    public static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            hex[2 * i] = HEX_DIGITS[b >>> 4];
+            hex[2 * i + 1] = HEX_DIGITS[b & 0x0f];
         }
+        return new String(hex);
     }
 }
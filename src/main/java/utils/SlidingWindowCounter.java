@@ -0,0 +1,134 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Counts events over a sliding time window using a ring of buckets.
+ * The window is divided into a fixed number of buckets; an event increments
+ * the bucket of its time slot, and a bucket is reused once its slot has left
+ * the window. Counting sums the buckets still inside the window, so memory
+ * and time per operation are constant and the count is exact to within one
+ * bucket width.
+ *
+ * Times are milliseconds from any monotonic clock, typically
+ * System.nanoTime() / 1000000.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final int[] counts;
+
+    /**
+     * Time slot number of each bucket's count; a bucket whose slot is older
+     * than the window is empty.
+     */
+    private final long[] slots;
+
+    /**
+     * Creates an empty counter.
+     *
+     * @param windowMillis The length of the window
+     * @param buckets The number of buckets the window is divided into
+     */
+    public SlidingWindowCounter(long windowMillis, int buckets) {
+        int size = Math.max(1, buckets);
+        this.bucketMillis = Math.max(1, windowMillis / size);
+        this.counts = new int[size];
+        this.slots = new long[size];
+        Arrays.fill(slots, Long.MIN_VALUE);
+    }
+
+    /**
+     * Counts one event.
+     *
+     * @param nowMillis The time of the event
+     * @return The number of events in the window, including this one
+     */
+    public synchronized int increment(long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        int index = (int) Math.floorMod(slot, (long) counts.length);
+        if (slots[index] != slot) {
+            slots[index] = slot;
+            counts[index] = 0;
+        }
+        counts[index]++;
+        return count(nowMillis);
+    }
+
+    /**
+     * Counts one event unless the window already holds the limit, as one step,
+     * so concurrent callers can never push the count past the limit.
+     *
+     * @param nowMillis The time of the event
+     * @param limit The most events allowed in the window
+     * @return true if the event was counted, false if the window is full
+     */
+    public synchronized boolean tryIncrement(long nowMillis, int limit) {
+        if (count(nowMillis) >= limit) {
+            return false;
+        }
+        increment(nowMillis);
+        return true;
+    }
+
+    /**
+     * Takes back an event, if its bucket has not been reused since.
+     *
+     * @param eventMillis The time the event was counted at
+     */
+    public synchronized void release(long eventMillis) {
+        long slot = eventMillis / bucketMillis;
+        int index = (int) Math.floorMod(slot, (long) counts.length);
+        if (slots[index] == slot && counts[index] > 0) {
+            counts[index]--;
+        }
+    }
+
+    /**
+     * Gets the number of events in the window ending now.
+     *
+     * @param nowMillis The current time
+     * @return The event count
+     */
+    public synchronized int count(long nowMillis) {
+        long oldest = nowMillis / bucketMillis - counts.length;
+        int total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (slots[i] > oldest) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Gets how long until the oldest counted event leaves the window.
+     *
+     * @param nowMillis The current time
+     * @return The delay in milliseconds, 0 if the window is empty
+     */
+    public synchronized long millisUntilDecrease(long nowMillis) {
+        long current = nowMillis / bucketMillis;
+        long oldestCounted = Long.MAX_VALUE;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0 && slots[i] > current - counts.length) {
+                oldestCounted = Math.min(oldestCounted, slots[i]);
+            }
+        }
+        if (oldestCounted == Long.MAX_VALUE) {
+            return 0;
+        }
+        return (oldestCounted + counts.length) * bucketMillis - nowMillis;
+    }
+
+    /**
+     * Forgets all events.
+     */
+    public synchronized void clear() {
+        Arrays.fill(counts, 0);
+        Arrays.fill(slots, Long.MIN_VALUE);
+    }
+}
@@ -0,0 +1,199 @@
+package utils;
+
+import model.Candidate;
+import model.Voter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary snapshot of voters and candidates at a vote journal offset.
+ * Loading a snapshot and replaying the journal after its offset is much
+ * cheaper than parsing the CSV files.
+ *
+ * The snapshot also records the length and modification time of voters.csv
+ * and candidates.csv when it was written, so a snapshot that is older than
+ * the CSV files can be recognized and ignored.
+ *
+ * Layout (DataOutputStream encoding):
+ * magic "VSNP", version, journal offset, the two file fingerprints, then
+ * an optional voter section (id, hasVoted, password) and the candidate
+ * section (id, name, position, voteCount), each preceded by its count.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class StateSnapshot {
+
+    private static final int MAGIC = 0x56534E50; // "VSNP"
+    private static final int VERSION = 1;
+
+    private final long journalOffset;
+    private final long votersLength;
+    private final long votersModified;
+    private final long candidatesLength;
+    private final long candidatesModified;
+    private List<Voter> voters;
+    private List<Candidate> candidates;
+
+    private StateSnapshot(long journalOffset, long votersLength, long votersModified,
+                          long candidatesLength, long candidatesModified,
+                          List<Voter> voters, List<Candidate> candidates) {
+        this.journalOffset = journalOffset;
+        this.votersLength = votersLength;
+        this.votersModified = votersModified;
+        this.candidatesLength = candidatesLength;
+        this.candidatesModified = candidatesModified;
+        this.voters = voters;
+        this.candidates = candidates;
+    }
+
+    /**
+     * Writes a snapshot, replacing the previous one atomically.
+     *
+     * @param file The snapshot file
+     * @param journalOffset The vote journal offset the state reflects
+     * @param voters The voters, or null to leave them out of the snapshot
+     * @param candidates The candidates
+     * @param votersFile voters.csv, fingerprinted as it is now
+     * @param candidatesFile candidates.csv, fingerprinted as it is now
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(File file, long journalOffset, List<Voter> voters, List<Candidate> candidates,
+                             File votersFile, File candidatesFile) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalOffset);
+            out.writeLong(votersFile.length());
+            out.writeLong(votersFile.lastModified());
+            out.writeLong(candidatesFile.length());
+            out.writeLong(candidatesFile.lastModified());
+
+            out.writeBoolean(voters != null);
+            if (voters != null) {
+                out.writeInt(voters.size());
+                for (Voter voter : voters) {
+                    out.writeUTF(voter.getId());
+                    out.writeBoolean(voter.isHasVoted());
+                    out.writeUTF(voter.getPassword() == null ? "" : voter.getPassword());
+                }
+            }
+
+            out.writeInt(candidates.size());
+            for (Candidate candidate : candidates) {
+                out.writeUTF(candidate.getCandidateId());
+                out.writeUTF(candidate.getName() == null ? "" : candidate.getName());
+                out.writeUTF(candidate.getPosition() == null ? "" : candidate.getPosition());
+                out.writeInt(candidate.getVoteCount());
+            }
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot.
+     *
+     * @param file The snapshot file
+     * @return The snapshot, or null if the file does not exist
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static StateSnapshot read(File file) throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a state snapshot: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            long journalOffset = in.readLong();
+            long votersLength = in.readLong();
+            long votersModified = in.readLong();
+            long candidatesLength = in.readLong();
+            long candidatesModified = in.readLong();
+
+            List<Voter> voters = null;
+            if (in.readBoolean()) {
+                int count = in.readInt();
+                voters = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    Voter voter = new Voter();
+                    voter.setId(in.readUTF());
+                    voter.setHasVoted(in.readBoolean());
+                    voter.setPassword(in.readUTF());
+                    voters.add(voter);
+                }
+            }
+
+            int count = in.readInt();
+            List<Candidate> candidates = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                candidates.add(new Candidate(in.readUTF(), in.readUTF(), in.readUTF(), in.readInt()));
+            }
+
+            return new StateSnapshot(journalOffset, votersLength, votersModified,
+                    candidatesLength, candidatesModified, voters, candidates);
+        }
+    }
+
+    /**
+     * Checks whether the CSV files are unchanged since the snapshot was written.
+     *
+     * @param votersFile voters.csv
+     * @param candidatesFile candidates.csv
+     * @return true if both files still match their fingerprints
+     */
+    public boolean matches(File votersFile, File candidatesFile) {
+        return votersFile.length() == votersLength && votersFile.lastModified() == votersModified
+                && candidatesFile.length() == candidatesLength && candidatesFile.lastModified() == candidatesModified;
+    }
+
+    /**
+     * Gets the vote journal offset the snapshot reflects.
+     *
+     * @return The byte offset in votes.csv
+     */
+    public long getJournalOffset() {
+        return journalOffset;
+    }
+
+    /**
+     * Hands over the voters; later calls return null.
+     *
+     * @return The voters, or null if absent or already taken
+     */
+    public List<Voter> takeVoters() {
+        List<Voter> taken = voters;
+        voters = null;
+        return taken;
+    }
+
+    /**
+     * Hands over the candidates; later calls return null.
+     *
+     * @return The candidates, or null if already taken
+     */
+    public List<Candidate> takeCandidates() {
+        List<Candidate> taken = candidates;
+        candidates = null;
+        return taken;
+    }
+}
@@ -0,0 +1,678 @@
+package utils;
+
+import model.VoteRecord;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Tamper evidence for the vote journal.
+ * Every vote line carries a SHA-256 hash of the previous line's hash and the
+ * vote itself (voter ID, candidate ID and epoch milliseconds), so editing,
+ * inserting or removing a line breaks the chain from that line on.
+ *
+ * Every few votes the chain head is signed with SHA256withECDSA together with
+ * the journal offset it covers, and the checkpoint is appended to a ledger
+ * file once the votes it covers are written. Votes are chained and signed on
+ * the journal writer thread, in journal order, so ballots never wait for
+ * the ledger. A checkpoint lets verification
+ * start in the middle of the journal: the segments between checkpoints are
+ * re-hashed in parallel on the common fork-join pool, each from the hash the
+ * previous checkpoint signed, instead of re-hashing the whole chain serially.
+ *
+ * Lines written before the ledger existed carry no hash; they are reported as
+ * unprotected and the chain starts from an all-zero hash after them. A line
+ * without a hash after the first hashed line, a tail of more votes than the
+ * checkpoint interval with no checkpoint, and a missing or empty ledger file
+ * next to an existing key are reported as tampering: each is what deleting
+ * hashes or checkpoints would leave behind.
+ *
+ * The key pair is created on first use and kept in the key file. Anyone who
+ * can read that file can sign checkpoints, so it should be kept apart from the
+ * journal where possible.
+ *
+ * Configuration (system properties):
+ * - voting.ledger.checkpointInterval: votes between signed checkpoints (default 8192)
+ * - voting.ledger.keyFile: key pair used to sign checkpoints (default ledger.key)
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class VoteLedger {
+
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+    private static final String LEDGER_HEADER = "journalOffset,hash,signature";
+
+    /**
+     * Hash the chain starts from.
+     */
+    private static final byte[] GENESIS = new byte[32];
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * Most problems reported by one verification.
+     */
+    private static final int MAX_PROBLEMS = 100;
+
+    /**
+     * A signed chain head.
+     */
+    private static final class Checkpoint {
+        private final long journalOffset;
+        private final byte[] hash;
+        private final byte[] signature;
+
+        Checkpoint(long journalOffset, byte[] hash, byte[] signature) {
+            this.journalOffset = journalOffset;
+            this.hash = hash;
+            this.signature = signature;
+        }
+    }
+
+    private final File journalFile;
+    private final File ledgerFile;
+    private final File keyFile;
+    private final int checkpointInterval;
+
+    private byte[] head;
+    private int sinceCheckpoint;
+
+    /**
+     * Journal offset right after the last chained vote, or -1 if unknown.
+     */
+    private long chainedOffset = -1;
+    private KeyPair keys;
+    private final MessageDigest digest;
+
+    /**
+     * Set when the head may no longer match the journal.
+     */
+    private volatile boolean stale = true;
+
+    /**
+     * Creates a ledger for a vote journal. Nothing is read until first use.
+     *
+     * @param journalFile The vote journal (votes.csv)
+     * @param ledgerFile The file holding the signed checkpoints
+     * @param keyFile The file holding the signing key pair
+     * @param checkpointInterval Votes between signed checkpoints
+     */
+    public VoteLedger(File journalFile, File ledgerFile, File keyFile, int checkpointInterval) {
+        this.journalFile = journalFile;
+        this.ledgerFile = ledgerFile;
+        this.keyFile = keyFile;
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+        this.digest = newDigest();
+    }
+
+    /**
+     * Links votes to the chain in order and sets their hashes.
+     * The head advances at once; the caller must write the votes to the
+     * journal in the same order, and call {@link #invalidate()} if it cannot.
+     *
+     * @param records The votes about to be written
+     */
+    public synchronized void chain(List<VoteRecord> records) {
+        if (stale) {
+            recover();
+        }
+        for (VoteRecord record : records) {
+            head = link(digest, head, record.getVoterId(), record.getCandidateId(), record.getTimestamp());
+            record.setHash(toHex(head));
+        }
+        chainedOffset = -1;
+    }
+
+    /**
+     * Links votes to the chain right before the journal writer writes them.
+     * If they do not start where the last chained votes ended, votes were
+     * discarded after a failed write, and the head is read back from the
+     * journal first. Called on the journal writer thread, so the journal holds
+     * exactly the votes written before these.
+     *
+     * @param records The votes about to be written
+     * @param journalOffset The journal offset the votes are written at
+     * @param endOffset The journal offset right after the votes
+     */
+    public synchronized void chain(List<VoteRecord> records, long journalOffset, long endOffset) {
+        if (journalOffset != chainedOffset) {
+            stale = true;
+        }
+        chain(records);
+        chainedOffset = endOffset;
+    }
+
+    /**
+     * Records that chained votes were written, and signs and stores a
+     * checkpoint when one is due.
+     *
+     * @param records The votes, in journal order
+     * @param journalOffset The journal offset right after the votes
+     */
+    public synchronized void written(List<VoteRecord> records, long journalOffset) {
+        sinceCheckpoint += records.size();
+        if (sinceCheckpoint < checkpointInterval || records.isEmpty()) {
+            return;
+        }
+        Checkpoint checkpoint = sign(journalOffset, fromHex(records.get(records.size() - 1).getHash()));
+        if (checkpoint != null) {
+            store(checkpoint);
+            sinceCheckpoint = 0;
+        }
+    }
+
+    /**
+     * Checks whether writing more votes calls for a new checkpoint.
+     *
+     * @param records The number of votes about to be written
+     * @return true if {@link #written} signs a checkpoint after them
+     */
+    public synchronized boolean isCheckpointDue(int records) {
+        return sinceCheckpoint + records >= checkpointInterval;
+    }
+
+    /**
+     * Marks the head as out of date, for example after votes were chained but
+     * not appended. Takes no lock, so it can be called from the journal writer.
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Starts a new chain for a journal that is being rewritten from scratch
+     * and deletes the old checkpoints. The ledger file is left with only its
+     * header, so that an empty ledger still means checkpoints were deleted.
+     */
+    public synchronized void reset() {
+        head = GENESIS;
+        sinceCheckpoint = 0;
+        chainedOffset = -1;
+        stale = false;
+        synchronized (ledgerFile) {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(ledgerFile))) {
+                writer.write(LEDGER_HEADER);
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error clearing " + ledgerFile.getName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Verifies the journal up to a length against the chain and the checkpoints.
+     * Segments between checkpoints are verified in parallel. Does not lock the
+     * ledger, so votes keep being appended during verification.
+     *
+     * @param journalLength The journal length to verify; must end at a line break
+     * @return The verification report
+     */
+    public LedgerReport verify(long journalLength) {
+        long start = System.nanoTime();
+        final List<String> problems = new ArrayList<>();
+        List<Checkpoint> checkpoints = readCheckpoints();
+
+        PublicKey publicKey = null;
+        if (checkpoints.isEmpty() && keyFile.exists() && ledgerFile.length() == 0) {
+            // A key is only created to sign a checkpoint, and a reset keeps the header
+            problems.add(keyFile.getName() + " exists but " + ledgerFile.getName()
+                    + " is missing or empty; its checkpoints were deleted");
+        } else if (!checkpoints.isEmpty()) {
+            try {
+                publicKey = readPublicKey();
+                if (publicKey == null) {
+                    problems.add("The ledger has checkpoints but " + keyFile.getName() + " is missing");
+                }
+            } catch (IOException | GeneralSecurityException e) {
+                problems.add("Cannot read " + keyFile.getName() + ": " + e.getMessage());
+            }
+        }
+
+        // Segment i runs from checkpoint i - 1 (or the start) to checkpoint i;
+        // the last one is the tail after the last checkpoint
+        long actualLength = journalFile.length();
+        List<Segment> segments = new ArrayList<>();
+        long from = 0;
+        byte[] startHash = GENESIS;
+        for (Checkpoint checkpoint : checkpoints) {
+            if (checkpoint.journalOffset > journalLength) {
+                if (checkpoint.journalOffset > actualLength) {
+                    problems.add("A checkpoint covers " + checkpoint.journalOffset
+                            + " bytes but the journal has only " + actualLength);
+                }
+                break; // Later checkpoints cover votes written after verification started
+            }
+            if (checkpoint.journalOffset < from) {
+                problems.add("Checkpoint at byte " + checkpoint.journalOffset + " is out of order");
+                continue;
+            }
+            segments.add(new Segment(from, checkpoint.journalOffset, startHash, checkpoint));
+            from = checkpoint.journalOffset;
+            startHash = checkpoint.hash;
+        }
+        if (from < journalLength) {
+            segments.add(new Segment(from, journalLength, startHash, null));
+        }
+
+        try {
+            ForkJoinPool.commonPool().invoke(new VerifyTask(journalFile, segments, 0, segments.size(), publicKey));
+        } catch (UncheckedIOException e) {
+            problems.add("Error reading the journal: " + e.getCause().getMessage());
+        }
+
+        // Number records across segments and collect problems in journal order
+        long records = 0;
+        long unprotected = 0;
+        long unprotectedAfterChain = 0;
+        int verifiedCheckpoints = 0;
+        for (Segment segment : segments) {
+            if (segment.problem != null && problems.size() < MAX_PROBLEMS) {
+                if (segment.problemRecord < 0) {
+                    problems.add("After record " + (records + segment.records) + ": " + segment.problem);
+                } else {
+                    problems.add("Record " + (records + segment.problemRecord + 1) + " " + segment.problem);
+                }
+            }
+            records += segment.records;
+            unprotected += segment.unprotected;
+            unprotectedAfterChain += segment.unprotectedAfterChain;
+            if (segment.checkpoint != null && segment.problem == null) {
+                verifiedCheckpoints++;
+            }
+        }
+
+        // Checkpoints are signed at least every checkpointInterval votes, so a
+        // longer unsigned tail means checkpoints were removed from the ledger
+        if (!segments.isEmpty()) {
+            Segment tail = segments.get(segments.size() - 1);
+            long uncovered = tail.records - tail.unprotected - tail.unprotectedAfterChain;
+            if (tail.checkpoint == null && uncovered > checkpointInterval && problems.size() < MAX_PROBLEMS) {
+                problems.add("The last " + uncovered + " hashed record(s) are not covered by a checkpoint, although one is signed every "
+                        + checkpointInterval + "; checkpoints were removed from " + ledgerFile.getName());
+            }
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        return new LedgerReport(records, unprotected, unprotectedAfterChain, verifiedCheckpoints, elapsedMillis, problems);
+    }
+
+    /**
+     * Computes the chain hash of a vote from the previous hash.
+     */
+    private static byte[] link(MessageDigest digest, byte[] previous, String voterId, String candidateId, long timestamp) {
+        digest.update(previous);
+        digest.update((voterId == null ? "" : voterId).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update((candidateId == null ? "" : candidateId).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (timestamp >>> shift));
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Reads the head back from the last checkpoint and the journal lines after it.
+     */
+    private void recover() {
+        List<Checkpoint> checkpoints = readCheckpoints();
+        Checkpoint last = checkpoints.isEmpty() ? null : checkpoints.get(checkpoints.size() - 1);
+        long offset = 0;
+        head = GENESIS;
+        if (last != null && last.journalOffset <= journalFile.length()) {
+            offset = last.journalOffset;
+            head = last.hash;
+        } else if (last != null) {
+            System.err.println("The vote journal is shorter than its last ledger checkpoint; rescanning it");
+        }
+
+        final byte[][] tail = { head };
+        final int[] count = new int[1];
+        try (FileInputStream in = new FileInputStream(journalFile)) {
+            in.getChannel().position(offset);
+            new CsvParser().parse(new InputStreamReader(in), new CsvParser.RowHandler() {
+                @Override
+                public void handleRow(CsvParser.Row row) {
+                    if (row.fieldCount() >= 5 && !row.fieldEquals(0, "voterId")) {
+                        tail[0] = fromHex(row.get(4));
+                        count[0]++;
+                    }
+                }
+            });
+        } catch (FileNotFoundException e) {
+            // No journal yet, the chain starts from the beginning
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error reading the vote ledger head: " + e.getMessage());
+        }
+        head = tail[0];
+        sinceCheckpoint = count[0];
+        stale = false;
+    }
+
+    /**
+     * Signs a chain head, or returns null if no key is available.
+     */
+    private Checkpoint sign(long journalOffset, byte[] hash) {
+        try {
+            Signature signer = Signature.getInstance(SIGNATURE_ALGORITHM);
+            signer.initSign(keys().getPrivate());
+            signer.update(signedBytes(journalOffset, hash));
+            return new Checkpoint(journalOffset, hash, signer.sign());
+        } catch (IOException | GeneralSecurityException e) {
+            System.err.println("Error signing vote ledger checkpoint: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static byte[] signedBytes(long journalOffset, byte[] hash) {
+        return (journalOffset + ":" + toHex(hash)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Appends a checkpoint line to the ledger file.
+     */
+    private void store(Checkpoint checkpoint) {
+        synchronized (ledgerFile) {
+            boolean created = !ledgerFile.exists() || ledgerFile.length() == 0;
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(ledgerFile, true))) {
+                if (created) {
+                    writer.write(LEDGER_HEADER);
+                    writer.newLine();
+                }
+                writer.write(checkpoint.journalOffset + "," + toHex(checkpoint.hash) + ","
+                        + Base64.getEncoder().encodeToString(checkpoint.signature));
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error saving vote ledger checkpoint: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reads all checkpoints from the ledger file, skipping malformed lines.
+     */
+    private List<Checkpoint> readCheckpoints() {
+        final List<Checkpoint> checkpoints = new ArrayList<>();
+        synchronized (ledgerFile) {
+            try (Reader reader = new FileReader(ledgerFile)) {
+                new CsvParser().parse(reader, new CsvParser.RowHandler() {
+                    @Override
+                    public void handleRow(CsvParser.Row row) {
+                        // Skip header and incomplete rows
+                        if (row.index() == 0 || row.fieldCount() < 3) {
+                            return;
+                        }
+                        try {
+                            checkpoints.add(new Checkpoint(row.getLong(0), fromHex(row.get(1)),
+                                    Base64.getDecoder().decode(row.get(2))));
+                        } catch (IllegalArgumentException e) {
+                            System.err.println("Skipping malformed vote ledger checkpoint: " + row);
+                        }
+                    }
+                });
+            } catch (FileNotFoundException e) {
+                // No checkpoint yet
+            } catch (IOException e) {
+                System.err.println("Error loading vote ledger: " + e.getMessage());
+            }
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Loads the key pair, creating and saving a new one if there is none.
+     */
+    private synchronized KeyPair keys() throws IOException, GeneralSecurityException {
+        if (keys == null) {
+            Properties stored = readKeyFile();
+            if (stored == null) {
+                KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+                keys = generator.generateKeyPair();
+                Properties encoded = new Properties();
+                encoded.setProperty("publicKey", Base64.getEncoder().encodeToString(keys.getPublic().getEncoded()));
+                encoded.setProperty("privateKey", Base64.getEncoder().encodeToString(keys.getPrivate().getEncoded()));
+                try (BufferedWriter writer = new BufferedWriter(new FileWriter(keyFile))) {
+                    encoded.store(writer, "Vote ledger signing key (EC secp256r1)");
+                }
+            } else {
+                KeyFactory factory = KeyFactory.getInstance("EC");
+                PrivateKey privateKey = factory.generatePrivate(
+                        new PKCS8EncodedKeySpec(Base64.getDecoder().decode(stored.getProperty("privateKey", ""))));
+                keys = new KeyPair(decodePublicKey(stored), privateKey);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Loads the public key only, as needed for verification.
+     *
+     * @return The public key, or null if there is no key file
+     */
+    private PublicKey readPublicKey() throws IOException, GeneralSecurityException {
+        Properties stored = readKeyFile();
+        return stored == null ? null : decodePublicKey(stored);
+    }
+
+    private static PublicKey decodePublicKey(Properties stored) throws GeneralSecurityException {
+        try {
+            return KeyFactory.getInstance("EC").generatePublic(
+                    new X509EncodedKeySpec(Base64.getDecoder().decode(stored.getProperty("publicKey", ""))));
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Invalid public key encoding", e);
+        }
+    }
+
+    private Properties readKeyFile() throws IOException {
+        Properties stored = new Properties();
+        try (BufferedReader reader = new BufferedReader(new FileReader(keyFile))) {
+            stored.load(reader);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+        return stored;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(HASH_ALGORITHM + " is not available", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xf];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+
+    private static byte[] fromHex(String hex) {
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Invalid hash: " + hex);
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high < 0 || low < 0) {
+                throw new IllegalArgumentException("Invalid hash: " + hex);
+            }
+            bytes[i] = (byte) ((high << 4) | low);
+        }
+        return bytes;
+    }
+
+    /**
+     * A journal range verified on its own, and its outcome.
+     */
+    private static final class Segment {
+        private final long from;
+        private final long to;
+        private final byte[] startHash;
+        private final Checkpoint checkpoint;
+
+        private long records;
+        private long unprotected;
+        /** Records without a hash after the first hashed record. */
+        private long unprotectedAfterChain;
+        private String problem;
+        /** Index of the bad record within the segment, or -1 for the checkpoint. */
+        private long problemRecord;
+
+        Segment(long from, long to, byte[] startHash, Checkpoint checkpoint) {
+            this.from = from;
+            this.to = to;
+            this.startHash = startHash;
+            this.checkpoint = checkpoint;
+        }
+    }
+
+    /**
+     * Verifies the segments [from, to), splitting in halves.
+     */
+    private static class VerifyTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final File journalFile;
+        private final List<Segment> segments;
+        private final int from;
+        private final int to;
+        private final PublicKey publicKey;
+
+        VerifyTask(File journalFile, List<Segment> segments, int from, int to, PublicKey publicKey) {
+            this.journalFile = journalFile;
+            this.segments = segments;
+            this.from = from;
+            this.to = to;
+            this.publicKey = publicKey;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new VerifyTask(journalFile, segments, from, middle, publicKey),
+                        new VerifyTask(journalFile, segments, middle, to, publicKey));
+            } else if (to > from) {
+                try {
+                    verify(segments.get(from));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void verify(final Segment segment) throws IOException {
+            final MessageDigest digest = newDigest();
+            final byte[][] previous = { segment.startHash };
+            // Only the first segment can start before the first hashed record
+            final boolean[] chained = { segment.from > 0 };
+            try (FileInputStream in = new FileInputStream(journalFile)) {
+                in.getChannel().position(segment.from);
+                Reader reader = new InputStreamReader(
+                        new ParallelCsvLoader.PrefixInputStream(in, segment.to - segment.from), Charset.defaultCharset());
+                new CsvParser().parse(reader, new CsvParser.RowHandler() {
+                    @Override
+                    public void handleRow(CsvParser.Row row) {
+                        // Skip headers and incomplete rows, and only count rows after the first problem
+                        if (row.fieldCount() < 3 || row.fieldEquals(0, "voterId")) {
+                            return;
+                        }
+                        long record = segment.records++;
+                        if (row.fieldCount() < 5) {
+                            // Only lines before the first hashed line may lack a hash
+                            if (!chained[0]) {
+                                segment.unprotected++;
+                            } else {
+                                segment.unprotectedAfterChain++;
+                                if (segment.problem == null) {
+                                    fail(segment, record, "hash is missing");
+                                }
+                            }
+                            return;
+                        }
+                        chained[0] = true;
+                        if (segment.problem != null) {
+                            return;
+                        }
+                        try {
+                            byte[] hash = link(digest, previous[0], row.get(0), row.get(1), row.getLong(2));
+                            if (!MessageDigest.isEqual(hash, fromHex(row.get(4)))) {
+                                fail(segment, record, "does not match its hash; it or an earlier record was changed");
+                                return;
+                            }
+                            previous[0] = hash;
+                        } catch (IllegalArgumentException e) {
+                            fail(segment, record, "is malformed: " + e.getMessage());
+                        }
+                    }
+                });
+            }
+
+            Checkpoint checkpoint = segment.checkpoint;
+            if (segment.problem != null || checkpoint == null) {
+                return;
+            }
+            if (!MessageDigest.isEqual(previous[0], checkpoint.hash)) {
+                fail(segment, -1, "the chain does not reach the checkpoint at byte "
+                        + checkpoint.journalOffset + "; records were removed or reordered");
+            } else if (publicKey == null || !verifySignature(checkpoint)) {
+                fail(segment, -1, "the checkpoint at byte " + checkpoint.journalOffset
+                        + " is not signed with the ledger key");
+            }
+        }
+
+        private boolean verifySignature(Checkpoint checkpoint) {
+            try {
+                Signature verifier = Signature.getInstance(SIGNATURE_ALGORITHM);
+                verifier.initVerify(publicKey);
+                verifier.update(signedBytes(checkpoint.journalOffset, checkpoint.hash));
+                return verifier.verify(checkpoint.signature);
+            } catch (GeneralSecurityException e) {
+                return false;
+            }
+        }
+
+        private static void fail(Segment segment, long record, String problem) {
+            segment.problem = problem;
+            segment.problemRecord = record;
+        }
+
+    }
+}
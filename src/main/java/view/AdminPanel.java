@@ -1,17 +1,29 @@
 package view;
 
 import controller.AdministratorController;
+import controller.AuditReport;
 import controller.Election; // Re-added for ElectionStatus type resolution
 import model.Candidate;
 import model.Voter;
-import utils.DataManager;
+import repository.CandidateRepository;
+import repository.TallyEngine;
+import repository.TallyEvent;
+import repository.TallyListener;
+import repository.VoterRepository;
+import utils.LedgerReport;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Admin panel for managing candidates, controlling elections, and viewing results.
@@ -21,6 +33,11 @@ import java.util.List;
  */
 public class AdminPanel extends JPanel {
     
+    /**
+     * The most problems of each kind listed in an audit or ledger report.
+     */
+    private static final int MAX_LISTED = 10;
+    
     private MainFrame mainFrame;
     private JTabbedPane tabbedPane;
     
@@ -41,14 +58,31 @@ public class AdminPanel extends JPanel {
     
     // Results Components
     private JTable resultsTable;
-    private DefaultTableModel resultsTableModel;
+    private ResultsTableModel resultsTableModel;
     private JButton refreshResultsButton;
+    private JButton auditVotesButton;
+    private JButton verifyLedgerButton;
     
     // Voter Management Components
     private JTextField voterIdField;
     private JPasswordField voterPasswordField;
     private JTable votersTable;
     private DefaultTableModel votersTableModel;
+    private JButton importButton;
+    private JButton registerButton;
+    
+    // Hands tally events from the tally event thread to the EDT
+    private final TallyListener tallyListener = new TallyListener() {
+        @Override
+        public void tallyChanged(final TallyEvent event) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    resultsTableModel.update(event.getResults(), event.isCandidatesChanged());
+                }
+            });
+        }
+    };
     
     /**
      * Constructor for AdminPanel.
@@ -92,15 +126,11 @@ public class AdminPanel extends JPanel {
         stopElectionButton = new JButton("Stop Election");
         
         // Results Components
-        String[] resultsColumnNames = {"Name", "Position", "Vote Count"};
-        resultsTableModel = new DefaultTableModel(resultsColumnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        resultsTableModel = new ResultsTableModel();
         resultsTable = new JTable(resultsTableModel);
         refreshResultsButton = new JButton("Refresh Results");
+        auditVotesButton = new JButton("Audit Votes");
+        verifyLedgerButton = new JButton("Verify Ledger");
         
         // Voter Management Components
         voterIdField = new JTextField(15);
@@ -114,6 +144,7 @@ public class AdminPanel extends JPanel {
             }
         };
         votersTable = new JTable(votersTableModel);
+        importButton = new JButton("Import Voters from CSV");
     }
     
     /**
@@ -236,7 +267,7 @@ public class AdminPanel extends JPanel {
         
         // Buttons
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
-        JButton registerButton = new JButton("Register Single Voter");
+        registerButton = new JButton("Register Single Voter");
         JButton deleteButton = new JButton("Delete Voter");
         
         registerButton.addActionListener(e -> handleRegisterVoter());
@@ -260,7 +291,6 @@ public class AdminPanel extends JPanel {
         bulkPanel.setBorder(BorderFactory.createTitledBorder("Bulk Import (FR-A07)"));
         JPanel bulkFormPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         
-        JButton importButton = new JButton("Import Voters from CSV");
         importButton.addActionListener(e -> handleImportVoters());
         bulkFormPanel.add(importButton);
         
@@ -354,6 +384,8 @@ public class AdminPanel extends JPanel {
         // Refresh button
         JPanel buttonPanel = new JPanel(new FlowLayout());
         buttonPanel.add(refreshResultsButton);
+        buttonPanel.add(auditVotesButton);
+        buttonPanel.add(verifyLedgerButton);
         
         // Table
         JScrollPane scrollPane = new JScrollPane(resultsTable);
@@ -393,6 +425,8 @@ public class AdminPanel extends JPanel {
         stopElectionButton.addActionListener(e -> handleStopElection());
         setElectionDatesButton.addActionListener(e -> handleSetElectionDates());
         refreshResultsButton.addActionListener(e -> refreshResults());
+        auditVotesButton.addActionListener(e -> handleAuditVotes());
+        verifyLedgerButton.addActionListener(e -> handleVerifyLedger());
     }
     
     /**
@@ -552,7 +586,7 @@ public class AdminPanel extends JPanel {
      */
     private void refreshCandidatesTable() {
         candidatesTableModel.setRowCount(0);
-        List<Candidate> candidates = DataManager.loadCandidates();
+        List<Candidate> candidates = CandidateRepository.getInstance().findAll();
         
         for (Candidate candidate : candidates) {
             candidatesTableModel.addRow(new Object[]{
@@ -564,21 +598,158 @@ public class AdminPanel extends JPanel {
         }
     }
     
+    /**
+     * Audits the tally against the vote log off the EDT and shows the report.
+     */
+    private void handleAuditVotes() {
+        auditVotesButton.setEnabled(false);
+        final AdministratorController adminController = new AdministratorController();
+        CompletableFuture.supplyAsync(new Supplier<AuditReport>() {
+            @Override
+            public AuditReport get() {
+                return adminController.auditVotes();
+            }
+        }).whenComplete(new BiConsumer<AuditReport, Throwable>() {
+            @Override
+            public void accept(final AuditReport report, final Throwable failure) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        auditVotesButton.setEnabled(true);
+                        if (failure != null) {
+                            Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                            System.err.println("Error during vote audit in AdminPanel: " + cause.getMessage());
+                            JOptionPane.showMessageDialog(AdminPanel.this,
+                                    "Error auditing votes: " + cause.getMessage(),
+                                    "Audit Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        showAuditReport(report);
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * Shows an audit report, listing at most the first few problems of each kind.
+     * 
+     * @param report The audit report
+     */
+    private void showAuditReport(AuditReport report) {
+        StringBuilder message = new StringBuilder(report.toString());
+        appendListed(message, report.getDiscrepancies(),
+                discrepancy -> "Candidate " + discrepancy);
+        appendListed(message, report.getOrphanCandidates().entrySet(),
+                orphan -> "Unknown candidate " + orphan.getKey() + ": " + orphan.getValue() + " vote(s)");
+        appendListed(message, report.getDuplicateVoters().entrySet(),
+                duplicate -> "Voter " + duplicate.getKey() + " recorded " + duplicate.getValue() + " times");
+        
+        JOptionPane.showMessageDialog(this,
+                message.toString(),
+                "Vote Audit",
+                report.isClean() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Appends one line for each of the first few items of a report.
+     * 
+     * @param message The message to append to
+     * @param items The items, in report order
+     * @param line Formats one item as a line
+     */
+    private static <T> void appendListed(StringBuilder message, Iterable<T> items, Function<T, String> line) {
+        int listed = 0;
+        for (T item : items) {
+            if (listed++ == MAX_LISTED) {
+                break;
+            }
+            message.append("\n").append(line.apply(item));
+        }
+    }
+    
+    /**
+     * Verifies the vote ledger off the EDT and shows the report.
+     */
+    private void handleVerifyLedger() {
+        verifyLedgerButton.setEnabled(false);
+        final AdministratorController adminController = new AdministratorController();
+        CompletableFuture.supplyAsync(new Supplier<LedgerReport>() {
+            @Override
+            public LedgerReport get() {
+                return adminController.verifyVoteLedger();
+            }
+        }).whenComplete(new BiConsumer<LedgerReport, Throwable>() {
+            @Override
+            public void accept(final LedgerReport report, final Throwable failure) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        verifyLedgerButton.setEnabled(true);
+                        if (failure != null) {
+                            Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                            System.err.println("Error verifying vote ledger in AdminPanel: " + cause.getMessage());
+                            JOptionPane.showMessageDialog(AdminPanel.this,
+                                    "Error verifying the vote ledger: " + cause.getMessage(),
+                                    "Ledger Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        showLedgerReport(report);
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * Shows a ledger verification report, listing at most the first few problems.
+     * 
+     * @param report The report, or null if the storage backend keeps no ledger
+     */
+    private void showLedgerReport(LedgerReport report) {
+        if (report == null) {
+            JOptionPane.showMessageDialog(this,
+                    "The storage backend in use keeps no vote ledger.",
+                    "Vote Ledger",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        StringBuilder message = new StringBuilder(report.toString());
+        appendListed(message, report.getProblems(), problem -> problem);
+        
+        JOptionPane.showMessageDialog(this,
+                message.toString(),
+                "Vote Ledger",
+                report.isIntact() ? JOptionPane.INFORMATION_MESSAGE : JOptionPane.WARNING_MESSAGE);
+    }
+    
     /**
      * Refreshes the results table.
      */
     private void refreshResults() {
-        resultsTableModel.setRowCount(0);
         AdministratorController adminController = new AdministratorController();
-        List<Candidate> results = adminController.calculateTally();
-
-        for (Candidate candidate : results) {
-            resultsTableModel.addRow(new Object[]{
-                    candidate.getName(),
-                    candidate.getPosition(),
-                    candidate.getVoteCount()
-            });
-        }
+        resultsTableModel.update(adminController.calculateTally(), false);
+    }
+    
+    /**
+     * Starts pushing tally changes to the results table while the panel is
+     * displayable, so results stay current without pressing Refresh.
+     */
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        TallyEngine.getInstance().addTallyListener(tallyListener);
+    }
+    
+    /**
+     * Stops pushing tally changes once the panel is no longer displayable.
+     */
+    @Override
+    public void removeNotify() {
+        TallyEngine.getInstance().removeTallyListener(tallyListener);
+        super.removeNotify();
     }
     
     /**
@@ -605,20 +776,40 @@ public class AdminPanel extends JPanel {
             return;
         }
         
+        // The password is hashed on the hashing pool; keep the EDT free
+        registerButton.setEnabled(false);
         AdministratorController controller = new AdministratorController();
-        if (controller.addVoter(voterId, password)) {
-            JOptionPane.showMessageDialog(this,
-                    "Voter registered successfully!",
-                    "Success",
-                    JOptionPane.INFORMATION_MESSAGE);
-            clearVoterFields();
-            refreshVotersTable();
-        } else {
-            JOptionPane.showMessageDialog(this,
-                    "Failed to register voter. Voter ID may already exist.",
-                    "Error",
-                    JOptionPane.ERROR_MESSAGE);
-        }
+        controller.addVoterAsync(voterId, password).whenComplete(new BiConsumer<Boolean, Throwable>() {
+            @Override
+            public void accept(final Boolean added, final Throwable failure) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        registerButton.setEnabled(true);
+                        if (failure != null) {
+                            Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                            System.err.println("Error registering voter in AdminPanel: " + cause.getMessage());
+                            JOptionPane.showMessageDialog(AdminPanel.this,
+                                    "Failed to register voter: " + cause.getMessage(),
+                                    "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        } else if (added) {
+                            JOptionPane.showMessageDialog(AdminPanel.this,
+                                    "Voter registered successfully!",
+                                    "Success",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                            clearVoterFields();
+                            refreshVotersTable();
+                        } else {
+                            JOptionPane.showMessageDialog(AdminPanel.this,
+                                    "Failed to register voter. Voter ID may already exist.",
+                                    "Error",
+                                    JOptionPane.ERROR_MESSAGE);
+                        }
+                    }
+                });
+            }
+        });
     }
     
     /**
@@ -670,28 +861,53 @@ public class AdminPanel extends JPanel {
         int result = fileChooser.showOpenDialog(this);
         
         if (result == JFileChooser.APPROVE_OPTION) {
-            File selectedFile = fileChooser.getSelectedFile();
+            final File selectedFile = fileChooser.getSelectedFile();
+            final AdministratorController controller = new AdministratorController();
             
-            try {
-                AdministratorController controller = new AdministratorController();
-                String summary = controller.importVotersFromCSV(selectedFile);
-                
-                JOptionPane.showMessageDialog(this,
-                        summary,
-                        "Import Complete",
-                        JOptionPane.INFORMATION_MESSAGE);
-                
-                refreshVotersTable();
-            } catch (Exception e) {
-                // Log the exception details to the console for debugging
-                System.err.println("Error during voter import in AdminPanel:");
-                e.printStackTrace(); // Print the stack trace here
+            // Hashing the imported passwords takes a while; keep the EDT free
+            importButton.setEnabled(false);
+            CompletableFuture.supplyAsync(new Supplier<String>() {
+                @Override
+                public String get() {
+                    try {
+                        return controller.importVotersFromCSV(selectedFile);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            }).whenComplete(new BiConsumer<String, Throwable>() {
+                @Override
+                public void accept(final String summary, final Throwable failure) {
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            importButton.setEnabled(true);
+                            if (failure != null) {
+                                Throwable cause = failure.getCause() != null ? failure.getCause() : failure;
+                                if (cause instanceof UncheckedIOException) {
+                                    cause = cause.getCause();
+                                }
+                                // Log the exception details to the console for debugging
+                                System.err.println("Error during voter import in AdminPanel:");
+                                cause.printStackTrace(); // Print the stack trace here
 
-                JOptionPane.showMessageDialog(this,
-                        "Error importing voters: " + e.getMessage(),
-                        "Import Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+                                JOptionPane.showMessageDialog(AdminPanel.this,
+                                        "Error importing voters: " + cause.getMessage(),
+                                        "Import Error",
+                                        JOptionPane.ERROR_MESSAGE);
+                                return;
+                            }
+                            
+                            JOptionPane.showMessageDialog(AdminPanel.this,
+                                    summary,
+                                    "Import Complete",
+                                    JOptionPane.INFORMATION_MESSAGE);
+                            
+                            refreshVotersTable();
+                        }
+                    });
+                }
+            });
         }
     }
     
@@ -700,7 +916,7 @@ public class AdminPanel extends JPanel {
      */
     private void refreshVotersTable() {
         votersTableModel.setRowCount(0);
-        List<Voter> voters = DataManager.loadVoters();
+        List<Voter> voters = VoterRepository.getInstance().findAll();
         
         for (Voter voter : voters) {
             votersTableModel.addRow(new Object[]{
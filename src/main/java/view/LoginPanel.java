@@ -1,12 +1,15 @@
 package view;
 
 import controller.AuthenticationController;
+import controller.LoginThrottledException;
 import model.Voter;
 
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
 
 /**
  * Login panel for user authentication.
@@ -113,6 +116,8 @@ public class LoginPanel extends JPanel {
     
     /**
      * Handles the login action.
+     * The password is verified on the password hashing pool; the panel is
+     * disabled until the result comes back on the EDT.
      */
     private void handleLogin() {
         String username = usernameField.getText().trim();
@@ -127,11 +132,55 @@ public class LoginPanel extends JPanel {
         }
         
         // Authenticate user
+        setLoginEnabled(false);
         AuthenticationController authController = new AuthenticationController();
-        AuthenticationController.AuthenticationResult result = authController.authenticate(username, password);
+        authController.authenticateAsync(username, password).whenComplete(
+                new BiConsumer<AuthenticationController.AuthenticationResult, Throwable>() {
+                    @Override
+                    public void accept(final AuthenticationController.AuthenticationResult result,
+                                       final Throwable failure) {
+                        SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                setLoginEnabled(true);
+                                showLoginResult(result, failure);
+                            }
+                        });
+                    }
+                });
+    }
+    
+    /**
+     * Navigates to the user's panel or reports a failed login.
+     * 
+     * @param result The authentication result, or null if authentication failed to run
+     * @param failure The error that kept authentication from running, or null
+     */
+    private void showLoginResult(AuthenticationController.AuthenticationResult result, Throwable failure) {
+        if (failure instanceof LoginThrottledException) {
+            long seconds = Math.max(1, (((LoginThrottledException) failure).getRetryAfterMillis() + 999) / 1000);
+            JOptionPane.showMessageDialog(this,
+                    "Too many login attempts. Please try again in " + seconds + " second(s).",
+                    "Login Blocked",
+                    JOptionPane.WARNING_MESSAGE);
+            passwordField.setText("");
+            return;
+        }
+        if (failure != null) {
+            boolean busy = failure instanceof RejectedExecutionException
+                    || failure.getCause() instanceof RejectedExecutionException;
+            System.err.println("Error during login in LoginPanel: " + failure.getMessage());
+            JOptionPane.showMessageDialog(this,
+                    busy ? "The system is busy. Please try again in a moment."
+                            : "Login could not be completed: " + failure.getMessage(),
+                    "Login Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         
         if (result.isSuccess()) {
             String userType = result.getUserType();
+            mainFrame.setSessionToken(result.getSessionToken());
             
             if ("ADMIN".equals(userType)) {
                 // Navigate to admin panel
@@ -153,6 +202,17 @@ public class LoginPanel extends JPanel {
         }
     }
     
+    /**
+     * Enables or disables the login controls while a login is in progress.
+     * 
+     * @param enabled Whether the controls accept input
+     */
+    private void setLoginEnabled(boolean enabled) {
+        usernameField.setEnabled(enabled);
+        passwordField.setEnabled(enabled);
+        loginButton.setEnabled(enabled);
+    }
+    
     /**
      * Clears all input fields.
      */
@@ -1,5 +1,6 @@
 package view;
 
+import controller.SessionManager;
 import model.Voter;
 
 import javax.swing.*;
@@ -20,6 +21,11 @@ public class MainFrame extends JFrame {
     private AdminPanel adminPanel;
     private VotingPanel votingPanel;
     
+    /**
+     * Token of the logged-in user's session, or null while logged out.
+     */
+    private String sessionToken;
+    
     /**
      * Constructor for MainFrame.
      * Initializes the window and sets up the CardLayout with all panels.
@@ -63,13 +69,33 @@ public class MainFrame extends JFrame {
     }
     
     /**
-     * Switches to the login panel.
+     * Switches to the login panel, ending the current session.
      */
     public void showLogin() {
+        SessionManager.getInstance().invalidate(sessionToken);
+        sessionToken = null;
         cardLayout.show(cardContainer, "LOGIN");
         loginPanel.clearFields();
     }
     
+    /**
+     * Remembers the session of the user who just logged in.
+     * 
+     * @param sessionToken The token returned by the login
+     */
+    public void setSessionToken(String sessionToken) {
+        this.sessionToken = sessionToken;
+    }
+    
+    /**
+     * Gets the session of the logged-in user, which panels pass with their requests.
+     * 
+     * @return The session token, or null while logged out
+     */
+    public String getSessionToken() {
+        return sessionToken;
+    }
+    
     /**
      * Switches to the admin panel.
      */
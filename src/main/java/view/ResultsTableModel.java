@@ -0,0 +1,96 @@
+package view;
+
+import model.Candidate;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Table model for the election results. Updates only notify the table of the
+ * rows that actually changed, so a stream of tally updates repaints a few
+ * cells rather than rebuilding the whole table. Used on the EDT only.
+ *
+ * @author Online Voting System
+ * @version 1.0
+ */
+public class ResultsTableModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String[] COLUMN_NAMES = {"Name", "Position", "Vote Count"};
+
+    private List<Candidate> rows = new ArrayList<>();
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == 2 ? Integer.class : String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Candidate candidate = rows.get(row);
+        switch (column) {
+            case 0:
+                return candidate.getName();
+            case 1:
+                return candidate.getPosition();
+            default:
+                return candidate.getVoteCount();
+        }
+    }
+
+    /**
+     * Replaces the results shown.
+     *
+     * @param results All candidates ordered by vote count (highest first)
+     * @param candidatesChanged Whether candidates may have been added, deleted
+     *        or edited, which redraws the whole table
+     */
+    public void update(List<Candidate> results, boolean candidatesChanged) {
+        List<Candidate> previous = rows;
+        rows = new ArrayList<>(results);
+        if (candidatesChanged || previous.size() != rows.size()) {
+            fireTableDataChanged();
+            return;
+        }
+        // Votes only move candidates within the ordering, so compare row by row
+        int first = -1;
+        for (int i = 0; i < rows.size(); i++) {
+            if (sameRow(previous.get(i), rows.get(i))) {
+                if (first >= 0) {
+                    fireTableRowsUpdated(first, i - 1);
+                    first = -1;
+                }
+            } else if (first < 0) {
+                first = i;
+            }
+        }
+        if (first >= 0) {
+            fireTableRowsUpdated(first, rows.size() - 1);
+        }
+    }
+
+    private static boolean sameRow(Candidate a, Candidate b) {
+        return a.getVoteCount() == b.getVoteCount()
+                && Objects.equals(a.getCandidateId(), b.getCandidateId())
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getPosition(), b.getPosition());
+    }
+}
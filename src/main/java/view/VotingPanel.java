@@ -1,10 +1,12 @@
 package view;
 
-import controller.AdministratorController;
+import controller.InvalidSessionException;
+import controller.VoteRejectedException;
 import controller.VotingController;
 import model.Candidate;
 import model.Voter;
-import utils.DataManager;
+import repository.CandidateRepository;
+import repository.VoterRepository;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
@@ -12,6 +14,7 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.List;
+import java.util.function.BiConsumer;
 
 /**
  * Voting panel for voters to cast their votes.
@@ -123,7 +126,7 @@ public class VotingPanel extends JPanel {
      * Refreshes the candidates list and updates the display.
      */
     public void refreshCandidates() {
-        candidates = DataManager.loadCandidates();
+        candidates = CandidateRepository.getInstance().findAll();
         candidatesPanel.removeAll();
         candidateButtonGroup = new ButtonGroup(); // Create new ButtonGroup
         
@@ -180,10 +183,37 @@ public class VotingPanel extends JPanel {
             return;
         }
         
-        // Cast the vote
+        // Cast the vote without blocking the EDT; the result arrives once the vote is durable.
+        // The session stands in for the voter, so the password is not needed again
+        voteButton.setEnabled(false);
+        statusLabel.setText("Submitting your vote...");
         VotingController votingController = new VotingController();
-        boolean success = votingController.castVote(currentVoter, selectedCandidate);
-        
+        String candidateId = selectedCandidate.getCandidateId();
+        votingController.castVoteAsync(mainFrame.getSessionToken(), candidateId).whenComplete(new BiConsumer<Boolean, Throwable>() {
+            @Override
+            public void accept(final Boolean success, final Throwable failure) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (failure instanceof InvalidSessionException) {
+                            showSessionExpired();
+                        } else if (failure instanceof VoteRejectedException) {
+                            showVoteRejected((VoteRejectedException) failure);
+                        } else {
+                            showVoteResult(failure == null && success);
+                        }
+                    }
+                });
+            }
+        });
+    }
+    
+    /**
+     * Shows the outcome of a vote on the EDT.
+     * 
+     * @param success true if the vote was cast and persisted
+     */
+    private void showVoteResult(boolean success) {
         if (success) {
             JOptionPane.showMessageDialog(this,
                     "Vote cast successfully! Thank you for voting.",
@@ -191,12 +221,9 @@ public class VotingPanel extends JPanel {
                     JOptionPane.INFORMATION_MESSAGE);
             
             // Reload voter data to get updated hasVoted status
-            List<Voter> voters = DataManager.loadVoters();
-            for (Voter voter : voters) {
-                if (voter.getId().equals(currentVoter.getId())) {
-                    currentVoter = voter;
-                    break;
-                }
+            Voter storedVoter = VoterRepository.getInstance().findById(currentVoter.getId());
+            if (storedVoter != null) {
+                currentVoter = storedVoter;
             }
             
             updateVotingStatus();
@@ -209,6 +236,7 @@ public class VotingPanel extends JPanel {
                 errorMessage += "Election may be closed or an error occurred.";
             }
             
+            updateVotingStatus();
             JOptionPane.showMessageDialog(this,
                     errorMessage,
                     "Vote Failed",
@@ -216,6 +244,32 @@ public class VotingPanel extends JPanel {
         }
     }
     
+    /**
+     * Tells the voter that the system is busy and the vote was not submitted.
+     * 
+     * @param rejection The rejection with the suggested retry delay
+     */
+    private void showVoteRejected(VoteRejectedException rejection) {
+        long seconds = Math.max(1, (rejection.getRetryAfterMillis() + 999) / 1000);
+        updateVotingStatus();
+        JOptionPane.showMessageDialog(this,
+                "The system is busy and your vote was not submitted.\n"
+                        + "Please try again in " + seconds + " second(s).",
+                "System Busy",
+                JOptionPane.WARNING_MESSAGE);
+    }
+    
+    /**
+     * Tells the voter that the session has ended and returns to the login panel.
+     */
+    private void showSessionExpired() {
+        JOptionPane.showMessageDialog(this,
+                "Your session has expired. Please log in again.",
+                "Session Expired",
+                JOptionPane.WARNING_MESSAGE);
+        mainFrame.showLogin();
+    }
+    
     /**
      * Updates the voting status and enables/disables controls accordingly.
      */
@@ -252,8 +306,13 @@ public class VotingPanel extends JPanel {
      * Displays election results in a dialog window.
      */
     private void showResults() {
-        AdministratorController adminController = new AdministratorController();
-        List<Candidate> results = adminController.calculateTally();
+        List<Candidate> results;
+        try {
+            results = new VotingController().getResults(mainFrame.getSessionToken());
+        } catch (InvalidSessionException e) {
+            showSessionExpired();
+            return;
+        }
         
         // Create table model
         String[] columnNames = {"Name", "Position", "Vote Count"};